@@ -0,0 +1,88 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.util.AesEncryptionUtil;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares allocation per note round trip (encrypt then decrypt) for:
+ *  - copyingRoundTrip: the previous byte[] pipeline (getBytes, doFinal into fresh
+ *    arrays, header concatenation, new String)
+ *  - stringRoundTrip: the String/byte[] API NoteService uses, now backed by pooled
+ *    scratch buffers and exactly sized output arrays
+ *  - byteBufferRoundTrip: the ByteBuffer overloads with caller-owned, reused buffers
+ *
+ * Run with: ./gradlew jmh and compare gc.alloc.rate.norm (bytes per op) from the gc profiler.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AesBufferBenchmark {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    @Param({"1024", "65536"})
+    private int noteSize;
+
+    private AesEncryptionUtil aesEncryptionUtil;
+    private SecretKeySpec key;
+    private Cipher cipher;
+    private SecureRandom random;
+    private String plainText;
+    private byte[] plainBytes;
+    private ByteBuffer encryptedBuffer;
+    private ByteBuffer decryptedBuffer;
+
+    @Setup
+    public void setUp() throws Exception {
+        aesEncryptionUtil = new AesEncryptionUtil();
+        ReflectionTestUtils.setField(aesEncryptionUtil, "SECRET_KEY", SECRET);
+        aesEncryptionUtil.init();
+        key = new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "AES");
+        cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        random = new SecureRandom();
+        plainText = "x".repeat(noteSize);
+        plainBytes = plainText.getBytes(StandardCharsets.UTF_8);
+        encryptedBuffer = ByteBuffer.allocate(aesEncryptionUtil.maxEncryptedSize(noteSize));
+        decryptedBuffer = ByteBuffer.allocate(noteSize);
+    }
+
+    @Benchmark
+    public String copyingRoundTrip() throws Exception {
+        byte[] iv = new byte[12];
+        random.nextBytes(iv);
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+        byte[] cipherText = cipher.doFinal(plainText.getBytes());
+        byte[] stored = new byte[1 + iv.length + cipherText.length];
+        stored[0] = AesEncryptionUtil.VERSION_GCM;
+        System.arraycopy(iv, 0, stored, 1, iv.length);
+        System.arraycopy(cipherText, 0, stored, 1 + iv.length, cipherText.length);
+
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, Arrays.copyOfRange(stored, 1, 13)));
+        return new String(cipher.doFinal(Arrays.copyOfRange(stored, 13, stored.length)));
+    }
+
+    @Benchmark
+    public String stringRoundTrip() {
+        return aesEncryptionUtil.decrypt(aesEncryptionUtil.encryptToBytes(plainText));
+    }
+
+    @Benchmark
+    public int byteBufferRoundTrip() {
+        encryptedBuffer.clear();
+        decryptedBuffer.clear();
+        aesEncryptionUtil.encrypt(ByteBuffer.wrap(plainBytes), encryptedBuffer, null);
+        encryptedBuffer.flip();
+        return aesEncryptionUtil.decrypt(encryptedBuffer, decryptedBuffer, () -> null);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.util.AesEncryptionUtil;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares the pooled Cipher engine in AesEncryptionUtil against the previous
+ * implementation, which called Cipher.getInstance on every encrypt/decrypt.
+ * Both sides use the legacy ECB format the previous implementation wrote, so the
+ * comparison measures only the Cipher handling; AesGcmBenchmark covers GCM.
+ *
+ * Run with: ./gradlew jmh (the gc profiler reports allocation per op).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+public class AesEncryptionBenchmark {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    @Param({"256", "4096"})
+    private int noteSize;
+
+    private AesEncryptionUtil aesEncryptionUtil;
+    private SecretKeySpec secretKeySpec;
+    private String plainText;
+    private String encryptedText;
+
+    @Setup
+    public void setUp() {
+        aesEncryptionUtil = new AesEncryptionUtil();
+        ReflectionTestUtils.setField(aesEncryptionUtil, "SECRET_KEY", SECRET);
+        ReflectionTestUtils.setField(aesEncryptionUtil, "writeFormat", "ecb");
+        aesEncryptionUtil.init();
+        secretKeySpec = new SecretKeySpec(SECRET.getBytes(), "AES");
+        plainText = "x".repeat(noteSize);
+        encryptedText = aesEncryptionUtil.encrypt(plainText);
+    }
+
+    @Benchmark
+    public String encryptPooled() {
+        return aesEncryptionUtil.encrypt(plainText);
+    }
+
+    @Benchmark
+    public String decryptPooled() {
+        return aesEncryptionUtil.decrypt(encryptedText);
+    }
+
+    @Benchmark
+    public String encryptGetInstancePerCall() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, secretKeySpec);
+        return Base64.getEncoder().encodeToString(cipher.doFinal(plainText.getBytes()));
+    }
+
+    @Benchmark
+    public String decryptGetInstancePerCall() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.DECRYPT_MODE, secretKeySpec);
+        return new String(cipher.doFinal(Base64.getDecoder().decode(encryptedText)));
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.util.AesEncryptionUtil;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares throughput of the AES-GCM note format against the legacy ECB format
+ * on large notes. GCM runs on the AES-NI/CLMUL intrinsics on supported hardware.
+ *
+ * Run with: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AesGcmBenchmark {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    @Param({"65536", "1048576"})
+    private int noteSize;
+
+    @Param({"gcm", "ecb"})
+    private String format;
+
+    private AesEncryptionUtil aesEncryptionUtil;
+    private String plainText;
+    private String encryptedText;
+
+    @Setup
+    public void setUp() {
+        aesEncryptionUtil = new AesEncryptionUtil();
+        ReflectionTestUtils.setField(aesEncryptionUtil, "SECRET_KEY", SECRET);
+        ReflectionTestUtils.setField(aesEncryptionUtil, "writeFormat", format);
+        aesEncryptionUtil.init();
+        plainText = "x".repeat(noteSize);
+        encryptedText = aesEncryptionUtil.encrypt(plainText);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return aesEncryptionUtil.encrypt(plainText);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return aesEncryptionUtil.decrypt(encryptedText);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.entity.User;
+import com.example.secure_notes.repository.RevokedTokenRepository;
+import com.example.secure_notes.repository.UserRepository;
+import com.example.secure_notes.security.JwtAuthenticationFilter;
+import com.example.secure_notes.security.JwtUtil;
+import com.example.secure_notes.security.VerifiedTokenCache;
+import com.example.secure_notes.service.TokenRevocationService;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Measures the per-request cost of JwtAuthenticationFilter on a valid bearer token:
+ *  - filter: the current filter, which verifies and parses the token once with the
+ *    key and parser built at startup; with stateless=true the principal is built from
+ *    the token's claims, otherwise it comes from the UserDetailsService
+ *  - previousValidation: the work the filter did before, rebuilding the HMAC key and
+ *    parser for each of its three parses (subject, subject again, expiration)
+ *
+ * User details come from an in-memory service and the verified-token cache is off, so
+ * that only JWT handling is measured (see TokenCacheBenchmark for the cache).
+ *
+ * Run with: ./gradlew jmh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtFilterBenchmark {
+
+    private static final String SECRET = "mySecretKeyThatIsAtLeast256BitsLongForHS256Algorithm";
+
+    @Param({"true", "false"})
+    private boolean stateless;
+
+    private JwtAuthenticationFilter filter;
+    private UserDetailsService userDetailsService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expirationMillis", 3600000L);
+        jwtUtil.init();
+
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("benchuser");
+        user.setPasswordHash("hash");
+        user.setRoles(Collections.singleton("ROLE_USER"));
+        token = jwtUtil.generateToken(user);
+
+        UserDetails userDetails = org.springframework.security.core.userdetails.User
+            .withUsername("benchuser").password("hash").roles("USER").build();
+        userDetailsService = username -> userDetails;
+        VerifiedTokenCache tokenCache = new VerifiedTokenCache(new SimpleMeterRegistry(), false, 1);
+        TokenRevocationService revocationService = new TokenRevocationService(
+            Mockito.mock(RevokedTokenRepository.class), Mockito.mock(UserRepository.class),
+            tokenCache, new SimpleMeterRegistry(), 3600000L, 1000, 0.01);
+        filter = new JwtAuthenticationFilter(jwtUtil, userDetailsService, stateless, tokenCache, revocationService);
+    }
+
+    @Benchmark
+    public Object filter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/notes");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+
+    @Benchmark
+    public boolean previousValidation() {
+        String username = parse().getSubject();
+        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        return parse().getSubject().equals(userDetails.getUsername())
+            && !parse().getExpiration().before(new Date());
+    }
+
+    private Claims parse() {
+        return Jwts.parserBuilder()
+            .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+            .build()
+            .parseClaimsJws(token)
+            .getBody();
+    }
+}
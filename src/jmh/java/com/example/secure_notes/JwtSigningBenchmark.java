@@ -0,0 +1,77 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.entity.User;
+import com.example.secure_notes.security.JwtUtil;
+
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares the cost of issuing and verifying access tokens per signature algorithm:
+ *  - sign: JwtUtil.generateToken, i.e. building, serializing and signing the claims
+ *  - verify: JwtUtil.parseClaims, i.e. resolving the key by kid, checking the
+ *    signature and parsing the claims
+ *
+ * HS256 is an HMAC and cheap on both sides but needs the shared secret wherever
+ * tokens are verified; ES256 signing and especially verification cost more, in
+ * exchange for verifiers needing only the public key. With the verified-token cache
+ * most requests skip verification either way (see TokenCacheBenchmark).
+ *
+ * Run with: ./gradlew jmh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtSigningBenchmark {
+
+    @Param({"HS256", "ES256"})
+    private String algorithm;
+
+    private JwtUtil jwtUtil;
+    private User user;
+    private String token;
+    private Path keyFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        keyFile = Files.createTempFile("jwt-bench", ".key");
+        Files.delete(keyFile);
+
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "mySecretKeyThatIsAtLeast256BitsLongForHS256Algorithm");
+        ReflectionTestUtils.setField(jwtUtil, "expirationMillis", 3600000L);
+        ReflectionTestUtils.setField(jwtUtil, "algorithm", algorithm);
+        ReflectionTestUtils.setField(jwtUtil, "signingKeyFile", keyFile.toString());
+        ReflectionTestUtils.setField(jwtUtil, "createSigningKey", true);
+        jwtUtil.init();
+
+        user = new User();
+        user.setId(1L);
+        user.setUsername("benchuser");
+        user.setPasswordHash("hash");
+        user.setRoles(Collections.singleton("ROLE_USER"));
+        token = jwtUtil.generateToken(user);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(keyFile);
+    }
+
+    @Benchmark
+    public String sign() {
+        return jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public Claims verify() {
+        return jwtUtil.parseClaims(token);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.util.AesEncryptionUtil;
+import com.example.secure_notes.util.ParallelBatchExecutor;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Measures how decrypting a large note list scales with the number of worker threads
+ * in the ParallelBatchExecutor used by NoteService.getNotesPage. parallelism=1
+ * with maxTasks=1 is the sequential baseline.
+ *
+ * Run with: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParallelDecryptBenchmark {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    @Param({"1", "2", "4", "8"})
+    private int parallelism;
+
+    @Param({"2000"})
+    private int noteCount;
+
+    @Param({"2048"})
+    private int noteSize;
+
+    private AesEncryptionUtil aesEncryptionUtil;
+    private ParallelBatchExecutor executor;
+    private List<byte[]> encryptedNotes;
+
+    @Setup
+    public void setUp() {
+        aesEncryptionUtil = new AesEncryptionUtil();
+        ReflectionTestUtils.setField(aesEncryptionUtil, "SECRET_KEY", SECRET);
+        aesEncryptionUtil.init();
+        executor = new ParallelBatchExecutor(parallelism, 1, parallelism);
+        encryptedNotes = new ArrayList<>(noteCount);
+        for (int i = 0; i < noteCount; i++) {
+            encryptedNotes.add(aesEncryptionUtil.encryptToBytes(i + "x".repeat(noteSize)));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public List<String> decryptAll() {
+        return executor.map(encryptedNotes, aesEncryptionUtil::decrypt);
+    }
+}
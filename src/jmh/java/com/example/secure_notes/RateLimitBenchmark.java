@@ -0,0 +1,85 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.security.RateLimitFilter;
+import com.example.secure_notes.security.VerifiedTokenCache;
+import com.example.secure_notes.util.TokenBucketLimiter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Measures the per-request overhead of rate limiting, shared by four threads:
+ *  - acquire: one TokenBucketLimiter.tryAcquire on buckets spread over a number of
+ *    keys (1 key = every thread contends on the same bucket)
+ *  - filter: a request through RateLimitFilter, keyed by client IP
+ *  - baseline: the same request passed straight to the chain, to subtract from filter
+ *
+ * Limits are high enough that every request is allowed, the common case. The target
+ * is well under a microsecond per request.
+ *
+ * Run with: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class RateLimitBenchmark {
+
+    @Param({"1", "1024", "100000"})
+    private int keyCount;
+
+    private TokenBucketLimiter limiter;
+    private Long[] keys;
+    private RateLimitFilter filter;
+    private FilterChain chain;
+
+    @State(Scope.Thread)
+    public static class Client {
+        int position;
+        MockHttpServletRequest request;
+        MockHttpServletResponse response;
+
+        @Setup
+        public void setUp() {
+            request = new MockHttpServletRequest("POST", "/api/auth/login");
+            request.setRemoteAddr("10.0.0." + (int) (Thread.currentThread().getId() % 250));
+            response = new MockHttpServletResponse();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        limiter = new TokenBucketLimiter(Integer.MAX_VALUE, 1e9);
+        keys = new Long[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = (long) i + 1000;
+        }
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        filter = new RateLimitFilter(meterRegistry, new VerifiedTokenCache(meterRegistry, true, 1024),
+            true, Integer.MAX_VALUE, 1e9, Integer.MAX_VALUE, 1e9, 600000L);
+        chain = (request, response) -> { };
+    }
+
+    @Benchmark
+    public long acquire(Client client) {
+        int position = client.position++;
+        return limiter.tryAcquire(keys[(position & Integer.MAX_VALUE) % keyCount], System.nanoTime());
+    }
+
+    @Benchmark
+    public int filter(Client client) throws Exception {
+        filter.doFilter(client.request, client.response, chain);
+        return client.response.getStatus();
+    }
+
+    @Benchmark
+    public int baseline(Client client) throws Exception {
+        chain.doFilter(client.request, client.response);
+        return client.response.getStatus();
+    }
+}
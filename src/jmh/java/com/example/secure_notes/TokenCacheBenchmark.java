@@ -0,0 +1,115 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.entity.User;
+import com.example.secure_notes.repository.RevokedTokenRepository;
+import com.example.secure_notes.repository.UserRepository;
+import com.example.secure_notes.security.JwtAuthenticationFilter;
+import com.example.secure_notes.security.JwtUtil;
+import com.example.secure_notes.security.VerifiedTokenCache;
+import com.example.secure_notes.service.TokenRevocationService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Measures JwtAuthenticationFilter throughput with and without the verified-token cache
+ * under a polling workload: requests come from a population of active sessions whose
+ * activity follows a Zipf distribution, so a few clients send most requests while a
+ * long tail of tokens is seen only now and then. With a cache size below the number
+ * of sessions, the tail also exercises slot replacement.
+ *
+ * Run with: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class TokenCacheBenchmark {
+
+    private static final String SECRET = "mySecretKeyThatIsAtLeast256BitsLongForHS256Algorithm";
+
+    /*
+     * Length of the precomputed request sequence each thread cycles through.
+     */
+    private static final int SEQUENCE_LENGTH = 1 << 16;
+
+    @Param({"true", "false"})
+    private boolean cacheEnabled;
+
+    @Param({"1000", "20000"})
+    private int sessions;
+
+    @Param({"4096"})
+    private int cacheSize;
+
+    private JwtAuthenticationFilter filter;
+    private String[] authHeaders;
+    private int[] sequence;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int position;
+    }
+
+    @Setup
+    public void setUp() {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expirationMillis", 3600000L);
+        jwtUtil.init();
+
+        authHeaders = new String[sessions];
+        for (int i = 0; i < sessions; i++) {
+            User user = new User();
+            user.setId((long) i + 1);
+            user.setUsername("user" + i);
+            user.setRoles(Collections.singleton("ROLE_USER"));
+            authHeaders[i] = "Bearer " + jwtUtil.generateToken(user);
+        }
+
+        // Zipf(s = 1.1) over the sessions, via inverse transform of the cumulative weights
+        double[] cumulative = new double[sessions];
+        double total = 0;
+        for (int i = 0; i < sessions; i++) {
+            total += 1.0 / Math.pow(i + 1, 1.1);
+            cumulative[i] = total;
+        }
+        Random random = new Random(42);
+        sequence = new int[SEQUENCE_LENGTH];
+        for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            sequence[i] = Math.min(index < 0 ? -index - 1 : index, sessions - 1);
+        }
+
+        VerifiedTokenCache tokenCache = new VerifiedTokenCache(new SimpleMeterRegistry(), cacheEnabled, cacheSize);
+        TokenRevocationService revocationService = new TokenRevocationService(
+            Mockito.mock(RevokedTokenRepository.class), Mockito.mock(UserRepository.class),
+            tokenCache, new SimpleMeterRegistry(), 3600000L, 1000, 0.01);
+        filter = new JwtAuthenticationFilter(jwtUtil, username -> {
+            throw new UsernameNotFoundException("Stateless benchmark should not load users.");
+        }, true, tokenCache, revocationService);
+    }
+
+    @Benchmark
+    public Object filter(Cursor cursor) throws Exception {
+        String authHeader = authHeaders[sequence[cursor.position++ & (SEQUENCE_LENGTH - 1)]];
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/notes");
+        request.addHeader("Authorization", authHeader);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+}
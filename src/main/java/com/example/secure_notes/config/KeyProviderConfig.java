@@ -0,0 +1,50 @@
+package com.example.secure_notes.config;
+
+import com.example.secure_notes.repository.UserRepository;
+import com.example.secure_notes.util.KeyProvider;
+import com.example.secure_notes.util.LocalFileKeyProvider;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/*
+ * Configures the master key provider used for envelope encryption.
+ *
+ * The local file provider is only a default stand-in. It is selected by
+ * aes.envelope.key-provider=local (the default); to use another KeyProvider (for
+ * example one backed by a cloud KMS), set the property to a different value and define
+ * that provider as a bean.
+ */
+@Configuration
+public class KeyProviderConfig {
+
+    /*
+     * Provides the file-backed master key provider.
+     *
+     * All nodes must share the same key file, since a data key wrapped on one node has to
+     * be unwrapped on the others. The file is therefore only generated when
+     * aes.envelope.master-key-create is set, and even then only while no user has a
+     * wrapped data key; otherwise a missing file fails startup.
+     *
+     * @param masterKeyFile path of the master key file
+     * @param createMasterKey whether a missing key file may be generated
+     * @param userRepository repository used to check for existing data keys
+     * @return the local file KeyProvider
+     * @throws IllegalStateException if the file is missing and may not be generated
+     */
+    @Bean
+    @ConditionalOnProperty(name = "aes.envelope.key-provider", havingValue = "local", matchIfMissing = true)
+    public KeyProvider keyProvider(@Value("${aes.envelope.master-key-file:./secure-notes-master.key}") String masterKeyFile,
+                                   @Value("${aes.envelope.master-key-create:false}") boolean createMasterKey,
+                                   UserRepository userRepository) {
+        Path keyFile = Path.of(masterKeyFile);
+        boolean createIfMissing = createMasterKey
+            && (Files.exists(keyFile) || !userRepository.existsByWrappedDataKeyIsNotNull());
+        return new LocalFileKeyProvider(keyFile, createIfMissing);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.secure_notes.config;
+
+import com.example.secure_notes.util.AesEncryptionUtil;
+import com.example.secure_notes.util.NoteCompressor;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+ * Publishes statistics of utility classes that are not Micrometer-aware themselves.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /*
+     * Publishes note compression statistics: bytes in and out, the overall ratio, how
+     * many notes were compressed or stored as is, and the CPU time spent.
+     *
+     * @param aesEncryptionUtil the utility owning the note compressor
+     * @return a binder registering the compression meters
+     */
+    @Bean
+    public MeterBinder noteCompressionMetrics(AesEncryptionUtil aesEncryptionUtil) {
+        return registry -> {
+            NoteCompressor compressor = aesEncryptionUtil.getCompressor();
+            FunctionCounter.builder("notes.compression.bytes", compressor, NoteCompressor::getInputBytes)
+                .tag("stage", "in")
+                .baseUnit("bytes")
+                .description("Plaintext bytes compressed before encryption")
+                .register(registry);
+            FunctionCounter.builder("notes.compression.bytes", compressor, NoteCompressor::getOutputBytes)
+                .tag("stage", "out")
+                .baseUnit("bytes")
+                .description("Compressed bytes produced")
+                .register(registry);
+            Gauge.builder("notes.compression.ratio", compressor,
+                    c -> c.getInputBytes() == 0 ? 1.0 : (double) c.getOutputBytes() / c.getInputBytes())
+                .description("Compressed size as a fraction of the original size")
+                .register(registry);
+            FunctionCounter.builder("notes.compression.notes", compressor, NoteCompressor::getCompressedCount)
+                .tag("result", "compressed")
+                .description("Notes considered for compression")
+                .register(registry);
+            FunctionCounter.builder("notes.compression.notes", compressor, NoteCompressor::getSkippedCount)
+                .tag("result", "skipped")
+                .description("Notes considered for compression")
+                .register(registry);
+            FunctionCounter.builder("notes.compression.time", compressor, c -> c.getCompressNanos() / 1e9)
+                .tag("operation", "compress")
+                .baseUnit("seconds")
+                .description("CPU time spent in compression")
+                .register(registry);
+            FunctionCounter.builder("notes.compression.time", compressor, c -> c.getDecompressNanos() / 1e9)
+                .tag("operation", "decompress")
+                .baseUnit("seconds")
+                .description("CPU time spent in compression")
+                .register(registry);
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.secure_notes.config;
+
+import com.example.secure_notes.util.ParallelBatchExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/*
+ * Enables background task support for work that should not block startup or
+ * request threads, such as data migrations and periodic refresh/cleanup jobs, and
+ * provides the bounded pool used to decrypt large note lists in parallel.
+ */
+@Configuration
+@EnableAsync
+@EnableScheduling
+public class TaskConfig {
+
+    /*
+     * Provides the executor used to decrypt large note lists in parallel.
+     *
+     * @param parallelism number of worker threads (0 uses the number of available processors)
+     * @param threshold minimum number of notes decrypted in parallel
+     * @param maxTasksPerRequest maximum number of chunks one request is split into
+     * @return the note decryption executor
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ParallelBatchExecutor noteDecryptExecutor(
+            @Value("${notes.decrypt.parallelism:0}") int parallelism,
+            @Value("${notes.decrypt.parallel-threshold:64}") int threshold,
+            @Value("${notes.decrypt.max-tasks-per-request:4}") int maxTasksPerRequest) {
+        return new ParallelBatchExecutor(parallelism, threshold, maxTasksPerRequest);
+    }
+}
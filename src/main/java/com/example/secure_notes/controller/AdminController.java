@@ -0,0 +1,56 @@
+package com.example.secure_notes.controller;
+
+import com.example.secure_notes.service.RefreshTokenService;
+import com.example.secure_notes.service.TokenRevocationService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/*
+ * REST controller for administrative operations.
+ * 
+ * All endpoints require the ROLE_ADMIN authority (see SecurityConfig).
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    /*
+     * Service for revoking tokens.
+     */
+    private final TokenRevocationService revocationService;
+
+    /*
+     * Service for revoking refresh tokens.
+     */
+    private final RefreshTokenService refreshTokenService;
+
+    /*
+     * Constructs an AdminController with required dependencies.
+     * 
+     * @param revocationService service for revoking tokens
+     * @param refreshTokenService service for revoking refresh tokens
+     */
+    @Autowired
+    public AdminController(TokenRevocationService revocationService, RefreshTokenService refreshTokenService) {
+        this.revocationService = revocationService;
+        this.refreshTokenService = refreshTokenService;
+    }
+
+    /*
+     * Revokes every access and refresh token issued to a user so far, e.g. after a
+     * suspected compromise. The user has to log in again.
+     * 
+     * @param id the ID of the user
+     * @return ResponseEntity with HTTP 204 No Content, or 404 Not Found if the user does not exist
+     */
+    @PostMapping("/users/{id}/revoke-tokens")
+    public ResponseEntity<Void> revokeUserTokens(@PathVariable Long id) {
+        boolean revoked = revocationService.revokeAllForUser(id);
+        if (revoked) {
+            refreshTokenService.revokeAllForUser(id);
+        }
+        return revoked ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+}
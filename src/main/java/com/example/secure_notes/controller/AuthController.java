@@ -3,13 +3,19 @@ package com.example.secure_notes.controller;
 import com.example.secure_notes.dto.LoginRequest;
 import com.example.secure_notes.dto.SignupRequest;
 import com.example.secure_notes.dto.JwtResponse;
+import com.example.secure_notes.dto.RefreshRequest;
 import com.example.secure_notes.service.AuthService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.RejectedExecutionException;
+
 /*
  * REST controller for handling authentication endpoints.
  * 
@@ -27,14 +33,22 @@ public class AuthController {
      */
     private final AuthService authService;
 
+    /*
+     * Seconds a client is told to wait when password hashing is overloaded.
+     */
+    private final long retryAfterSeconds;
+
     /*
      * Constructs an AuthController with required dependencies.
      * 
      * @param authService the authentication service for business logic
+     * @param retryAfterSeconds Retry-After value sent when password hashing is overloaded
      */
     @Autowired
-    public AuthController(AuthService authService) {
+    public AuthController(AuthService authService,
+                          @Value("${auth.hashing.retry-after-seconds:1}") long retryAfterSeconds) {
         this.authService = authService;
+        this.retryAfterSeconds = retryAfterSeconds;
     }
 
     /*
@@ -42,7 +56,7 @@ public class AuthController {
      * 
      * @param signupRequest the registration request containing username and password
      * @return ResponseEntity with HTTP 200 OK and JWT token in body
-     * @throws RuntimeException if username is already taken (propagates from service)
+     * @throws ResponseStatusException with 409 Conflict if username is already taken (propagates from service)
      */
     @PostMapping("/signup")
     public ResponseEntity<JwtResponse> signup(@RequestBody SignupRequest signupRequest) {
@@ -63,6 +77,56 @@ public class AuthController {
         return ResponseEntity.ok(response);
     }
 
+    /*
+     * Exchanges a refresh token for a new access token and refresh token. The
+     * presented refresh token cannot be used again.
+     * 
+     * @param refreshRequest the request carrying the refresh token
+     * @return ResponseEntity with HTTP 200 OK and the new tokens, or 401 Unauthorized
+     *         if the refresh token is invalid, expired or was already used
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<JwtResponse> refresh(@RequestBody RefreshRequest refreshRequest) {
+        return authService.refresh(refreshRequest.getRefreshToken())
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+    }
+
+    /*
+     * Logs out by revoking the bearer token sent with the request, and the session's
+     * refresh token if it is sent in the body. The access token is rejected from then
+     * on, on every node, until it would have expired.
+     * 
+     * @param authHeader the Authorization header carrying the bearer token
+     * @param refreshRequest optional request carrying the session's refresh token
+     * @return ResponseEntity with HTTP 204 No Content if the token was revoked, or
+     *         401 Unauthorized if no valid token was sent
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(value = "Authorization", required = false) String authHeader,
+                                       @RequestBody(required = false) RefreshRequest refreshRequest) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        String refreshToken = refreshRequest != null ? refreshRequest.getRefreshToken() : null;
+        boolean revoked = authService.logout(authHeader.substring(7), refreshToken);
+        return revoked ? ResponseEntity.noContent().build() : ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    }
+
+    /*
+     * Answers signups and logins that were turned away because the password hashing
+     * queue is full. The client should retry after a short wait.
+     * 
+     * @param e the rejection from the password encoder
+     * @return ResponseEntity with HTTP 503 Service Unavailable and a Retry-After header
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Void> passwordHashingOverloaded(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+            .build();
+    }
+
     /*
      * Simple health check endpoint for testing controller availability.
      * 
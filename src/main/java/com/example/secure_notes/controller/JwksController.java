@@ -0,0 +1,48 @@
+package com.example.secure_notes.controller;
+
+import com.example.secure_notes.security.JwtUtil;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.Map;
+
+/*
+ * REST controller publishing the public keys that verify access tokens, so that
+ * other services can check tokens without holding any secret.
+ */
+@RestController
+public class JwksController {
+
+    /*
+     * Utility holding the JWT key ring.
+     */
+    private final JwtUtil jwtUtil;
+
+    /*
+     * Constructs a JwksController with required dependencies.
+     * 
+     * @param jwtUtil the JWT utility holding the key ring
+     */
+    @Autowired
+    public JwksController(JwtUtil jwtUtil) {
+        this.jwtUtil = jwtUtil;
+    }
+
+    /*
+     * Returns the JSON Web Key Set of the current and retired ES256 keys. The keys
+     * only change on restart, so clients may cache the response briefly.
+     * 
+     * @return ResponseEntity with the key set (no keys when tokens use HS256)
+     */
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic())
+            .body(jwtUtil.getJwks());
+    }
+}
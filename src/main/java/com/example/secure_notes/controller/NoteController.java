@@ -1,15 +1,17 @@
 package com.example.secure_notes.controller;
 
 import com.example.secure_notes.dto.CreateNoteRequest;
+import com.example.secure_notes.dto.NoteBatchOperation;
+import com.example.secure_notes.dto.NoteBatchResult;
+import com.example.secure_notes.dto.NotePage;
 import com.example.secure_notes.entity.Note;
-import com.example.secure_notes.entity.User;
-import com.example.secure_notes.repository.UserRepository;
+import com.example.secure_notes.security.UserPrincipal;
 import com.example.secure_notes.service.NoteService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -30,63 +32,116 @@ public class NoteController {
     private final NoteService noteService;
 
     /*
-     * Repository for user data access.
+     * Number of notes per page when the client does not ask for a page size.
      */
-    private final UserRepository userRepository;
+    private final int defaultPageSize;
+
+    /*
+     * Largest page size a client may ask for.
+     */
+    private final int maxPageSize;
+
+    /*
+     * Largest number of operations in one batch request.
+     */
+    private final int maxBatchSize;
 
     /*
      * Constructs a NoteController with required dependencies.
      * 
      * @param noteService service for note operations
-     * @param userRepository repository for user lookup
+     * @param defaultPageSize notes per page when no limit is given
+     * @param maxPageSize largest allowed limit; larger limits are reduced to it
+     * @param maxBatchSize largest allowed number of operations per batch request
      */
     @Autowired
-    public NoteController(NoteService noteService, UserRepository userRepository) {
+    public NoteController(NoteService noteService,
+                          @Value("${notes.page.default-size:50}") int defaultPageSize,
+                          @Value("${notes.page.max-size:200}") int maxPageSize,
+                          @Value("${notes.batch.max-size:500}") int maxBatchSize) {
         this.noteService = noteService;
-        this.userRepository = userRepository;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.maxBatchSize = maxBatchSize;
     }
     
     /*
      * Creates a new encrypted note for the authenticated user.
      * 
      * @param request the note creation request containing title and content
-     * @param userDetails the authenticated user's details (injected by Spring Security)
+     * @param principal the authenticated user (injected by Spring Security)
      * @return ResponseEntity with HTTP 200 OK and created note in body
-     * @throws RuntimeException if authenticated user not found in database
      */
     @PostMapping
-    public ResponseEntity<Note> createNote(@RequestBody CreateNoteRequest request, @AuthenticationPrincipal UserDetails userDetails) {
-        User user = userRepository.findByUsername(userDetails.getUsername()).orElseThrow(() -> new RuntimeException("User not found."));
-        Note createdNote = noteService.createNote(request.getTitle(), request.getContent(), user);
+    public ResponseEntity<Note> createNote(@RequestBody CreateNoteRequest request, @AuthenticationPrincipal UserPrincipal principal) {
+        Note createdNote = noteService.createNote(request.getTitle(), request.getContent(), principal);
         return ResponseEntity.ok(createdNote);
     }
 
     /*
-     * Retrieves all notes for the authenticated user with decrypted content.
+     * Applies a list of note creates, updates and deletes for the authenticated user,
+     * e.g. the edits a sync client collected while offline.
+     * 
+     * Each operation is reported with the status its single-note endpoint would have
+     * returned; a failing operation does not stop the others.
+     * 
+     * @param operations the operations to apply, in order
+     * @param principal the authenticated user
+     * @return ResponseEntity with HTTP 200 OK and one result per operation, or 400 Bad
+     *         Request if the list is empty or longer than notes.batch.max-size
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<NoteBatchResult>> applyBatch(@RequestBody List<NoteBatchOperation> operations,
+                                                            @AuthenticationPrincipal UserPrincipal principal) {
+        if (operations == null || operations.isEmpty() || operations.size() > maxBatchSize) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(noteService.applyBatch(operations, principal));
+    }
+
+    /*
+     * Retrieves a page of the authenticated user's notes, most recently updated first.
+     * 
+     * The response holds the page's items and an opaque next cursor; pass it back as
+     * the cursor parameter for the following page. next is null on the last page.
+     * With view=summary only id, title and timestamps are returned, without loading or
+     * decrypting any content; clients then fetch full notes through GET /api/notes/{id}.
      * 
-     * @param userDetails the authenticated user's details
-     * @return ResponseEntity with HTTP 200 OK and list of decrypted notes
-     * @throws RuntimeException if authenticated user not found in database
+     * @param view "full" (default) for decrypted notes, or "summary" for metadata only
+     * @param cursor the next cursor of the previous page, or absent for the first page
+     * @param limit the page size (default notes.page.default-size, at most notes.page.max-size)
+     * @param principal the authenticated user
+     * @return ResponseEntity with HTTP 200 OK and a page of notes or note summaries,
+     *         or 400 Bad Request for an unknown view, a limit below 1 or an invalid cursor
      */
     @GetMapping
-    public ResponseEntity<List<Note>> getAllNotes(@AuthenticationPrincipal UserDetails userDetails) {
-        User user = userRepository.findByUsername(userDetails.getUsername()).orElseThrow(() -> new RuntimeException("User not found."));
-        List<Note> notes = noteService.getAllNotesForUser(user);
-        return ResponseEntity.ok(notes);
+    public ResponseEntity<NotePage<?>> getAllNotes(@RequestParam(defaultValue = "full") String view,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(required = false) Integer limit,
+                                                   @AuthenticationPrincipal UserPrincipal principal) {
+        if (!"full".equals(view) && !"summary".equals(view)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (limit != null && limit < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = Math.min(limit != null ? limit : defaultPageSize, maxPageSize);
+        if ("summary".equals(view)) {
+            return ResponseEntity.ok(noteService.getNoteSummariesPage(principal, cursor, pageSize));
+        }
+        return ResponseEntity.ok(noteService.getNotesPage(principal, cursor, pageSize));
     }
     
     /*
      * Retrieves a specific note by ID with decrypted content.
      * 
      * @param id the ID of the note to retrieve (from path variable)
-     * @param userDetails the authenticated user's details
+     * @param principal the authenticated user
      * @return ResponseEntity with HTTP 200 OK and note, or 404 Not Found
-     * @throws RuntimeException if authenticated user not found in database
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Note> getNote(@PathVariable Long id, @AuthenticationPrincipal UserDetails userDetails) {
-        User user = userRepository.findByUsername(userDetails.getUsername()).orElseThrow(() -> new RuntimeException("User not found."));
-        Optional<Note> note = noteService.getNoteById(id, user);
+    public ResponseEntity<Note> getNote(@PathVariable Long id, @AuthenticationPrincipal UserPrincipal principal) {
+        Optional<Note> note = noteService.getNoteById(id, principal);
         return note.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
 
@@ -95,14 +150,12 @@ public class NoteController {
      * 
      * @param id the ID of the note to update
      * @param request the update request containing new title and content
-     * @param userDetails the authenticated user's details
+     * @param principal the authenticated user
      * @return ResponseEntity with HTTP 200 OK and updated note, or 404 Not Found
-     * @throws RuntimeException if authenticated user not found in database
      */
     @PutMapping("/{id}")
-    public ResponseEntity<Note> updateNote(@PathVariable Long id, @RequestBody CreateNoteRequest request, @AuthenticationPrincipal UserDetails userDetails) {
-        User user = userRepository.findByUsername(userDetails.getUsername()).orElseThrow(() -> new RuntimeException("User not found."));
-        Optional<Note> updatedNote = noteService.updateNote(id, request.getTitle(), request.getContent(), user);
+    public ResponseEntity<Note> updateNote(@PathVariable Long id, @RequestBody CreateNoteRequest request, @AuthenticationPrincipal UserPrincipal principal) {
+        Optional<Note> updatedNote = noteService.updateNote(id, request.getTitle(), request.getContent(), principal);
         return updatedNote.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
 
@@ -110,14 +163,12 @@ public class NoteController {
      * Deletes a note by ID.
      * 
      * @param id the ID of the note to delete
-     * @param userDetails the authenticated user's details
+     * @param principal the authenticated user
      * @return ResponseEntity with HTTP 204 No Content if deleted, or 404 Not Found
-     * @throws RuntimeException if authenticated user not found in database
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteNote(@PathVariable Long id, @AuthenticationPrincipal UserDetails userDetails) {
-        User user = userRepository.findByUsername(userDetails.getUsername()).orElseThrow(() -> new RuntimeException("User not found."));
-        boolean deleted = noteService.deleteNote(id, user);
+    public ResponseEntity<Void> deleteNote(@PathVariable Long id, @AuthenticationPrincipal UserPrincipal principal) {
+        boolean deleted = noteService.deleteNote(id, principal);
         return deleted ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
     }
 }
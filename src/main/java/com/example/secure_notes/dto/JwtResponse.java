@@ -2,6 +2,7 @@ package com.example.secure_notes.dto;
 
 public class JwtResponse {
     private String token;
+    private String refreshToken;
 
     public JwtResponse() {}
 
@@ -9,6 +10,11 @@ public class JwtResponse {
         this.token = token;
     }
 
+    public JwtResponse(String token, String refreshToken) {
+        this.token = token;
+        this.refreshToken = refreshToken;
+    }
+
     public String getToken() {
         return token;
     }
@@ -16,5 +22,13 @@ public class JwtResponse {
     public void setToken(String token) {
         this.token = token;
     }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
     
 }
@@ -0,0 +1,59 @@
+package com.example.secure_notes.dto;
+
+import com.example.secure_notes.entity.Note;
+
+/*
+ * The outcome of one operation of a note batch, at the same position as the operation.
+ *
+ * status is the HTTP status the single-note endpoint would have answered with: 200
+ * for a create or update, 204 for a delete, 404 if the note does not exist or is not
+ * the caller's, 400 for an invalid operation and 409 for a note already named by an
+ * earlier operation of the batch. note holds the created or updated note.
+ */
+public class NoteBatchResult {
+    private String op;
+    private Long id;
+    private int status;
+    private Note note;
+
+    public NoteBatchResult() {}
+
+    public NoteBatchResult(String op, Long id, int status, Note note) {
+        this.op = op;
+        this.id = id;
+        this.status = status;
+        this.note = note;
+    }
+
+    public String getOp() {
+        return op;
+    }
+
+    public void setOp(String op) {
+        this.op = op;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public Note getNote() {
+        return note;
+    }
+
+    public void setNote(Note note) {
+        this.note = note;
+    }
+}
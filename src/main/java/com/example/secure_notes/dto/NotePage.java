@@ -0,0 +1,39 @@
+package com.example.secure_notes.dto;
+
+import java.util.List;
+
+/*
+ * One page of a note listing.
+ *
+ * next is an opaque cursor to pass back as the cursor parameter to get the following
+ * page, or null on the last page.
+ *
+ * @param <T> the item type (full notes or note summaries)
+ */
+public class NotePage<T> {
+    private List<T> items;
+    private String next;
+
+    public NotePage() {}
+
+    public NotePage(List<T> items, String next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.secure_notes.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.Base64;
+
+/*
+ * JPA converter between raw bytes in the entity and a Base64 TEXT column.
+ *
+ * Used for the legacy notes.content column, which stored ciphertext as Base64 before
+ * note content moved to a binary (bytea) column. Reading legacy rows through this
+ * converter lets the service layer work with ciphertext bytes only.
+ */
+@Converter
+public class Base64BytesConverter implements AttributeConverter<byte[], String> {
+
+    /*
+     * Encodes entity bytes for the Base64 TEXT column.
+     *
+     * @param attribute the raw bytes (may be null)
+     * @return the Base64 string, or null if attribute is null
+     */
+    @Override
+    public String convertToDatabaseColumn(byte[] attribute) {
+        return attribute != null ? Base64.getEncoder().encodeToString(attribute) : null;
+    }
+
+    /*
+     * Decodes a Base64 TEXT column value into raw bytes.
+     *
+     * @param dbData the Base64 string from the database (may be null)
+     * @return the decoded bytes, or null if dbData is null
+     * @throws IllegalArgumentException if dbData is not valid Base64
+     */
+    @Override
+    public byte[] convertToEntityAttribute(String dbData) {
+        return dbData != null ? Base64.getDecoder().decode(dbData) : null;
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.secure_notes.entity;
 
+import com.example.secure_notes.util.AesEncryptionUtil;
+
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -10,11 +12,13 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
  * 
  * Database Mapping:
  *  Table name: "notes"
- *  Primary key: Auto-generated ID
+ *  Primary key: ID from the notes_seq sequence (allocated in blocks of 50)
  *  Foreign key: user_id (references users table)
+ *  Index: (user_id, time_updated, id), for keyset-paginated note listing
  * 
  * Security Features:
- *  Content stores AES-256 encrypted data
+ *  Content is stored AES-256 encrypted as raw bytes (bytea)
+ *  Decrypted content is only held in memory and never persisted
  *  Each note is owned by exactly one user
  *  User reference is hidden from JSON serialization
  * 
@@ -23,14 +27,19 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
  */
 
 @Entity
-@Table(name = "notes")
+@Table(name = "notes", indexes = {
+    @Index(name = "idx_notes_user_updated_id", columnList = "user_id, timeUpdated, id")
+})
 public class Note {
 
     /*
-     * The unique identifier for the note. Auto-generated by the database. 
+     * The unique identifier for the note, taken from the notes_seq sequence. Hibernate
+     * reserves IDs in blocks of 50 (pooled optimizer), so inserts need no round trip
+     * for their IDs and can be sent as JDBC batches, which IDENTITY columns prevent.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notes_seq")
+    @SequenceGenerator(name = "notes_seq", sequenceName = "notes_seq", allocationSize = 50)
     private Long id;
 
     /*
@@ -40,13 +49,31 @@ public class Note {
     private String title;
 
     /*
-     * The encrypted content of the note. 
+     * The decrypted content of the note, as returned by the API.
      * 
-     * Security: Always contains AES-256 encrypted data
+     * Security: Not persisted. The service layer fills it in after decryption.
      */
-    @Column(nullable = false, columnDefinition = "TEXT")
+    @Transient
     private String content; 
 
+    /*
+     * The encrypted content of the note, stored as raw ciphertext bytes.
+     * 
+     * Security: Always contains AES-256 encrypted data
+     */
+    @Column(name = "content_data", columnDefinition = "bytea")
+    @JsonIgnore
+    private byte[] encryptedContent;
+
+    /*
+     * The encrypted content of a note written before binary storage, read from the
+     * legacy Base64 TEXT column. Cleared when the note is rewritten or migrated.
+     */
+    @Convert(converter = Base64BytesConverter.class)
+    @Column(name = "content", columnDefinition = "TEXT")
+    @JsonIgnore
+    private byte[] legacyContent;
+
     /*
      * The user who owns this note. Represents the many-to-one relationship between notes
      * and users. 
@@ -64,10 +91,21 @@ public class Note {
     private LocalDateTime timeCreated;
 
     /*
-     * The timesttamp when the note was last updated. 
+     * The timesttamp when the note was last updated. Together with the ID it orders the
+     * note listing, so it is set on every insert and update.
      */
     private LocalDateTime timeUpdated;
 
+    /*
+     * Optimistic-locking version, incremented by Hibernate on every update. Used to key
+     * cached plaintext so a cache entry can never outlive the content it was made from.
+     * Existing rows start at 0.
+     */
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    @JsonIgnore
+    private long version;
+
     /*
      * Default constructor required by JPA. Creates an empty Note instance. 
      */
@@ -79,7 +117,7 @@ public class Note {
      * 
      * @param id the unique identifier for the note
      * @param title the title of the note (required, plaintext)
-     * @param content the encrypted content of the note (required, AES-256 encrypted)
+     * @param content the decrypted content of the note
      * @param user the user who owns this note (required)
      * @param timeCreated the timestamp when the note was created
      * @param timeUpdated the timestamp when the note was updated
@@ -132,23 +170,47 @@ public class Note {
     }
 
     /*
-     * Gets the encrypted content of this note. 
+     * Gets the decrypted content of this note. 
      * 
-     * @return the AES-256 encrypted content
+     * @return the plaintext content, or null if it has not been decrypted
      */
     public String getContent() {
         return content;
     }
 
     /*
-     * Sets the encrypted content of this note. 
+     * Sets the decrypted content of this note. This value is not persisted.
      * 
-     * @param content the AES-256 encrypted content to set (required)
+     * @param content the plaintext content to set
      */
     public void setContent(String content) {
         this.content = content;
     }
 
+    /*
+     * Gets the encrypted content of this note, falling back to the legacy Base64
+     * column for notes that have not been migrated to binary storage yet. Legacy
+     * content is returned tagged as ECB (see AesEncryptionUtil.tagLegacy).
+     * 
+     * @return the AES-256 encrypted content bytes, or null if none is stored
+     */
+    public byte[] getEncryptedContent() {
+        if (encryptedContent != null) {
+            return encryptedContent;
+        }
+        return legacyContent != null ? AesEncryptionUtil.tagLegacy(legacyContent) : null;
+    }
+
+    /*
+     * Sets the encrypted content of this note and clears any legacy Base64 copy.
+     * 
+     * @param encryptedContent the AES-256 encrypted content bytes to set (required)
+     */
+    public void setEncryptedContent(byte[] encryptedContent) {
+        this.encryptedContent = encryptedContent;
+        this.legacyContent = null;
+    }
+
     /* 
      * Gets the user who owns this note.
      * 
@@ -204,13 +266,56 @@ public class Note {
     /*
      * Sets the timestamp for when this note was last updated. 
      * 
-     * This should be updated whenever the note's title or content ismodified.
-     * The service layer should handle setting this timestamp during update operations. 
+     * This is set automatically whenever the note is inserted or updated.
      * 
      * @param timeUpdated the last update timestamp
      */
     public void setTimeUpdated(LocalDateTime timeUpdated) {
         this.timeUpdated = timeUpdated;
     }
-    
+
+    /*
+     * Gets the optimistic-locking version of this note.
+     * 
+     * @return the version, incremented on every update
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /*
+     * Sets the optimistic-locking version of this note.
+     * 
+     * Note: this is managed by Hibernate and should not normally be set by hand.
+     * 
+     * @param version the version
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /*
+     * JPA lifecycle callback method invoked before the entity is persisted. 
+     * 
+     * Sets both timeCreated and timeUpdated to the current timestamp. 
+     * 
+     * Note: This method is called by JPA and should not be invoked directly by application code. 
+     */
+    @PrePersist
+    protected void onCreate() {
+        this.timeCreated = LocalDateTime.now();
+        this.timeUpdated = this.timeCreated;
+    }
+
+    /*
+     * JPA lifecycle callback method invoked before an update is flushed. 
+     * 
+     * Sets timeUpdated to the current timestamp. 
+     * 
+     * Note: This method is called by JPA and should not be invoked directly by application code. 
+     */
+    @PreUpdate
+    protected void onUpdate() {
+        this.timeUpdated = LocalDateTime.now();
+    }
 }
@@ -0,0 +1,154 @@
+package com.example.secure_notes.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/*
+ * Entity class representing a refresh token. Maps to the "refresh_tokens" table.
+ * 
+ * Refresh tokens are opaque random strings; only their SHA-256 hash is stored. Each
+ * token can be used once: using it marks it as used and issues its successor in the
+ * same family. A token that is presented again after it was used shows that it was
+ * copied, and its whole family is revoked.
+ * 
+ * Database Mapping:
+ *  Table name: "refresh_tokens"
+ *  Primary key: Auto-generated ID
+ *  Foreign key: user_id (references users table)
+ */
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+    @Index(name = "idx_refresh_tokens_family_id", columnList = "familyId"),
+    @Index(name = "idx_refresh_tokens_expires_at", columnList = "expiresAt")
+})
+public class RefreshToken {
+
+    /*
+     * The unique identifier for the token. Auto-generated by the database.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /*
+     * SHA-256 hash of the token (Base64url). The token itself is never stored.
+     */
+    @Column(nullable = false, unique = true, length = 64)
+    private String tokenHash;
+
+    /*
+     * The user the token was issued to.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    /*
+     * Identifies the chain of tokens that descend from one login.
+     */
+    @Column(nullable = false, length = 36)
+    private String familyId;
+
+    /*
+     * When the token was issued.
+     */
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    /*
+     * When the token expires.
+     */
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    /*
+     * When the token was used (and replaced), or null if it has not been used.
+     */
+    private Instant usedAt;
+
+    /*
+     * Default constructor required by JPA.
+     */
+    public RefreshToken() {
+    }
+
+    /*
+     * Constructor for issuing a new refresh token.
+     * 
+     * @param tokenHash the SHA-256 hash of the token
+     * @param user the user the token is issued to
+     * @param familyId the token family
+     * @param createdAt when the token is issued
+     * @param expiresAt when the token expires
+     */
+    public RefreshToken(String tokenHash, User user, String familyId, Instant createdAt, Instant expiresAt) {
+        this.tokenHash = tokenHash;
+        this.user = user;
+        this.familyId = familyId;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+    }
+
+    /*
+     * Gets the unique identifier for this token.
+     * 
+     * @return the token's ID
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /*
+     * Gets the SHA-256 hash of the token.
+     * 
+     * @return the token hash
+     */
+    public String getTokenHash() {
+        return tokenHash;
+    }
+
+    /*
+     * Gets the user the token was issued to.
+     * 
+     * @return the user
+     */
+    public User getUser() {
+        return user;
+    }
+
+    /*
+     * Gets the token family.
+     * 
+     * @return the family ID
+     */
+    public String getFamilyId() {
+        return familyId;
+    }
+
+    /*
+     * Gets when the token was issued.
+     * 
+     * @return the issue time
+     */
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    /*
+     * Gets when the token expires.
+     * 
+     * @return the expiry time
+     */
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    /*
+     * Gets when the token was used.
+     * 
+     * @return the time of use, or null if unused
+     */
+    public Instant getUsedAt() {
+        return usedAt;
+    }
+}
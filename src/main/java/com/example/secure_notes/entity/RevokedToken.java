@@ -0,0 +1,87 @@
+package com.example.secure_notes.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/*
+ * Entity class representing a revoked access token. Maps to the "revoked_tokens" table.
+ * 
+ * Only the token's ID (its jti claim) is stored, never the token itself. A row is
+ * needed only until the token would have expired anyway, after which it is removed.
+ * 
+ * Database Mapping:
+ *  Table name: "revoked_tokens"
+ *  Primary key: token ID (jti)
+ */
+@Entity
+@Table(name = "revoked_tokens", indexes = {
+    @Index(name = "idx_revoked_tokens_expires_at", columnList = "expiresAt"),
+    @Index(name = "idx_revoked_tokens_revoked_at", columnList = "revokedAt")
+})
+public class RevokedToken {
+
+    /*
+     * The ID (jti claim) of the revoked token.
+     */
+    @Id
+    @Column(length = 64)
+    private String tokenId;
+
+    /*
+     * When the token expires; the row can be removed after this.
+     */
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    /*
+     * When the token was revoked.
+     */
+    @Column(nullable = false)
+    private Instant revokedAt;
+
+    /*
+     * Default constructor required by JPA.
+     */
+    public RevokedToken() {
+    }
+
+    /*
+     * Full constructor for creating a RevokedToken.
+     * 
+     * @param tokenId the ID (jti claim) of the token
+     * @param expiresAt when the token expires
+     * @param revokedAt when the token was revoked
+     */
+    public RevokedToken(String tokenId, Instant expiresAt, Instant revokedAt) {
+        this.tokenId = tokenId;
+        this.expiresAt = expiresAt;
+        this.revokedAt = revokedAt;
+    }
+
+    /*
+     * Gets the ID (jti claim) of the revoked token.
+     * 
+     * @return the token ID
+     */
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    /*
+     * Gets when the token expires.
+     * 
+     * @return the expiry time
+     */
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    /*
+     * Gets when the token was revoked.
+     * 
+     * @return the revocation time
+     */
+    public Instant getRevokedAt() {
+        return revokedAt;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.secure_notes.entity;
+
+/*
+ * The roles a user can hold, each stored as one bit of the users.role_mask column.
+ *
+ * Bits are fixed per role and must never be reused or renumbered, since they are
+ * persisted; add new roles with new bits.
+ */
+public enum Role {
+
+    ROLE_USER(0),
+    ROLE_ADMIN(1);
+
+    /*
+     * This role's bit in the role mask.
+     */
+    private final long mask;
+
+    /*
+     * Creates a role stored at a bit position.
+     *
+     * @param bit the bit position (0-62)
+     */
+    Role(int bit) {
+        this.mask = 1L << bit;
+    }
+
+    /*
+     * Gets this role's bit in the role mask.
+     *
+     * @return a mask with only this role's bit set
+     */
+    public long getMask() {
+        return mask;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.secure_notes.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+ * JPA converter between a user's role strings and the bitmask column users.role_mask.
+ *
+ * Replaces the former roles element collection, which needed a second query (against
+ * the user_roles table) for every user loaded. The entity keeps its Set<String> API;
+ * Hibernate snapshots the set through this converter, so changes to it are detected
+ * like changes to any other column. Only the names of Role constants can be stored.
+ */
+@Converter
+public class RoleSetConverter implements AttributeConverter<Set<String>, Long> {
+
+    /*
+     * Encodes role strings as a bitmask.
+     *
+     * @param attribute the role strings (may be null, which stores no roles)
+     * @return the bitmask of the roles
+     * @throws IllegalArgumentException if a role is not a Role constant
+     */
+    @Override
+    public Long convertToDatabaseColumn(Set<String> attribute) {
+        long mask = 0;
+        if (attribute != null) {
+            for (String role : attribute) {
+                mask |= Role.valueOf(role).getMask();
+            }
+        }
+        return mask;
+    }
+
+    /*
+     * Decodes a bitmask into role strings. Bits of unknown roles are ignored.
+     *
+     * @param dbData the bitmask from the database (may be null, i.e. no roles)
+     * @return a new, modifiable set of the role strings
+     */
+    @Override
+    public Set<String> convertToEntityAttribute(Long dbData) {
+        Set<String> roles = new HashSet<>();
+        if (dbData != null) {
+            for (Role role : Role.values()) {
+                if ((dbData & role.getMask()) != 0) {
+                    roles.add(role.name());
+                }
+            }
+        }
+        return roles;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.secure_notes.entity;
 
 import jakarta.persistence.*;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
@@ -20,7 +21,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
  * 
  * Relationships:
  *  One-to-Many with Note entities
- *  Roles stored as an element collection
+ *  Roles stored as a bitmask column (see Role and RoleSetConverter)
 */
 
 @Entity
@@ -46,9 +47,12 @@ public class User {
     @Column(nullable = false)
     private String passwordHash;
     /*
-     * The set of roles assigned to the user. Stored as strings (e.g., "ROLE_USER", "ROLE_ADMIN")
+     * The set of roles assigned to the user as strings (e.g., "ROLE_USER", "ROLE_ADMIN").
+     * Stored as a bitmask in the users row itself, so loading a user is a single query;
+     * only names of Role constants can be persisted.
      */
-    @ElementCollection(fetch = FetchType.EAGER)
+    @Convert(converter = RoleSetConverter.class)
+    @Column(name = "role_mask", nullable = false, columnDefinition = "bigint default 0")
     private Set<String> roles = new HashSet<>();
 
     /*
@@ -60,6 +64,22 @@ public class User {
     @JsonIgnore
     private List<Note> notes = new ArrayList<>();
 
+    /*
+     * The user's note data key, wrapped by the master key of the configured KeyProvider.
+     * Null until the user's first note is encrypted with envelope encryption.
+     */
+    @Column(name = "wrapped_data_key", columnDefinition = "bytea")
+    @JsonIgnore
+    private byte[] wrappedDataKey;
+
+    /*
+     * Tokens issued to this user before this time are rejected ("revoke all").
+     * Null if the user's tokens were never revoked this way.
+     */
+    @Column(name = "tokens_revoked_before")
+    @JsonIgnore
+    private Instant tokensRevokedBefore;
+
     /* 
      * The timestamp when the user account was created. Automatically set when the entity 
      * is first persisted to the database. 
@@ -182,6 +202,44 @@ public class User {
         this.notes = notes;
     }
 
+    /*
+     * Gets the user's wrapped note data key. 
+     * 
+     * @return the wrapped data key, or null if none has been created
+     */
+    public byte[] getWrappedDataKey() {
+        return wrappedDataKey;
+    }
+
+    /*
+     * Sets the user's wrapped note data key. 
+     * 
+     * Important: Never store an unwrapped key here. 
+     * 
+     * @param wrappedDataKey the wrapped data key to set
+     */
+    public void setWrappedDataKey(byte[] wrappedDataKey) {
+        this.wrappedDataKey = wrappedDataKey;
+    }
+
+    /*
+     * Gets the time before which this user's tokens are revoked.
+     * 
+     * @return the revocation watermark, or null if none is set
+     */
+    public Instant getTokensRevokedBefore() {
+        return tokensRevokedBefore;
+    }
+
+    /*
+     * Sets the time before which this user's tokens are revoked.
+     * 
+     * @param tokensRevokedBefore the revocation watermark
+     */
+    public void setTokensRevokedBefore(Instant tokensRevokedBefore) {
+        this.tokensRevokedBefore = tokensRevokedBefore;
+    }
+
     /*
      * Gets the timestamp when this user account was created. 
      * 
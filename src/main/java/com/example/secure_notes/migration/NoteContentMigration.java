@@ -0,0 +1,112 @@
+package com.example.secure_notes.migration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+import java.util.List;
+
+/*
+ * Migrates note ciphertext from the legacy Base64 TEXT column (notes.content) to the
+ * binary bytea column (notes.content_data). The legacy ECB ciphertext is prefixed with
+ * the AesEncryptionUtil.VERSION_ECB tag on the way, since content_data is read by its
+ * version byte.
+ *
+ * The schema change runs before the application starts serving requests. The row
+ * conversion runs in the background after startup in keyset-ordered batches, each
+ * committed on its own, so the service stays online. Notes that are not migrated yet
+ * are still readable through Note.getEncryptedContent(), and any note that is
+ * rewritten by the application moves to the binary column on its own.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class NoteContentMigration {
+
+    /*
+     * Finds the ids of the next batch of legacy rows after a keyset cursor.
+     */
+    private static final String NEXT_BATCH_SQL =
+        "SELECT id FROM notes WHERE content_data IS NULL AND content IS NOT NULL AND id > ? ORDER BY id LIMIT ?";
+
+    /*
+     * Converts the legacy rows in an id range.
+     *
+     * The content_data/content conditions are re-checked by PostgreSQL if a row was
+     * updated concurrently, so a note rewritten by the application is never
+     * overwritten with its old ciphertext.
+     */
+    private static final String MIGRATE_RANGE_SQL =
+        "UPDATE notes SET content_data = decode('04', 'hex') || decode(content, 'base64'), content = NULL " +
+        "WHERE content_data IS NULL AND content IS NOT NULL AND id BETWEEN ? AND ?";
+
+    /*
+     * JDBC access for schema changes and batch updates.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /*
+     * Number of rows converted per batch (and per transaction).
+     */
+    @Value("${notes.migration.content.batch-size:500}")
+    private int batchSize;
+
+    /*
+     * Whether the background conversion runs at startup.
+     */
+    @Value("${notes.migration.content.enabled:true}")
+    private boolean enabled;
+
+    /*
+     * Constructs the migration with its JDBC dependency.
+     *
+     * @param jdbcTemplate template for executing migration SQL
+     */
+    @Autowired
+    public NoteContentMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /*
+     * Relaxes the NOT NULL constraint on the legacy content column so new notes can be
+     * written to the binary column only. Runs once the JPA schema update has completed.
+     *
+     * @throws DataAccessException if the schema change fails
+     */
+    @PostConstruct
+    public void prepareSchema() {
+        jdbcTemplate.execute("ALTER TABLE IF EXISTS notes ALTER COLUMN content DROP NOT NULL");
+    }
+
+    /*
+     * Converts all legacy rows in batches once the application is ready.
+     *
+     * @throws DataAccessException if a batch update fails (already committed batches are kept)
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        if (!enabled) {
+            return;
+        }
+        long lastId = 0;
+        long migrated = 0;
+        List<Long> ids = jdbcTemplate.queryForList(NEXT_BATCH_SQL, Long.class, lastId, batchSize);
+        while (!ids.isEmpty()) {
+            long firstId = ids.get(0);
+            lastId = ids.get(ids.size() - 1);
+            migrated += jdbcTemplate.update(MIGRATE_RANGE_SQL, firstId, lastId);
+            ids = jdbcTemplate.queryForList(NEXT_BATCH_SQL, Long.class, lastId, batchSize);
+        }
+
+        if (migrated > 0) {
+            System.out.println("Migrated " + migrated + " notes to binary content storage");
+        }
+    }
+}
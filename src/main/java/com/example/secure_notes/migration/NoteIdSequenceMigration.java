@@ -0,0 +1,102 @@
+package com.example.secure_notes.migration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+
+/*
+ * Moves note ID generation from the notes.id identity column to the notes_seq
+ * sequence that Note now maps with a pooled generator.
+ *
+ * The JPA schema update creates notes_seq starting at 1, so it is first advanced past
+ * the highest existing ID. Then the identity is dropped and the column default is set
+ * to notes_seq, so nodes still running the old version, which insert without an ID,
+ * take their IDs from the same sequence. Each nextval reserves a distinct block of 50,
+ * so their IDs never collide with the blocks the new version allocates. Runs before
+ * the application starts serving requests and does nothing once the default is set.
+ *
+ * The steps run in one transaction that first locks notes in EXCLUSIVE mode. Inserts
+ * by old nodes wait for it, so none can take an identity value above the MAX(id) the
+ * sequence was advanced past, and a node starting at the same time finds the default
+ * already set once it gets the lock.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class NoteIdSequenceMigration {
+
+    /*
+     * JDBC access for the schema changes.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /*
+     * Runs the schema changes in a single transaction.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /*
+     * Whether the migration runs at startup.
+     */
+    @Value("${notes.migration.id-sequence.enabled:true}")
+    private boolean enabled;
+
+    /*
+     * Constructs the migration with its JDBC and transaction dependencies.
+     *
+     * @param jdbcTemplate template for executing migration SQL
+     * @param transactionTemplate template for the migration transaction
+     */
+    @Autowired
+    public NoteIdSequenceMigration(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /*
+     * Aligns notes_seq with the existing IDs and makes it the column default. Runs once
+     * the JPA schema update has created the sequence.
+     *
+     * @throws DataAccessException if a statement fails
+     */
+    @PostConstruct
+    public void migrate() {
+        if (!enabled) {
+            return;
+        }
+        if (isMigrated()) {
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("LOCK TABLE notes IN EXCLUSIVE MODE");
+            if (isMigrated()) {
+                return;
+            }
+            // Only ever moves the sequence forward, so blocks already handed out stay reserved.
+            jdbcTemplate.queryForList(
+                "SELECT setval('notes_seq', m.max_id) FROM (SELECT MAX(id) AS max_id FROM notes) m " +
+                "WHERE m.max_id > (SELECT last_value FROM notes_seq)", Long.class);
+            jdbcTemplate.execute("ALTER TABLE notes ALTER COLUMN id DROP IDENTITY IF EXISTS");
+            jdbcTemplate.execute("ALTER TABLE notes ALTER COLUMN id SET DEFAULT nextval('notes_seq')");
+            System.out.println("Moved note ID generation to the notes_seq sequence");
+        });
+    }
+
+    /*
+     * Checks whether notes.id already takes its default from notes_seq.
+     *
+     * @return true if the migration has already run
+     * @throws DataAccessException if the query fails
+     */
+    private boolean isMigrated() {
+        String columnDefault = jdbcTemplate.queryForObject(
+            "SELECT column_default FROM information_schema.columns " +
+            "WHERE table_schema = current_schema() AND table_name = 'notes' AND column_name = 'id'", String.class);
+        return columnDefault != null && columnDefault.contains("notes_seq");
+    }
+}
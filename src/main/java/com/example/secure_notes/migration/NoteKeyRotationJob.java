@@ -0,0 +1,346 @@
+package com.example.secure_notes.migration;
+
+import com.example.secure_notes.service.DataKeyService;
+import com.example.secure_notes.util.AesEncryptionUtil;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.crypto.SecretKey;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Background job that re-encrypts every note into the current format and key.
+ *
+ * Used to rotate aes.secret without downtime:
+ *  1. Deploy with the new secret as aes.secret under a new aes.key-id, the old
+ *     secret in aes.retired-keys and aes.legacy-key-id pointing at the key that wrote
+ *     untagged content. Every node can now read notes under either key.
+ *  2. Enable aes.rotation.enabled. The job walks the notes table in keyset order,
+ *     decrypts each note that is not in the current format and re-encrypts it with
+ *     the current key (the owner's data key when envelope encryption is enabled),
+ *     committing each batch together with a checkpoint.
+ *  3. Once the job has finished, the retired key can be removed from configuration.
+ *
+ * The job is throttled to a configurable number of rows per second, re-encrypts each
+ * batch with a configurable number of threads and resumes from its checkpoint after a
+ * restart. A note that is edited while the job is running is never overwritten: the
+ * update only applies if the stored ciphertext is unchanged.
+ *
+ * A note that cannot be re-encrypted (e.g. its key is not configured or its content is
+ * corrupt) is skipped and reported. If any note was skipped, the run ends with an
+ * error instead of finishing, and its checkpoint is reset so the next run scans the
+ * whole table again; retired keys must stay configured until a run finishes.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class NoteKeyRotationJob {
+
+    /*
+     * Name of this job's row in the checkpoint table.
+     */
+    private static final String JOB_NAME = "note-key-rotation";
+
+    private static final String CREATE_CHECKPOINT_TABLE_SQL =
+        "CREATE TABLE IF NOT EXISTS note_rotation_checkpoint (" +
+        "job VARCHAR(64) PRIMARY KEY, last_id BIGINT NOT NULL, updated_at TIMESTAMP NOT NULL)";
+
+    private static final String READ_CHECKPOINT_SQL =
+        "SELECT last_id FROM note_rotation_checkpoint WHERE job = ?";
+
+    private static final String SAVE_CHECKPOINT_SQL =
+        "INSERT INTO note_rotation_checkpoint (job, last_id, updated_at) VALUES (?, ?, now()) " +
+        "ON CONFLICT (job) DO UPDATE SET last_id = EXCLUDED.last_id, updated_at = EXCLUDED.updated_at";
+
+    private static final String DELETE_CHECKPOINT_SQL =
+        "DELETE FROM note_rotation_checkpoint WHERE job = ?";
+
+    private static final String NEXT_BATCH_SQL =
+        "SELECT id, user_id, content_data, content FROM notes WHERE id > ? ORDER BY id LIMIT ?";
+
+    /*
+     * Writes re-encrypted content, but only if the note was not changed since it was read.
+     */
+    private static final String UPDATE_NOTE_SQL =
+        "UPDATE notes SET content_data = ?, content = NULL " +
+        "WHERE id = ? AND content_data IS NOT DISTINCT FROM ? AND content IS NOT DISTINCT FROM ?";
+
+    /*
+     * A note row as read by the job.
+     */
+    private record NoteRow(long id, long userId, byte[] contentData, String legacyContent) {
+    }
+
+    /*
+     * The outcome of re-encrypting part of a batch: update parameters for each note to
+     * rewrite, and the number of notes that could not be re-encrypted.
+     */
+    private record Reencrypted(List<Object[]> updates, long skipped) {
+    }
+
+    /*
+     * JDBC access for reading and updating notes.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /*
+     * Commits each batch together with its checkpoint.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /*
+     * Utility for decrypting and re-encrypting note content.
+     */
+    private final AesEncryptionUtil aesEncryptionUtil;
+
+    /*
+     * Service providing per-user data keys.
+     */
+    private final DataKeyService dataKeyService;
+
+    /*
+     * Whether the job runs at startup.
+     */
+    @Value("${aes.rotation.enabled:false}")
+    private boolean enabled;
+
+    /*
+     * Number of notes read and committed per batch.
+     */
+    @Value("${aes.rotation.batch-size:200}")
+    private int batchSize;
+
+    /*
+     * Maximum number of notes processed per second.
+     */
+    @Value("${aes.rotation.rows-per-second:500}")
+    private int rowsPerSecond;
+
+    /*
+     * Number of threads re-encrypting notes within a batch.
+     */
+    @Value("${aes.rotation.parallelism:2}")
+    private int parallelism;
+
+    /*
+     * Format new content is written in; rotation needs a keyed format.
+     */
+    @Value("${aes.write-format:gcm}")
+    private String writeFormat;
+
+    /*
+     * Constructs the job with its dependencies.
+     *
+     * @param jdbcTemplate template for note queries and updates
+     * @param transactionTemplate template for per-batch transactions
+     * @param aesEncryptionUtil utility for content encryption/decryption
+     * @param dataKeyService service for per-user data keys
+     */
+    @Autowired
+    public NoteKeyRotationJob(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                              AesEncryptionUtil aesEncryptionUtil, DataKeyService dataKeyService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.aesEncryptionUtil = aesEncryptionUtil;
+        this.dataKeyService = dataKeyService;
+    }
+
+    /*
+     * Runs the rotation in the background once the application is ready, if enabled.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        if ("ecb".equalsIgnoreCase(writeFormat)) {
+            System.out.println("Key rotation skipped: aes.write-format=ecb cannot carry a key id");
+            return;
+        }
+        run();
+    }
+
+    /*
+     * Re-encrypts all notes that are not in the current format, starting from the last
+     * checkpoint. The checkpoint is removed once the whole table has been walked.
+     *
+     * @throws DataAccessException if a batch cannot be read or committed (committed
+     *         batches and the checkpoint are kept, so a later run resumes)
+     * @throws IllegalStateException if the job is interrupted while waiting, or any
+     *         note could not be re-encrypted (the next run starts from the beginning)
+     */
+    public void run() {
+        jdbcTemplate.execute(CREATE_CHECKPOINT_TABLE_SQL);
+        List<Long> checkpoint = jdbcTemplate.queryForList(READ_CHECKPOINT_SQL, Long.class, JOB_NAME);
+        long lastId = checkpoint.isEmpty() ? 0 : checkpoint.get(0);
+
+        long scanned = 0;
+        long rotated = 0;
+        long skipped = 0;
+        long startNanos = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try {
+            List<NoteRow> rows = nextBatch(lastId);
+            while (!rows.isEmpty()) {
+                Reencrypted batch = reencrypt(rows, executor);
+                List<Object[]> updates = batch.updates();
+                long batchLastId = rows.get(rows.size() - 1).id();
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (!updates.isEmpty()) {
+                        jdbcTemplate.batchUpdate(UPDATE_NOTE_SQL, updates);
+                    }
+                    jdbcTemplate.update(SAVE_CHECKPOINT_SQL, JOB_NAME, batchLastId);
+                });
+
+                lastId = batchLastId;
+                scanned += rows.size();
+                rotated += updates.size();
+                skipped += batch.skipped();
+                throttle(scanned, startNanos);
+                rows = nextBatch(lastId);
+            }
+            jdbcTemplate.update(DELETE_CHECKPOINT_SQL, JOB_NAME);
+            if (skipped > 0) {
+                String message = "Key rotation incomplete: re-encrypted " + rotated + " of " + scanned +
+                    " notes, skipped " + skipped + " that could not be re-encrypted. Keep the retired keys" +
+                    " configured, fix the skipped notes and run the rotation again.";
+                System.out.println(message);
+                throw new IllegalStateException(message);
+            }
+            System.out.println("Key rotation finished: re-encrypted " + rotated + " of " + scanned + " notes");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /*
+     * Reads the next batch of notes after a keyset cursor.
+     *
+     * @param lastId the ID of the last note already processed
+     * @return up to batchSize notes ordered by ID
+     */
+    private List<NoteRow> nextBatch(long lastId) {
+        return jdbcTemplate.query(NEXT_BATCH_SQL, (rs, rowNum) -> new NoteRow(
+            rs.getLong("id"), rs.getLong("user_id"), rs.getBytes("content_data"), rs.getString("content")),
+            lastId, batchSize);
+    }
+
+    /*
+     * Re-encrypts the notes of a batch that are not in the current format, spread over
+     * the executor's threads.
+     *
+     * @param rows the batch of notes
+     * @param executor the executor to run on
+     * @return update parameters for each note that needs to be rewritten, and the
+     *         number of notes that could not be re-encrypted
+     * @throws IllegalStateException if interrupted or a worker fails unexpectedly
+     */
+    private Reencrypted reencrypt(List<NoteRow> rows, ExecutorService executor) {
+        int threads = Math.max(1, parallelism);
+        int chunkSize = (rows.size() + threads - 1) / threads;
+        List<Future<Reencrypted>> futures = new ArrayList<>();
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            List<NoteRow> chunk = rows.subList(from, Math.min(rows.size(), from + chunkSize));
+            futures.add(executor.submit(() -> {
+                List<Object[]> updates = new ArrayList<>();
+                long skipped = 0;
+                for (NoteRow row : chunk) {
+                    try {
+                        Object[] update = reencrypt(row);
+                        if (update != null) {
+                            updates.add(update);
+                        }
+                    } catch (RuntimeException e) {
+                        System.out.println("Key rotation skipped note " + row.id() + ": " + e.getMessage());
+                        skipped++;
+                    }
+                }
+                return new Reencrypted(updates, skipped);
+            }));
+        }
+
+        List<Object[]> updates = new ArrayList<>();
+        long skipped = 0;
+        try {
+            for (Future<Reencrypted> future : futures) {
+                Reencrypted chunk = future.get();
+                updates.addAll(chunk.updates());
+                skipped += chunk.skipped();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Key rotation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Key rotation failed", e.getCause());
+        }
+        return new Reencrypted(updates, skipped);
+    }
+
+    /*
+     * Re-encrypts a single note if it is not in the current format.
+     *
+     * @param row the note to check
+     * @return update parameters, or null if the note is current or has no content
+     * @throws RuntimeException if the note cannot be decoded, decrypted or re-encrypted
+     */
+    private Object[] reencrypt(NoteRow row) {
+        byte[] encrypted = row.contentData() != null
+            ? row.contentData()
+            : row.legacyContent() != null
+                ? AesEncryptionUtil.tagLegacy(Base64.getDecoder().decode(row.legacyContent()))
+                : null;
+        if (encrypted == null) {
+            return null;
+        }
+        SecretKey writeKey = dataKeyService.isEnabled() ? dataKeyService.getDataKey(row.userId()) : null;
+        if (row.contentData() != null && aesEncryptionUtil.isCurrentFormat(encrypted, writeKey)) {
+            return null;
+        }
+        String plainText = aesEncryptionUtil.decrypt(encrypted, () -> dataKeyService.getDataKey(row.userId()));
+        return new Object[] {
+            new SqlParameterValue(Types.BINARY, aesEncryptionUtil.encryptToBytes(plainText, writeKey)),
+            row.id(),
+            new SqlParameterValue(Types.BINARY, row.contentData()),
+            new SqlParameterValue(Types.VARCHAR, row.legacyContent())
+        };
+    }
+
+    /*
+     * Sleeps as needed to keep the overall rate at or below rowsPerSecond.
+     *
+     * @param scanned the number of notes processed so far
+     * @param startNanos when the run started (System.nanoTime)
+     * @throws IllegalStateException if interrupted while sleeping
+     */
+    private void throttle(long scanned, long startNanos) {
+        if (rowsPerSecond <= 0) {
+            return;
+        }
+        long targetNanos = scanned * 1_000_000_000L / rowsPerSecond;
+        long sleepMillis = (targetNanos - (System.nanoTime() - startNanos)) / 1_000_000L;
+        if (sleepMillis > 0) {
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Key rotation interrupted", e);
+            }
+        }
+    }
+}
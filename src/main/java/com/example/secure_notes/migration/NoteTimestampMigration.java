@@ -0,0 +1,113 @@
+package com.example.secure_notes.migration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/*
+ * Fills in notes.time_updated for notes written before it was maintained.
+ *
+ * The note listing is keyset-paginated on (time_updated, id), which needs every note
+ * to have an update timestamp; notes without one are left out of the listing. They
+ * get their creation time, or the epoch if that is unknown too, so they sort after
+ * all notes with real timestamps.
+ *
+ * Runs in the background after startup in keyset-ordered batches, each committed on
+ * its own, so the service stays online. While nodes that predate the listing are
+ * still running, it is rerun periodically to pick up the notes they insert; disable
+ * it once no such node is left.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class NoteTimestampMigration {
+
+    /*
+     * Finds the ids of the next batch of notes without an update timestamp after a
+     * keyset cursor.
+     */
+    private static final String NEXT_BATCH_SQL =
+        "SELECT id FROM notes WHERE time_updated IS NULL AND id > ? ORDER BY id LIMIT ?";
+
+    /*
+     * Fills in the missing update timestamps in an id range. A note updated
+     * concurrently already has a timestamp and is not overwritten.
+     */
+    private static final String MIGRATE_RANGE_SQL =
+        "UPDATE notes SET time_updated = COALESCE(time_created, TIMESTAMP '1970-01-01 00:00:00') " +
+        "WHERE time_updated IS NULL AND id BETWEEN ? AND ?";
+
+    /*
+     * JDBC access for the batch updates.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /*
+     * Number of rows updated per batch (and per transaction).
+     */
+    @Value("${notes.migration.timestamps.batch-size:500}")
+    private int batchSize;
+
+    /*
+     * Whether the backfill runs after startup and periodically afterwards.
+     */
+    @Value("${notes.migration.timestamps.enabled:true}")
+    private boolean enabled;
+
+    /*
+     * Constructs the migration with its JDBC dependency.
+     *
+     * @param jdbcTemplate template for executing migration SQL
+     */
+    @Autowired
+    public NoteTimestampMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /*
+     * Sets the missing update timestamps in batches once the application is ready.
+     *
+     * @throws DataAccessException if a batch update fails (already committed batches are kept)
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        if (!enabled) {
+            return;
+        }
+        long lastId = 0;
+        long updated = 0;
+        List<Long> ids = jdbcTemplate.queryForList(NEXT_BATCH_SQL, Long.class, lastId, batchSize);
+        while (!ids.isEmpty()) {
+            long firstId = ids.get(0);
+            lastId = ids.get(ids.size() - 1);
+            updated += jdbcTemplate.update(MIGRATE_RANGE_SQL, firstId, lastId);
+            ids = jdbcTemplate.queryForList(NEXT_BATCH_SQL, Long.class, lastId, batchSize);
+        }
+
+        if (updated > 0) {
+            System.out.println("Set missing update timestamps of " + updated + " notes");
+        }
+    }
+
+    /*
+     * Sets the update timestamps of notes inserted since the last run, e.g. by nodes
+     * that predate the listing.
+     */
+    @Scheduled(fixedDelayString = "${notes.migration.timestamps.refresh-ms:300000}",
+               initialDelayString = "${notes.migration.timestamps.refresh-ms:300000}")
+    public void refresh() {
+        try {
+            migrate();
+        } catch (RuntimeException e) {
+            System.out.println("Failed to set missing note update timestamps: " + e.getMessage());
+        }
+    }
+}
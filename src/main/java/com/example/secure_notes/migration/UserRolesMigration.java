@@ -0,0 +1,111 @@
+package com.example.secure_notes.migration;
+
+import com.example.secure_notes.entity.Role;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/*
+ * Migrates user roles from the legacy user_roles table (the former roles element
+ * collection) to the users.role_mask bitmask column.
+ *
+ * Runs before the application starts serving requests, since a user without its
+ * migrated roles could not be authorized. Only users whose mask is still empty are
+ * updated, so the migration is idempotent. While the user_roles table exists it is
+ * rerun periodically, which picks up users signed up by nodes still running the old
+ * version; until then such a user has no roles on the new nodes. Role changes the old
+ * version makes to users that already have a mask are not carried over. Role strings
+ * that are not Role constants cannot be stored and are reported. The user_roles table
+ * is left in place; drop it once no node writes to it any more.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class UserRolesMigration {
+
+    /*
+     * JDBC access for the migration update.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /*
+     * Whether the migration runs at startup and periodically afterwards.
+     */
+    @Value("${users.migration.roles.enabled:true}")
+    private boolean enabled;
+
+    /*
+     * Constructs the migration with its JDBC dependency.
+     *
+     * @param jdbcTemplate template for executing migration SQL
+     */
+    @Autowired
+    public UserRolesMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /*
+     * Copies each user's legacy roles into its role mask. Runs once the JPA schema
+     * update has added the role_mask column.
+     *
+     * @throws DataAccessException if the update fails
+     */
+    @PostConstruct
+    public void migrate() {
+        if (!enabled) {
+            return;
+        }
+        Boolean legacyTable = jdbcTemplate.queryForObject("SELECT to_regclass('user_roles') IS NOT NULL", Boolean.class);
+        if (!Boolean.TRUE.equals(legacyTable)) {
+            return;
+        }
+
+        String maskOfRole = maskOfRoleSql();
+        int migrated = jdbcTemplate.update(
+            "UPDATE users u SET role_mask = m.mask FROM (" +
+            "SELECT user_id, bit_or(" + maskOfRole + ") AS mask FROM user_roles GROUP BY user_id) m " +
+            "WHERE u.id = m.user_id AND u.role_mask = 0 AND m.mask <> 0");
+        Integer unknown = jdbcTemplate.queryForObject(
+            "SELECT count(*) FROM user_roles WHERE " + maskOfRole + " = 0", Integer.class);
+
+        if (migrated > 0) {
+            System.out.println("Migrated roles of " + migrated + " users to the role mask column");
+        }
+        if (unknown != null && unknown > 0) {
+            System.out.println("Skipped " + unknown + " legacy user roles that are not known roles");
+        }
+    }
+
+    /*
+     * Migrates the roles of users created since the last run, e.g. by nodes still running
+     * the old version. Does nothing once the user_roles table has been dropped.
+     */
+    @Scheduled(fixedDelayString = "${users.migration.roles.refresh-ms:60000}",
+               initialDelayString = "${users.migration.roles.refresh-ms:60000}")
+    public void refresh() {
+        try {
+            migrate();
+        } catch (RuntimeException e) {
+            System.out.println("Failed to migrate user roles: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Builds the SQL expression mapping a user_roles.roles value to its role bit, or 0
+     * for unknown roles. Role names are enum constants, so they are safe to inline.
+     *
+     * @return the CASE expression
+     */
+    private static String maskOfRoleSql() {
+        StringBuilder sql = new StringBuilder("CASE roles");
+        for (Role role : Role.values()) {
+            sql.append(" WHEN '").append(role.name()).append("' THEN CAST(").append(role.getMask()).append(" AS bigint)");
+        }
+        return sql.append(" ELSE CAST(0 AS bigint) END").toString();
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.secure_notes.repository;
 
 import com.example.secure_notes.entity.Note;
-import com.example.secure_notes.entity.User;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,22 +24,90 @@ import java.util.Optional;
 @Repository
 public interface NoteRepository extends JpaRepository<Note, Long> {
     /*
-     * Retrieves all notes belonging to a specific user. 
+     * Retrieves the first page of a user's notes, most recently updated first. The user
+     * is matched on the notes' user_id column, so the user itself is never loaded.
      * 
-     * @param user the user whose notes should be retrived
-     * @return a list of all notes belonging to the user
-     * @throws IllegalArgumentException if user is null
+     * Pages are ordered by (timeUpdated, id) descending, which the
+     * (user_id, time_updated, id) index serves as a range scan. Notes without an update
+     * timestamp (inserted by nodes that predate the listing) are left out until
+     * NoteTimestampMigration fills it in; a NULL would not fit the keyset order.
+     * 
+     * @param userId the ID of the user whose notes should be retrived
+     * @param page the page size (only the first page of the request is used)
+     * @return up to the page size of the user's notes
+     * @throws IllegalArgumentException if userId is null
+     */
+    @Query("select n from Note n where n.user.id = :userId and n.timeUpdated is not null " +
+           "order by n.timeUpdated desc, n.id desc")
+    List<Note> findPageByUserId(@Param("userId") Long userId, Pageable page);
+
+    /*
+     * Retrieves the page of a user's notes that follows a keyset cursor, i.e. the notes
+     * sorting after (timeUpdated, id) in the listing order. Unlike an OFFSET, the cost
+     * does not grow with the number of notes skipped.
+     * 
+     * @param userId the ID of the user whose notes should be retrived
+     * @param timeUpdated the update timestamp of the last note on the previous page
+     * @param id the ID of the last note on the previous page
+     * @param page the page size (only the first page of the request is used)
+     * @return up to the page size of the user's notes after the cursor
+     * @throws IllegalArgumentException if userId is null
+     */
+    @Query("select n from Note n where n.user.id = :userId and (n.timeUpdated, n.id) < (:timeUpdated, :id) " +
+           "order by n.timeUpdated desc, n.id desc")
+    List<Note> findPageByUserIdAfter(@Param("userId") Long userId, @Param("timeUpdated") LocalDateTime timeUpdated,
+                                     @Param("id") Long id, Pageable page);
+
+    /*
+     * Retrieves the metadata of the first page of a user's notes, without their
+     * content. Ordered like findPageByUserId.
+     * 
+     * @param userId the ID of the user whose notes should be listed
+     * @param page the page size (only the first page of the request is used)
+     * @return id, title and timestamps of up to the page size of the user's notes
+     * @throws IllegalArgumentException if userId is null
      */
-    List<Note> findByUser(User user);
+    @Query("select n.id as id, n.title as title, n.timeCreated as timeCreated, n.timeUpdated as timeUpdated " +
+           "from Note n where n.user.id = :userId and n.timeUpdated is not null " +
+           "order by n.timeUpdated desc, n.id desc")
+    List<NoteSummary> findSummaryPageByUserId(@Param("userId") Long userId, Pageable page);
+
+    /*
+     * Retrieves the metadata of the page of a user's notes that follows a keyset
+     * cursor, without their content. Ordered like findPageByUserId.
+     * 
+     * @param userId the ID of the user whose notes should be listed
+     * @param timeUpdated the update timestamp of the last note on the previous page
+     * @param id the ID of the last note on the previous page
+     * @param page the page size (only the first page of the request is used)
+     * @return id, title and timestamps of up to the page size of the user's notes after the cursor
+     * @throws IllegalArgumentException if userId is null
+     */
+    @Query("select n.id as id, n.title as title, n.timeCreated as timeCreated, n.timeUpdated as timeUpdated " +
+           "from Note n where n.user.id = :userId and (n.timeUpdated, n.id) < (:timeUpdated, :id) " +
+           "order by n.timeUpdated desc, n.id desc")
+    List<NoteSummary> findSummaryPageByUserIdAfter(@Param("userId") Long userId, @Param("timeUpdated") LocalDateTime timeUpdated,
+                                                   @Param("id") Long id, Pageable page);
 
     /*
      * Retrieves a specific note by ID, but only if it belongs to the specified user.
      * 
      * @param id the ID of the note to retrieve
-     * @param user the user who should own the note
+     * @param userId the ID of the user who should own the note
      * @return an Optional containing the note if ofound and owned by the user
      *  or Optional.empty() if not found or not owned by the user.
-     * @throws IllegalArgumentException if id or user is null
+     * @throws IllegalArgumentException if id or userId is null
+     */
+    Optional<Note> findByIdAndUserId(Long id, Long userId);
+
+    /*
+     * Retrieves those of the given notes that belong to the specified user, in a single
+     * query. Used to check ownership of all notes of a batch at once.
+     * 
+     * @param userId the ID of the user who should own the notes
+     * @param ids the IDs of the notes to retrieve
+     * @return the notes found and owned by the user, in no particular order
+     * @throws IllegalArgumentException if userId or ids is null
      */
-    Optional<Note> findByIdAndUser(Long id, User user);
+    List<Note> findByUserIdAndIdIn(Long userId, Collection<Long> ids);
 }
@@ -0,0 +1,40 @@
+package com.example.secure_notes.repository;
+
+import java.time.LocalDateTime;
+
+/*
+ * Closed Spring Data projection of a note's metadata.
+ *
+ * Queries returning this projection select only the listed columns, so listing notes
+ * never reads the encrypted content from the database or decrypts anything.
+ */
+public interface NoteSummary {
+
+    /*
+     * Gets the note's ID.
+     *
+     * @return the note's ID
+     */
+    Long getId();
+
+    /*
+     * Gets the note's title.
+     *
+     * @return the note's title
+     */
+    String getTitle();
+
+    /*
+     * Gets when the note was created.
+     *
+     * @return the creation timestamp
+     */
+    LocalDateTime getTimeCreated();
+
+    /*
+     * Gets when the note was last updated.
+     *
+     * @return the update timestamp
+     */
+    LocalDateTime getTimeUpdated();
+}
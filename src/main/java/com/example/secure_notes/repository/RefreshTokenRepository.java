@@ -0,0 +1,74 @@
+package com.example.secure_notes.repository;
+
+import com.example.secure_notes.entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/*
+ * Repository interface for RefreshToken entity database operations.
+ */
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    /*
+     * Retrieves a refresh token and its user by the token's hash.
+     * 
+     * @param tokenHash the SHA-256 hash of the token
+     * @return an Optional containing the token with its user loaded, if found
+     */
+    @Query("SELECT r FROM RefreshToken r JOIN FETCH r.user WHERE r.tokenHash = :tokenHash")
+    Optional<RefreshToken> findByTokenHash(@Param("tokenHash") String tokenHash);
+
+    /*
+     * Marks a token as used unless it already is. Because the check and the update are
+     * one statement, only one of two concurrent uses of a token succeeds.
+     * 
+     * @param id the ID of the token
+     * @param usedAt the time of use
+     * @return 1 if the token was unused and is now marked, 0 if it was already used
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RefreshToken r SET r.usedAt = :usedAt WHERE r.id = :id AND r.usedAt IS NULL")
+    int markUsed(@Param("id") Long id, @Param("usedAt") Instant usedAt);
+
+    /*
+     * Deletes all tokens of a family.
+     * 
+     * @param familyId the token family
+     * @return the number of tokens deleted
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshToken r WHERE r.familyId = :familyId")
+    int deleteByFamilyId(@Param("familyId") String familyId);
+
+    /*
+     * Deletes all tokens of a user.
+     * 
+     * @param userId the ID of the user
+     * @return the number of tokens deleted
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshToken r WHERE r.user.id = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    /*
+     * Deletes expired tokens.
+     * 
+     * @param now tokens expiring before this time are deleted
+     * @return the number of tokens deleted
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshToken r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+}
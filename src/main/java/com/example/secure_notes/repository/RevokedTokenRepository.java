@@ -0,0 +1,40 @@
+package com.example.secure_notes.repository;
+
+import com.example.secure_notes.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/*
+ * Repository interface for RevokedToken entity database operations.
+ */
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    /*
+     * Retrieves the tokens revoked after a point in time that have not expired yet.
+     * 
+     * @param revokedAfter only tokens revoked after this time are returned
+     * @param now tokens expiring before this time are skipped
+     * @return the matching revoked tokens
+     */
+    @Query("SELECT t FROM RevokedToken t WHERE t.revokedAt > :revokedAfter AND t.expiresAt > :now")
+    List<RevokedToken> findActiveRevokedAfter(@Param("revokedAfter") Instant revokedAfter, @Param("now") Instant now);
+
+    /*
+     * Deletes the rows of tokens that have expired.
+     * 
+     * @param now tokens expiring before this time are deleted
+     * @return the number of rows deleted
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RevokedToken t WHERE t.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+}
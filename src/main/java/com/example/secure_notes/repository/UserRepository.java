@@ -1,9 +1,16 @@
 package com.example.secure_notes.repository;
 
 import com.example.secure_notes.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 /*
@@ -26,4 +33,93 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @throws IllegalArgumentException if username is null
      */
     Optional<User> findByUsername(String username);
+
+    /*
+     * Checks whether a username is taken, without loading the user.
+     * 
+     * @param username the username to check
+     * @return true if a user has the username
+     */
+    boolean existsByUsername(String username);
+
+    /*
+     * Retrieves a page of usernames in ID order, without loading the users. Pages
+     * follow a keyset cursor so all usernames can be read without holding them in
+     * memory at once.
+     * 
+     * @param afterId only users with a greater ID are returned (0 for the first page)
+     * @param page the page size (only the first page of the request is used)
+     * @return pairs of [user ID (Long), username (String)]
+     */
+    @Query("SELECT u.id, u.username FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<Object[]> findUsernamesAfter(@Param("afterId") Long afterId, Pageable page);
+
+    /*
+     * Retrieves only the wrapped note data key of a user, without loading the user.
+     * 
+     * @param id the ID of the user
+     * @return an Optional containing the wrapped key, or Optional.empty() if the user
+     *  does not exist or has no data key yet
+     */
+    @Query("SELECT u.wrappedDataKey FROM User u WHERE u.id = :id")
+    Optional<byte[]> findWrappedDataKeyById(@Param("id") Long id);
+
+    /*
+     * Checks whether any user has a wrapped note data key, i.e. whether the master key
+     * is already in use.
+     * 
+     * @return true if at least one data key has been stored
+     */
+    boolean existsByWrappedDataKeyIsNotNull();
+
+    /*
+     * Stores a wrapped note data key for a user unless one is already set. 
+     * 
+     * This makes data key creation race-free: when two requests create a key for the
+     * same user at once, only the first one is stored.
+     * 
+     * @param id the ID of the user
+     * @param wrappedDataKey the wrapped data key to store
+     * @return 1 if the key was stored, 0 if the user already had a key
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.wrappedDataKey = :wrappedDataKey WHERE u.id = :id AND u.wrappedDataKey IS NULL")
+    int setWrappedDataKeyIfAbsent(@Param("id") Long id, @Param("wrappedDataKey") byte[] wrappedDataKey);
+
+    /*
+     * Replaces a user's password hash, e.g. with one using stronger parameters,
+     * unless the hash was changed since it was read.
+     * 
+     * @param id the ID of the user
+     * @param oldHash the hash the new one replaces
+     * @param newHash the new hash of the same password
+     * @return 1 if the hash was replaced, 0 if the user does not exist or has another hash
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.passwordHash = :newHash WHERE u.id = :id AND u.passwordHash = :oldHash")
+    int replacePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+
+    /*
+     * Revokes all tokens of a user issued before a point in time.
+     * 
+     * @param id the ID of the user
+     * @param revokedBefore tokens issued before this time are no longer accepted
+     * @return 1 if the user exists, 0 otherwise
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.tokensRevokedBefore = :revokedBefore WHERE u.id = :id")
+    int setTokensRevokedBefore(@Param("id") Long id, @Param("revokedBefore") Instant revokedBefore);
+
+    /*
+     * Retrieves the token revocation watermarks set after a point in time, without
+     * loading the users.
+     * 
+     * @param since only watermarks later than this are returned
+     * @return pairs of [user ID (Long), watermark (Instant)]
+     */
+    @Query("SELECT u.id, u.tokensRevokedBefore FROM User u WHERE u.tokensRevokedBefore > :since")
+    List<Object[]> findTokenWatermarksAfter(@Param("since") Instant since);
 }
@@ -0,0 +1,85 @@
+package com.example.secure_notes.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.function.IntToLongFunction;
+
+/*
+ * Picks the BCrypt strength (log2 of the number of rounds) whose hashing time on
+ * this machine is closest to a target.
+ *
+ * A fixed strength is too slow on some hardware and too cheap on other hardware.
+ * Each step of strength doubles the hashing time, so the calibration hashes a
+ * sample password at increasing strengths, starting at the minimum, until one takes
+ * at least the target time, then keeps whichever of the last two strengths is
+ * closer to the target (by ratio). Calibration therefore costs roughly twice the
+ * target latency at startup.
+ */
+public final class BCryptCalibrator {
+
+    /*
+     * Lowest and highest strengths BCrypt supports.
+     */
+    private static final int BCRYPT_MIN_STRENGTH = 4;
+    private static final int BCRYPT_MAX_STRENGTH = 31;
+
+    private BCryptCalibrator() {
+    }
+
+    /*
+     * Measures BCrypt on this machine and picks the strength closest to the target.
+     *
+     * @param targetMillis the target time of one hash in milliseconds
+     * @param minStrength the lowest strength that may be picked
+     * @param maxStrength the highest strength that may be picked
+     * @return the calibrated strength, between minStrength and maxStrength
+     * @throws IllegalArgumentException if the range is empty or outside 4-31
+     */
+    public static int calibrate(long targetMillis, int minStrength, int maxStrength) {
+        // Warm up the BCrypt code so the first measurement is not dominated by the JIT
+        new BCryptPasswordEncoder(BCRYPT_MIN_STRENGTH).encode("calibration");
+        return pickStrength(BCryptCalibrator::measureNanos, targetMillis * 1_000_000L, minStrength, maxStrength);
+    }
+
+    /*
+     * Picks the strength closest to the target from measured hashing times.
+     *
+     * @param hashNanos measures the time of one hash at a strength, in nanoseconds
+     * @param targetNanos the target time of one hash in nanoseconds
+     * @param minStrength the lowest strength that may be picked
+     * @param maxStrength the highest strength that may be picked
+     * @return the strength whose measured time is closest to the target
+     * @throws IllegalArgumentException if the range is empty or outside 4-31
+     */
+    public static int pickStrength(IntToLongFunction hashNanos, long targetNanos, int minStrength, int maxStrength) {
+        if (minStrength < BCRYPT_MIN_STRENGTH || maxStrength > BCRYPT_MAX_STRENGTH || minStrength > maxStrength) {
+            throw new IllegalArgumentException("BCrypt strengths must satisfy 4 <= min <= max <= 31.");
+        }
+        int strength = minStrength;
+        long nanos = Math.max(1, hashNanos.applyAsLong(strength));
+        long previousNanos = nanos;
+        while (nanos < targetNanos && strength < maxStrength) {
+            previousNanos = nanos;
+            strength++;
+            nanos = Math.max(1, hashNanos.applyAsLong(strength));
+        }
+        if (strength > minStrength && nanos >= targetNanos
+                && (double) targetNanos / previousNanos < (double) nanos / targetNanos) {
+            return strength - 1;
+        }
+        return strength;
+    }
+
+    /*
+     * Times one BCrypt hash at a strength.
+     *
+     * @param strength the BCrypt strength
+     * @return the elapsed time in nanoseconds
+     */
+    private static long measureNanos(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        long start = System.nanoTime();
+        encoder.encode("calibration");
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.secure_notes.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * PasswordEncoder that runs the hashing of another encoder on a dedicated, bounded
+ * pool of threads.
+ *
+ * Password hashes are deliberately slow, so a burst of logins or signups running on
+ * request threads can occupy every core and stall unrelated requests. Here hashing
+ * is limited to a fixed number of threads; callers wait for their result, and once
+ * the pool's queue is full further calls are rejected right away with a
+ * RejectedExecutionException instead of piling up (the API answers 503 with
+ * Retry-After). Both signup (encode) and login (matches, called by the
+ * AuthenticationManager) go through this encoder.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    /*
+     * The encoder doing the actual hashing.
+     */
+    private final PasswordEncoder delegate;
+
+    /*
+     * The hashing pool, with a bounded queue and the abort policy.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /*
+     * Time spent hashing, by operation.
+     */
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+
+    /*
+     * Time calls spent queued before a hashing thread picked them up.
+     */
+    private final Timer waitTimer;
+
+    /*
+     * Calls rejected because the queue was full.
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    /*
+     * Creates the encoder, starts its pool and registers its metrics.
+     *
+     * @param delegate the encoder doing the actual hashing
+     * @param threads number of hashing threads (0 or less uses half the available processors)
+     * @param queueCapacity maximum number of calls waiting for a hashing thread
+     * @param meterRegistry registry for queue and latency metrics
+     * @throws IllegalArgumentException if queueCapacity is not positive
+     */
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Password hashing queue capacity must be positive.");
+        }
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.delegate = delegate;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = Timer.builder("auth.password.hash")
+            .tag("operation", "encode")
+            .description("Time spent hashing passwords")
+            .register(meterRegistry);
+        this.matchesTimer = Timer.builder("auth.password.hash")
+            .tag("operation", "matches")
+            .description("Time spent hashing passwords")
+            .register(meterRegistry);
+        this.waitTimer = Timer.builder("auth.password.hash.wait")
+            .description("Time password hashing calls waited for a hashing thread")
+            .register(meterRegistry);
+        Gauge.builder("auth.password.hash.queue", executor, e -> e.getQueue().size())
+            .description("Password hashing calls waiting for a hashing thread")
+            .register(meterRegistry);
+        Gauge.builder("auth.password.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+            .description("Password hashing threads busy")
+            .register(meterRegistry);
+        FunctionCounter.builder("auth.password.hash.rejected", rejected, LongAdder::sum)
+            .description("Password hashing calls rejected because the queue was full")
+            .register(meterRegistry);
+    }
+
+    /*
+     * Hashes a password on the hashing pool.
+     *
+     * @param rawPassword the password to hash
+     * @return the encoded password
+     * @throws RejectedExecutionException if the hashing queue is full
+     */
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword), encodeTimer);
+    }
+
+    /*
+     * Checks a password against its stored hash on the hashing pool.
+     *
+     * @param rawPassword the password to check
+     * @param encodedPassword the stored hash
+     * @return true if the password matches
+     * @throws RejectedExecutionException if the hashing queue is full
+     */
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword), matchesTimer);
+    }
+
+    /*
+     * Asks the delegate whether a hash should be re-encoded. This does not hash, so it
+     * runs on the calling thread.
+     *
+     * @param encodedPassword the stored hash
+     * @return true if the hash should be re-encoded
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /*
+     * Gets the number of calls waiting for a hashing thread.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /*
+     * Stops the hashing pool. Calls already queued still run to completion.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /*
+     * Runs a hashing call on the pool and waits for its result.
+     *
+     * @param task the hashing call
+     * @param timer the timer recording the hashing time
+     * @return the call's result
+     * @throws RejectedExecutionException if the queue is full
+     * @throws IllegalStateException if interrupted while waiting
+     */
+    private <T> T run(Callable<T> task, Timer timer) {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long started = System.nanoTime();
+                waitTimer.record(started - submitted, TimeUnit.NANOSECONDS);
+                try {
+                    return task.call();
+                } finally {
+                    timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new RejectedExecutionException("Too many concurrent password hashing requests.", e);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
@@ -2,16 +2,28 @@ package com.example.secure_notes.security;
 
 import com.example.secure_notes.entity.User;
 import com.example.secure_notes.repository.UserRepository;
+import com.example.secure_notes.util.BoundedTtlCache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.*;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Service;
 
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
 
 /*
  * Custom implementation of Spring Security's UserDetailsService.
+ *
+ * Loaded users are kept in a size- and TTL-bounded LRU cache keyed by username, so
+ * repeated logins (and requests with legacy tokens) do not query the user and its
+ * roles every time. Cached principals are immutable and do not implement
+ * CredentialsContainer, so Spring Security's credential erasing after login cannot
+ * wipe a shared instance. Code that changes a user's password or roles must call
+ * invalidate(); changes made through another node are picked up when the entry
+ * expires. Unknown usernames are not cached.
  */
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
@@ -22,45 +34,82 @@ public class CustomUserDetailsService implements UserDetailsService {
     private final UserRepository userRepository;
 
     /*
-     * Constructs a new CustomUserDetailsService with the required repository.
-     * 
+     * Cache of loaded principals by username.
+     */
+    private final BoundedTtlCache<String, UserPrincipal> userCache;
+
+    /*
+     * Number of invalidations so far. A load that raced with an invalidation may have
+     * read the old state, so its result is not cached.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /*
+     * Constructs a new CustomUserDetailsService and registers its cache metrics.
+     *
      * @param userRepository the repository for user data access
+     * @param meterRegistry registry for cache hit/miss metrics
+     * @param cacheSize the maximum number of users kept in memory
+     * @param cacheTtlMillis how long a loaded user stays cached
      */
     @Autowired
-    public CustomUserDetailsService(UserRepository userRepository) {
+    public CustomUserDetailsService(UserRepository userRepository, MeterRegistry meterRegistry,
+                                    @Value("${auth.user-cache.max-size:10000}") int cacheSize,
+                                    @Value("${auth.user-cache.ttl-ms:300000}") long cacheTtlMillis) {
         this.userRepository = userRepository;
+        this.userCache = new BoundedTtlCache<>(cacheSize, cacheTtlMillis);
+
+        FunctionCounter.builder("auth.user.cache.requests", userCache, BoundedTtlCache::hitCount)
+            .tag("result", "hit")
+            .description("User details cache lookups")
+            .register(meterRegistry);
+        FunctionCounter.builder("auth.user.cache.requests", userCache, BoundedTtlCache::missCount)
+            .tag("result", "miss")
+            .description("User details cache lookups")
+            .register(meterRegistry);
+        Gauge.builder("auth.user.cache.size", userCache, BoundedTtlCache::size)
+            .description("User details held in memory")
+            .register(meterRegistry);
     }
 
     /*
-     * Loads user-specific data by username for Spring Security authentication. 
-     * 
+     * Loads user-specific data by username for Spring Security authentication, from
+     * the cache if present.
+     *
      * @param username the username identifying the user whose data is required
-     * @return a fully populated UserDetails object containing user information
+     * @return a fully populated UserPrincipal containing user information, the user's ID
      *         and authorities (never null)
      * @throws UsernameNotFoundException if the user could not be found in the database
      *         or the username is null
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        if (username == null) {
+            throw new UsernameNotFoundException("User not found with username: null");
+        }
+        UserPrincipal cached = userCache.get(username);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = invalidations.get();
         User user = userRepository.findByUsername(username).orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
-    
-        return new org.springframework.security.core.userdetails.User(
-            user.getUsername(),
-            user.getPasswordHash(),
-            mapRolesToAuthorities(user.getRoles())
-        );
+
+        UserPrincipal principal = UserPrincipal.fromUser(user);
+        if (invalidations.get() == generation) {
+            userCache.put(username, principal);
+        }
+        return principal;
     }
 
     /*
-     * Converts role strings to Spring Security's SimpleGrantedAuthority objects.
-     * 
-     * @param roles the set of role strings from the User entity (e.g., ["ROLE_USER", "ROLE_ADMIN"])
-     * @return a set of SimpleGrantedAuthority objects that Spring Security
-     *         can use for authorization decisions
-     * @throws NullPointerException if roles parameter is null
+     * Drops a user from the cache, e.g. after their password or roles changed.
+     *
+     * @param username the username of the changed user (ignored if null)
      */
-    private Set<SimpleGrantedAuthority> mapRolesToAuthorities(Set<String> roles) {
-        return roles.stream().map(SimpleGrantedAuthority::new).collect(Collectors.toSet());
+    public void invalidate(String username) {
+        if (username != null) {
+            invalidations.incrementAndGet();
+            userCache.invalidate(username);
+        }
     }
-    
 }
@@ -1,10 +1,14 @@
 package com.example.secure_notes.security;
 
+import io.jsonwebtoken.Claims;
+import com.example.secure_notes.service.TokenRevocationService;
+
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -35,15 +39,39 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
      */
     private final UserDetailsService userDetailsService;
 
+    /*
+     * Whether the principal is built from the token's signed claims (no database
+     * lookup) rather than loaded through the UserDetailsService.
+     */
+    private final boolean statelessAuth;
+
+    /*
+     * Cache of tokens already verified in stateless mode.
+     */
+    private final VerifiedTokenCache tokenCache;
+
+    /*
+     * In-memory check for revoked tokens.
+     */
+    private final TokenRevocationService revocationService;
+
     /*
      * Constructs a new JwtAuthenticationFilter with required dependencies. 
      * 
      * @param jwtUtil the JWT utility for token operations
      * @param userDetailsService the service for loading user details
+     * @param statelessAuth whether to authenticate from token claims alone
+     * @param tokenCache cache of already verified tokens
+     * @param revocationService service checking for revoked tokens
      */
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService,
+                                   @Value("${jwt.stateless:true}") boolean statelessAuth,
+                                   VerifiedTokenCache tokenCache, TokenRevocationService revocationService) {
         this.jwtUtil = jwtUtil;
         this.userDetailsService = userDetailsService;
+        this.statelessAuth = statelessAuth;
+        this.tokenCache = tokenCache;
+        this.revocationService = revocationService;
     }
 
     /*
@@ -81,26 +109,68 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         final String token = authHeader.substring(7);
 
         try {
-            final String username = jwtUtil.extractUsername(token);
-
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-                if (jwtUtil.validateToken(token, userDetails)) {
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
-
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
+            // A token verified earlier is authenticated from the cache without parsing it again
+            UserPrincipal cached = statelessAuth && SecurityContextHolder.getContext().getAuthentication() == null
+                ? tokenCache.get(token, request) : null;
+            if (cached != null) {
+                authenticate(cached, request);
             } else {
-                System.out.println("Token validation FAILED");
+                authenticateToken(token, request);
             }
-        }
-        
         } catch (Exception e) {
             System.out.println("JWT processing error: " + e.getMessage());
         }
         filterChain.doFilter(request, response);
     }
-    
+
+    /*
+     * Verifies a token that is not cached and, if it is valid, authenticates its user.
+     * 
+     * @param token the compact JWT from the Authorization header
+     * @param request the HTTP servlet request being processed
+     * @throws JwtException if the token is malformed, expired or wrongly signed
+     */
+    private void authenticateToken(String token, HttpServletRequest request) {
+        // Read before the revocation check; a revocation after it keeps the token out of the cache
+        final long cacheGeneration = tokenCache.generation();
+
+        // Verify and parse the token once; all checks below work on its claims
+        final Claims claims = jwtUtil.parseClaims(token);
+        final String username = claims.getSubject();
+
+        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            // In stateless mode the signed claims identify the user; tokens without
+            // a user ID claim (issued before it existed) still go to the database
+            UserDetails userDetails = statelessAuth ? jwtUtil.toPrincipal(claims) : null;
+            if (userDetails == null) {
+                userDetails = userDetailsService.loadUserByUsername(username);
+            }
+
+            Long userId = userDetails instanceof UserPrincipal user ? user.getId() : null;
+            if (revocationService.isRevoked(claims.getId(), userId, claims.getIssuedAt())) {
+                System.out.println("Token has been revoked");
+            } else if (jwtUtil.validateClaims(claims, userDetails)) {
+                if (statelessAuth && userDetails instanceof UserPrincipal principal) {
+                    tokenCache.put(token, principal, claims.getExpiration().getTime(), cacheGeneration);
+                }
+                authenticate(userDetails, request);
+            } else {
+                System.out.println("Token validation FAILED");
+            }
+        }
+    }
+
+    /*
+     * Sets up the Spring Security authentication for a verified user.
+     * 
+     * @param userDetails the authenticated user
+     * @param request the HTTP servlet request being processed
+     */
+    private void authenticate(UserDetails userDetails, HttpServletRequest request) {
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+            userDetails, null, userDetails.getAuthorities());
+
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+    }
 }
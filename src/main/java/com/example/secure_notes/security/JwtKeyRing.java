@@ -0,0 +1,312 @@
+package com.example.secure_notes.security;
+
+import com.example.secure_notes.util.KeyFiles;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.Keys;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * The keys JWTs are signed and verified with.
+ *
+ * Holds the active signing key, identified by a key id that is written to each
+ * token's kid header, and the verification keys by key id: the active key's and
+ * those of retired keys, so that tokens signed before a rotation stay valid until
+ * they expire. All keys are parsed once when the ring is built; resolving the key
+ * of a token is a map lookup.
+ *
+ * With ES256 only the private key can sign, so verifying nodes and external
+ * services need nothing but the public keys, which are published as a JWKS. The
+ * key pair is kept in a local file (PKCS#8 private key and X.509 public key, one
+ * Base64 line each). Every node must sign with the same key pair under the same key
+ * id, so the file is only generated when explicitly allowed (a single node, or to
+ * create the file that is then provisioned to all nodes); otherwise a missing file
+ * fails startup instead of giving each node its own key under the shared kid.
+ *
+ * With HS256 the shared secret both signs and verifies. If a secret is configured
+ * in ES256 mode it still verifies HS256 tokens without a kid, i.e. tokens issued
+ * before the switch, until it is removed from the configuration.
+ */
+public class JwtKeyRing extends SigningKeyResolverAdapter {
+
+    /*
+     * The curve used by ES256.
+     */
+    private static final String CURVE = "secp256r1";
+
+    /*
+     * The algorithm of the signing key.
+     */
+    private final SignatureAlgorithm algorithm;
+
+    /*
+     * The key id written to the kid header of new tokens.
+     */
+    private final String keyId;
+
+    /*
+     * The key new tokens are signed with.
+     */
+    private final Key signingKey;
+
+    /*
+     * Verification keys by key id.
+     */
+    private final Map<String, Key> verificationKeys;
+
+    /*
+     * HMAC key for tokens without a kid, or null if none are accepted.
+     */
+    private final Key legacyKey;
+
+    /*
+     * Builds a key ring.
+     *
+     * @param algorithm the signature algorithm, "HS256" or "ES256"
+     * @param keyId the key id of the active key
+     * @param secret the HS256 secret; required for HS256, optional for ES256
+     * @param keyFile the ES256 key pair file (ignored for HS256)
+     * @param createKeyFile whether to generate the ES256 key pair file if it is missing
+     * @param retiredKeys ES256 public keys of earlier signing keys, as
+     *        "kid:Base64 X.509 key,kid:Base64 X.509 key" (may be empty)
+     * @throws IllegalArgumentException if the algorithm is not supported, a key id is
+     *         missing or duplicated, or a retired key cannot be parsed
+     * @throws IllegalStateException if the key file is missing and may not be created,
+     *         or cannot be read or created
+     * @throws WeakKeyException if the secret is shorter than 256 bits
+     */
+    public JwtKeyRing(String algorithm, String keyId, String secret, Path keyFile, boolean createKeyFile,
+                      String retiredKeys) {
+        if (keyId == null || keyId.isBlank()) {
+            throw new IllegalArgumentException("jwt.key-id must not be empty.");
+        }
+        this.keyId = keyId.trim();
+        Map<String, Key> keys = new LinkedHashMap<>();
+        Key hmacKey = secret == null || secret.isEmpty() ? null : Keys.hmacShaKeyFor(secret.getBytes());
+
+        if ("HS256".equalsIgnoreCase(algorithm)) {
+            if (hmacKey == null) {
+                throw new IllegalArgumentException("jwt.secret is required for HS256.");
+            }
+            this.algorithm = SignatureAlgorithm.HS256;
+            this.signingKey = hmacKey;
+            keys.put(this.keyId, hmacKey);
+        } else if ("ES256".equalsIgnoreCase(algorithm)) {
+            KeyPair keyPair = loadOrCreate(keyFile, createKeyFile);
+            this.algorithm = SignatureAlgorithm.ES256;
+            this.signingKey = keyPair.getPrivate();
+            keys.put(this.keyId, keyPair.getPublic());
+            if (retiredKeys != null && !retiredKeys.isBlank()) {
+                for (String entry : retiredKeys.split(",")) {
+                    int separator = entry.indexOf(':');
+                    if (separator <= 0) {
+                        throw new IllegalArgumentException("jwt.retired-keys entries must be kid:public-key.");
+                    }
+                    String retiredId = entry.substring(0, separator).trim();
+                    if (keys.putIfAbsent(retiredId, publicKey(entry.substring(separator + 1).trim())) != null) {
+                        throw new IllegalArgumentException("Duplicate JWT key id: " + retiredId);
+                    }
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("jwt.algorithm must be HS256 or ES256.");
+        }
+        this.verificationKeys = Collections.unmodifiableMap(keys);
+        this.legacyKey = hmacKey;
+    }
+
+    /*
+     * Gets the algorithm new tokens are signed with.
+     *
+     * @return the signature algorithm
+     */
+    public SignatureAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /*
+     * Gets the key id written to new tokens.
+     *
+     * @return the active key id
+     */
+    public String getKeyId() {
+        return keyId;
+    }
+
+    /*
+     * Gets the key new tokens are signed with.
+     *
+     * @return the HMAC secret key or the EC private key
+     */
+    public Key getSigningKey() {
+        return signingKey;
+    }
+
+    /*
+     * Picks the key that verifies a token, by its kid and alg headers. The key must
+     * match the header's algorithm, so a token cannot make an EC public key be used
+     * as an HMAC secret or the other way round.
+     *
+     * @param header the token's header
+     * @param claims the token's (not yet verified) claims
+     * @return the verification key
+     * @throws UnsupportedJwtException if no key of the token's algorithm has its kid
+     */
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        String kid = header.getKeyId();
+        Key key = kid != null ? verificationKeys.get(kid) : legacyKey;
+        SignatureAlgorithm headerAlgorithm = SignatureAlgorithm.forName(header.getAlgorithm());
+        if (key == null || !headerAlgorithm.getFamilyName().equals(familyOf(key))) {
+            throw new UnsupportedJwtException("No " + header.getAlgorithm() + " key for kid " + kid);
+        }
+        return key;
+    }
+
+    /*
+     * Lists the public verification keys as a JSON Web Key Set (RFC 7517). HMAC keys
+     * are secret and never listed.
+     *
+     * @return a map with a "keys" list, ready to be serialized as JSON
+     */
+    public Map<String, Object> toJwks() {
+        List<Map<String, Object>> keys = new ArrayList<>();
+        for (Map.Entry<String, Key> entry : verificationKeys.entrySet()) {
+            if (entry.getValue() instanceof ECPublicKey publicKey) {
+                Map<String, Object> jwk = new LinkedHashMap<>();
+                jwk.put("kty", "EC");
+                jwk.put("crv", "P-256");
+                jwk.put("use", "sig");
+                jwk.put("alg", SignatureAlgorithm.ES256.getValue());
+                jwk.put("kid", entry.getKey());
+                jwk.put("x", coordinate(publicKey.getW().getAffineX()));
+                jwk.put("y", coordinate(publicKey.getW().getAffineY()));
+                keys.add(jwk);
+            }
+        }
+        return Map.of("keys", keys);
+    }
+
+    /*
+     * Names the signature family a key belongs to.
+     *
+     * @param key a verification key
+     * @return "HMAC" for secret keys, "ECDSA" for EC public keys
+     */
+    private static String familyOf(Key key) {
+        return key instanceof ECPublicKey ? "ECDSA" : "HMAC";
+    }
+
+    /*
+     * Encodes an EC point coordinate as the fixed-length (32 byte) Base64url value a
+     * JWK uses.
+     *
+     * @param value the coordinate
+     * @return the Base64url-encoded coordinate
+     */
+    private static String coordinate(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        byte[] fixed = new byte[32];
+        int length = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - length, fixed, 32 - length, length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(fixed);
+    }
+
+    /*
+     * Parses a Base64-encoded X.509 EC public key.
+     *
+     * @param encoded the encoded key
+     * @return the public key
+     * @throws IllegalArgumentException if the key cannot be parsed
+     */
+    private static PublicKey publicKey(String encoded) {
+        try {
+            return KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(encoded)));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid EC public key in jwt.retired-keys.", e);
+        }
+    }
+
+    /*
+     * Reads the ES256 key pair file, creating it with a fresh key pair if it is missing
+     * and that is allowed.
+     *
+     * @param keyFile the path of the key pair file
+     * @param createKeyFile whether a missing file may be created
+     * @return the key pair
+     * @throws IllegalStateException if the file is missing and may not be created, cannot
+     *         be read or created, or holds invalid keys
+     */
+    private static KeyPair loadOrCreate(Path keyFile, boolean createKeyFile) {
+        try {
+            if (Files.notExists(keyFile)) {
+                if (!createKeyFile) {
+                    throw new IllegalStateException("JWT key file not found: " + keyFile.toAbsolutePath() +
+                        ". Provision the same key file on every node, or set jwt.signing-key-create=true" +
+                        " to generate it (single node or first start only).");
+                }
+                create(keyFile);
+            }
+            String[] lines = Files.readString(keyFile, StandardCharsets.US_ASCII).trim().split("\\s+");
+            if (lines.length != 2) {
+                throw new IllegalStateException("JWT key file must hold a private and a public key: " + keyFile);
+            }
+            KeyFactory keyFactory = KeyFactory.getInstance("EC");
+            PrivateKey privateKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(lines[0])));
+            PublicKey publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(lines[1])));
+            return new KeyPair(publicKey, privateKey);
+        } catch (IOException | GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Unable to load JWT key file: " + keyFile, e);
+        }
+    }
+
+    /*
+     * Writes a new P-256 key pair to the given file. If another process creates the
+     * file first, its key pair is kept.
+     *
+     * @param keyFile the path of the key pair file
+     * @throws IOException if the file cannot be written
+     */
+    private static void create(Path keyFile) throws IOException {
+        String encoded;
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec(CURVE));
+            KeyPair keyPair = generator.generateKeyPair();
+            Base64.Encoder encoder = Base64.getEncoder();
+            encoded = encoder.encodeToString(keyPair.getPrivate().getEncoded()) + "\n"
+                + encoder.encodeToString(keyPair.getPublic().getEncoded()) + "\n";
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to generate JWT key pair", e);
+        }
+        if (KeyFiles.createIfAbsent(keyFile, encoded)) {
+            System.out.println("Generated a new JWT signing key pair in " + keyFile.toAbsolutePath());
+        }
+    }
+}
@@ -3,25 +3,73 @@ package com.example.secure_notes.security;
 import com.example.secure_notes.entity.User;
 
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.file.Path;
 import java.util.*;
-import java.security.Key;
 
 /*
  * Utility class for JWT operations. 
+ * 
+ * Tokens are signed with ES256 (a key pair in a local file, whose public keys are
+ * published at /.well-known/jwks.json) or HS256 (a shared secret), and carry the
+ * signing key's id in their kid header; see JwtKeyRing.
  */
 @Component
 public class JwtUtil {
+    /*
+     * Claim holding the user's database ID.
+     */
+    public static final String USER_ID_CLAIM = "uid";
+
+    /*
+     * Claim holding the user's role strings.
+     */
+    public static final String ROLES_CLAIM = "roles";
+
     /*
      * The secret key used for signing JWT tokens. Minimum 256 bits for HS256.
+     * Optional with ES256, where it only verifies tokens issued before the switch.
      */
-    @Value("${jwt.secret}")
+    @Value("${jwt.secret:}")
     private String secret;
 
+    /*
+     * The signature algorithm of new tokens, "ES256" or "HS256".
+     */
+    @Value("${jwt.algorithm:HS256}")
+    private String algorithm = "HS256";
+
+    /*
+     * The key id of the active signing key, written to the kid header.
+     */
+    @Value("${jwt.key-id:1}")
+    private String keyId = "1";
+
+    /*
+     * The ES256 key pair file, shared by all nodes.
+     */
+    @Value("${jwt.signing-key-file:./secure-notes-jwt.key}")
+    private String signingKeyFile = "./secure-notes-jwt.key";
+
+    /*
+     * Whether a missing ES256 key pair file is generated. Only for a single node or to
+     * create the file that is then provisioned to every node.
+     */
+    @Value("${jwt.signing-key-create:false}")
+    private boolean createSigningKey;
+
+    /*
+     * ES256 public keys of earlier signing keys, as "kid:key,kid:key", that still
+     * verify tokens issued before a key rotation.
+     */
+    @Value("${jwt.retired-keys:}")
+    private String retiredKeys = "";
+
     /*
      * The token expiration time in milliseconds.
      */
@@ -29,16 +77,40 @@ public class JwtUtil {
     private long expirationMillis;
 
     /*
-     * Generates a cryptographic signing key from the secret. 
-     * 
-     * Converts the string secret into a proper HMAC-SHA256 key for signing 
-     * and verifying JWT tokens. 
+     * Signing key and verification keys by key id, built once in init().
+     */
+    private JwtKeyRing keyRing;
+
+    /*
+     * Thread-safe parser that verifies signatures with the key ring's key for each
+     * token's kid, built once in init().
+     */
+    private JwtParser parser;
+
+    /*
+     * Loads the signing and verification keys and builds the parser that verifies
+     * tokens with them. Both are immutable and shared by all requests.
      * 
-     * @return a Key suitable for HMAC-SHA256 signing
+     * @throws IllegalArgumentException if the algorithm or a key is invalid
+     * @throws IllegalStateException if the ES256 key file is missing and may not be
+     *         created, or cannot be read or created
      * @throws WeakKeyException if secret is too short
      */
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    @PostConstruct
+    public void init() {
+        keyRing = new JwtKeyRing(algorithm, keyId, secret, Path.of(signingKeyFile), createSigningKey, retiredKeys);
+        parser = Jwts.parserBuilder()
+        .setSigningKeyResolver(keyRing)
+        .build();
+    }
+
+    /*
+     * Gets the public verification keys, for the JWKS endpoint.
+     * 
+     * @return the JSON Web Key Set (empty with HS256, whose key is secret)
+     */
+    public Map<String, Object> getJwks() {
+        return keyRing.toJwks();
     }
 
     /*
@@ -50,10 +122,30 @@ public class JwtUtil {
      */
     public String generateToken(User user) {
         Map<String, Object> claims = new HashMap<>();
-        claims.put("roles", user.getRoles());
+        claims.put(ROLES_CLAIM, user.getRoles());
+        claims.put(USER_ID_CLAIM, user.getId());
         return createToken(claims, user.getUsername());
     }
 
+    /*
+     * Generates a JWT for an authenticated principal, e.g. the one loaded at login, so
+     * that the user does not have to be loaded again.
+     * 
+     * @param principal the principal for whom to generate the token
+     * @return a signed JWT token string
+     * @throws IllegalArgumentException if principal or its username is null
+     */
+    public String generateToken(UserPrincipal principal) {
+        List<String> roles = new ArrayList<>();
+        for (GrantedAuthority authority : principal.getAuthorities()) {
+            roles.add(authority.getAuthority());
+        }
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(ROLES_CLAIM, roles);
+        claims.put(USER_ID_CLAIM, principal.getId());
+        return createToken(claims, principal.getUsername());
+    }
+
     /*
      * Creates a JWT token with the specified claims and subject.
      * 
@@ -63,7 +155,9 @@ public class JwtUtil {
      * Token Structure Created:
      *  {
      *      "roles": [...],
+     *      "uid": 42,
      *      "sub": "username",
+     *      "jti": "random token ID",
      *      "iat":1682505600,
      *      "exp":1682592000
      *  }
@@ -76,9 +170,11 @@ public class JwtUtil {
         return Jwts.builder()
         .setClaims(claims)
         .setSubject(subject)
+        .setId(UUID.randomUUID().toString())
         .setIssuedAt(new Date(System.currentTimeMillis()))
         .setExpiration(new Date(System.currentTimeMillis() + expirationMillis))
-        .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+        .setHeaderParam(JwsHeader.KEY_ID, keyRing.getKeyId())
+        .signWith(keyRing.getSigningKey(), keyRing.getAlgorithm())
         .compact();
     }
 
@@ -94,7 +190,7 @@ public class JwtUtil {
      * @throws UnsupportedJwtException if token format is unsupported
      */
     public String extractUsername(String token) {
-        return extractAllClaims(token).getSubject();
+        return parseClaims(token).getSubject();
     }
 
     /*
@@ -107,7 +203,7 @@ public class JwtUtil {
      * @throws SignatureException if signature is invalid
      */
     public Date extractExpiration(String token) {
-        return extractAllClaims(token).getExpiration();
+        return parseClaims(token).getExpiration();
     }
 
     /*
@@ -121,8 +217,8 @@ public class JwtUtil {
      * @throws SignatureException if signature is invalid
      */
     public boolean validateToken(String token, User user) {
-        final String username = extractUsername(token);
-        return (username.equals(user.getUsername()) && !isTokenExpired(token));
+        final Claims claims = parseClaims(token);
+        return (claims.getSubject().equals(user.getUsername()) && !isTokenExpired(claims));
     }
 
     /*
@@ -133,23 +229,57 @@ public class JwtUtil {
      * @return true if token is valid for the user, false otherwise
      */
     public boolean validateToken(String token, UserDetails userDetails) {
-        String username = extractUsername(token);
-        return username != null && username.equals(userDetails.getUsername()) && !isTokenExpired(token);
+        return validateClaims(parseClaims(token), userDetails);
+    }
+
+    /*
+     * Validates already verified token claims against Spring Security UserDetails,
+     * so that a request's token only has to be parsed once.
+     * 
+     * @param claims the claims returned by parseClaims
+     * @param userDetails the Spring Security UserDetails to validate against
+     * @return true if the claims belong to the user and have not expired, false otherwise
+     */
+    public boolean validateClaims(Claims claims, UserDetails userDetails) {
+        String username = claims.getSubject();
+        return username != null && username.equals(userDetails.getUsername()) && !isTokenExpired(claims);
+    }
+
+    /*
+     * Builds the authenticated principal directly from verified token claims, without
+     * a database lookup. Tokens issued before the user ID claim was added yield null.
+     * 
+     * @param claims the claims returned by parseClaims
+     * @return a principal with the user's ID, username and roles, or null if the
+     *         claims do not identify the user by ID
+     */
+    public UserPrincipal toPrincipal(Claims claims) {
+        Number userId = claims.get(USER_ID_CLAIM, Number.class);
+        Object roles = claims.get(ROLES_CLAIM);
+        if (userId == null || claims.getSubject() == null || !(roles instanceof Collection<?> roleList)) {
+            return null;
+        }
+        List<String> roleNames = new ArrayList<>(roleList.size());
+        for (Object role : roleList) {
+            roleNames.add(String.valueOf(role));
+        }
+        return new UserPrincipal(userId.longValue(), claims.getSubject(), null, roleNames);
     }
 
     /*
-     * Checks if a JWT token has expired. 
+     * Checks if token claims have expired. 
      * 
-     * @param token the JWT token to check
+     * @param claims the claims of the JWT token to check
      * @return true if token has expired, false otherwise
      */
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
 
     }
 
     /*
-     * Extracts all claims from a JWT token.
+     * Verifies a JWT token's signature and expiry and parses its claims. Callers that
+     * need several claims of a token should parse it once with this method.
      * 
      * @param token the JWT token to parse
      * @return the Claims object containing all token claims
@@ -158,11 +288,7 @@ public class JwtUtil {
      * @throws SignatureException if signature verification fails
      * @throws UnsupportedJwtException if token format is unsupported
      */
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-        .setSigningKey(getSigningKey())
-        .build()
-        .parseClaimsJws(token)
-        .getBody();
+    public Claims parseClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
     }
 }
@@ -0,0 +1,191 @@
+package com.example.secure_notes.security;
+
+import com.example.secure_notes.util.TokenBucketLimiter;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Rate limiting filter that runs ahead of JwtAuthenticationFilter, so that abusive
+ * clients are turned away before any token is verified or any database work is done.
+ *
+ * Requests fall into two endpoint classes with their own limits:
+ *  - auth: login, signup and refresh, limited per client IP (they carry no user)
+ *  - notes: the note API, limited per user when the request's token is already in
+ *    the verified-token cache, otherwise per client IP
+ * Other paths are not limited. A refused request gets 429 Too Many Requests with a
+ * Retry-After header.
+ *
+ * Each class has a TokenBucketLimiter; buckets that have been full (unused) for
+ * ratelimit.idle-ms are dropped periodically. Behind a reverse proxy the client IP
+ * is only correct if forwarded headers are honored (server.forward-headers-strategy).
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    /*
+     * Whether requests are limited at all.
+     */
+    private final boolean enabled;
+
+    /*
+     * Limiter for the auth endpoint class.
+     */
+    private final TokenBucketLimiter authLimiter;
+
+    /*
+     * Limiter for the notes endpoint class.
+     */
+    private final TokenBucketLimiter notesLimiter;
+
+    /*
+     * Cache of verified tokens, used to key note requests by user.
+     */
+    private final VerifiedTokenCache tokenCache;
+
+    /*
+     * How long a bucket must have been full before it is dropped, in nanoseconds.
+     */
+    private final long idleNanos;
+
+    /*
+     * Requests refused, by endpoint class.
+     */
+    private final LongAdder authRejected = new LongAdder();
+    private final LongAdder notesRejected = new LongAdder();
+
+    /*
+     * Constructs the filter and registers its metrics.
+     *
+     * @param meterRegistry registry for rejection and bucket count metrics
+     * @param tokenCache cache of verified tokens, used to identify users
+     * @param enabled whether requests are limited
+     * @param authCapacity largest burst of auth requests per client IP
+     * @param authRefillPerSecond sustained auth requests per second per client IP
+     * @param notesCapacity largest burst of note requests per user or client IP
+     * @param notesRefillPerSecond sustained note requests per second per user or client IP
+     * @param idleMillis how long an unused bucket is kept
+     */
+    @Autowired
+    public RateLimitFilter(MeterRegistry meterRegistry, VerifiedTokenCache tokenCache,
+                           @Value("${ratelimit.enabled:true}") boolean enabled,
+                           @Value("${ratelimit.auth.capacity:10}") int authCapacity,
+                           @Value("${ratelimit.auth.refill-per-second:1}") double authRefillPerSecond,
+                           @Value("${ratelimit.notes.capacity:100}") int notesCapacity,
+                           @Value("${ratelimit.notes.refill-per-second:20}") double notesRefillPerSecond,
+                           @Value("${ratelimit.idle-ms:600000}") long idleMillis) {
+        this.enabled = enabled;
+        this.tokenCache = tokenCache;
+        this.authLimiter = new TokenBucketLimiter(authCapacity, authRefillPerSecond);
+        this.notesLimiter = new TokenBucketLimiter(notesCapacity, notesRefillPerSecond);
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+
+        FunctionCounter.builder("http.ratelimit.rejected", authRejected, LongAdder::sum)
+            .tag("endpoint", "auth")
+            .description("Requests refused by the rate limiter")
+            .register(meterRegistry);
+        FunctionCounter.builder("http.ratelimit.rejected", notesRejected, LongAdder::sum)
+            .tag("endpoint", "notes")
+            .description("Requests refused by the rate limiter")
+            .register(meterRegistry);
+        Gauge.builder("http.ratelimit.buckets", authLimiter, TokenBucketLimiter::size)
+            .tag("endpoint", "auth")
+            .description("Rate limit buckets held in memory")
+            .register(meterRegistry);
+        Gauge.builder("http.ratelimit.buckets", notesLimiter, TokenBucketLimiter::size)
+            .tag("endpoint", "notes")
+            .description("Rate limit buckets held in memory")
+            .register(meterRegistry);
+    }
+
+    /*
+     * Takes a token for the request's endpoint class and key, or refuses the request.
+     *
+     * @param request the HTTP servlet request being processed
+     * @param response the HTTP servlet response to be sent
+     * @param filterChain the filter chain to continue with if the request is allowed
+     * @throws ServletException if a servlet-specific error occurs during filtering
+     * @throws IOException if an I/O error occurs during filtering
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String path = request.getRequestURI();
+        long waitNanos = 0;
+        if (path.startsWith("/api/notes")) {
+            waitNanos = notesLimiter.tryAcquire(notesKey(request), System.nanoTime());
+            if (waitNanos > 0) {
+                notesRejected.increment();
+            }
+        } else if (path.equals("/api/auth/login") || path.equals("/api/auth/signup") || path.equals("/api/auth/refresh")) {
+            waitNanos = authLimiter.tryAcquire(request.getRemoteAddr(), System.nanoTime());
+            if (waitNanos > 0) {
+                authRejected.increment();
+            }
+        }
+
+        if (waitNanos > 0) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L))));
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /*
+     * Skips requests that are never limited: everything when limiting is disabled,
+     * and CORS preflight requests.
+     *
+     * @param request the HTTP servlet request
+     * @return true if the filter should not run for the request
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || "OPTIONS".equals(request.getMethod());
+    }
+
+    /*
+     * Drops buckets that have not been used for ratelimit.idle-ms.
+     */
+    @Scheduled(fixedDelayString = "${ratelimit.idle-ms:600000}", initialDelayString = "${ratelimit.idle-ms:600000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        authLimiter.evictIdle(now, idleNanos);
+        notesLimiter.evictIdle(now, idleNanos);
+    }
+
+    /*
+     * Picks the bucket key of a note request: the user ID if the bearer token was
+     * already verified (and cached), otherwise the client IP. An unverified token is
+     * never trusted to name a user, so a client cannot drain another user's bucket.
+     *
+     * @param request the HTTP servlet request
+     * @return the user ID (Long) or the client IP (String)
+     */
+    private Object notesKey(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            UserPrincipal principal = tokenCache.get(authHeader.substring(7), request);
+            if (principal != null) {
+                return principal.getId();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
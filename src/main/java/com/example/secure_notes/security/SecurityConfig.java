@@ -1,7 +1,11 @@
 package com.example.secure_notes.security;
 
 import java.util.Arrays;
+import java.util.Map;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -13,7 +17,7 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -38,23 +42,28 @@ public class SecurityConfig {
      * 
      * @param http the HttpSecurity to configure
      * @param jwtAuthenticationFilter the custom JWT filter to validate tokens
+     * @param rateLimitFilter the rate limiter, run before tokens are validated
      * @return the configured SecurityFilterChain
      * @throws Exception if configuration fails
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtAuthenticationFilter jwtAuthenticationFilter) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtAuthenticationFilter jwtAuthenticationFilter,
+                                                   RateLimitFilter rateLimitFilter) throws Exception {
         return http
         .cors(cors -> cors.configurationSource(corsConfigurationSourch()))
         .csrf(csrf -> csrf.disable())
         .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
         .authorizeHttpRequests(auth -> auth
         .requestMatchers("/api/auth/**").permitAll()
+        .requestMatchers("/api/admin/**").hasRole("ADMIN")
         .requestMatchers("/api/health").permitAll()
+        .requestMatchers("/.well-known/jwks.json").permitAll()
         .requestMatchers("/", "/index.html").permitAll()
         .requestMatchers("/swagger-ui/**").permitAll()
         .requestMatchers("/v3/api-docs/**").permitAll()
         .anyRequest().authenticated())
         .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+        .addFilterBefore(rateLimitFilter, JwtAuthenticationFilter.class)
         .build();
     }
 
@@ -84,13 +93,40 @@ public class SecurityConfig {
     /*
      * Provides the password encoder for hasing and verifying passwords.
      * 
-     * Uses BCrypt hashing algorithm with a default strength factor of 10 rounds. 
+     * Uses BCrypt hashing algorithm with a strength calibrated at startup so that one
+     * hash takes about auth.bcrypt.target-ms on this machine (auth.bcrypt.strength
+     * fixes it instead). New hashes are stored as "{bcrypt}..." through a
+     * DelegatingPasswordEncoder; hashes stored without that prefix, or with a lower
+     * strength, are reported by upgradeEncoding and re-hashed on the next login.
+     * Hashing runs on a bounded pool of its own, so that bursts of logins and
+     * signups cannot take every core from the rest of the API.
      * 
-     * @return a BCryptPasswordEncoder instance for password hashing
+     * @param meterRegistry registry for hashing queue and latency metrics
+     * @param threads number of hashing threads (0 uses half the available processors)
+     * @param queueCapacity maximum number of hashing calls waiting for a thread
+     * @param strength fixed BCrypt strength (0 calibrates it)
+     * @param targetMillis target time of one hash when calibrating
+     * @param minStrength lowest strength calibration may pick
+     * @param maxStrength highest strength calibration may pick
+     * @return a BCrypt encoder running on the bounded hashing pool
      */
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @Bean(destroyMethod = "shutdown")
+    public BoundedPasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                                  @Value("${auth.hashing.threads:0}") int threads,
+                                                  @Value("${auth.hashing.queue-capacity:64}") int queueCapacity,
+                                                  @Value("${auth.bcrypt.strength:0}") int strength,
+                                                  @Value("${auth.bcrypt.target-ms:250}") long targetMillis,
+                                                  @Value("${auth.bcrypt.min-strength:10}") int minStrength,
+                                                  @Value("${auth.bcrypt.max-strength:16}") int maxStrength) {
+        int bcryptStrength = strength > 0 ? strength : BCryptCalibrator.calibrate(targetMillis, minStrength, maxStrength);
+        System.out.println("Using BCrypt strength " + bcryptStrength
+            + (strength > 0 ? " (configured)." : " (calibrated for " + targetMillis + " ms per hash)."));
+
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        // Hashes stored before the "{id}" prefix was used are plain BCrypt
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return new BoundedPasswordEncoder(encoder, threads, queueCapacity, meterRegistry);
     }
 
     /*
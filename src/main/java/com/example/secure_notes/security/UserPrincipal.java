@@ -0,0 +1,90 @@
+package com.example.secure_notes.security;
+
+import com.example.secure_notes.entity.User;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/*
+ * The authenticated user as seen by Spring Security.
+ * 
+ * Carries the user's database ID alongside the username and authorities, so that
+ * controllers can act for the user without looking them up again. A principal built
+ * from JWT claims has no password; one loaded from the database (for login) does.
+ */
+public class UserPrincipal implements UserDetails {
+
+    /*
+     * The user's database ID.
+     */
+    private final Long id;
+
+    /*
+     * The user's username.
+     */
+    private final String username;
+
+    /*
+     * The user's password hash, or null for a principal built from a token.
+     */
+    private final String passwordHash;
+
+    /*
+     * The user's granted authorities (roles).
+     */
+    private final Set<GrantedAuthority> authorities;
+
+    /*
+     * Constructs a principal.
+     * 
+     * @param id the user's database ID
+     * @param username the user's username
+     * @param passwordHash the password hash, or null if not known
+     * @param roles the user's role strings (e.g., "ROLE_USER")
+     */
+    public UserPrincipal(Long id, String username, String passwordHash, Collection<String> roles) {
+        this.id = id;
+        this.username = username;
+        this.passwordHash = passwordHash;
+        this.authorities = roles.stream().map(SimpleGrantedAuthority::new).collect(Collectors.toUnmodifiableSet());
+    }
+
+    /*
+     * Builds a principal from a loaded User entity.
+     * 
+     * @param user the user entity
+     * @return a principal with the user's ID, username, password hash and roles
+     */
+    public static UserPrincipal fromUser(User user) {
+        return new UserPrincipal(user.getId(), user.getUsername(), user.getPasswordHash(), user.getRoles());
+    }
+
+    /*
+     * Gets the user's database ID.
+     * 
+     * @return the user ID
+     */
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public String getPassword() {
+        return passwordHash;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+}
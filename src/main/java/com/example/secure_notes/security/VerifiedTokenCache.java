@@ -0,0 +1,345 @@
+package com.example.secure_notes.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.ServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Cache of already verified bearer tokens and the principals built from them.
+ *
+ * Clients poll with the same token many times during its lifetime; a hit here skips
+ * HMAC verification and JSON parsing of the token. Entries are keyed by the token's
+ * SHA-256 digest (the token itself is never stored) and are valid until the token's
+ * exp claim. The cache is a fixed-size, direct-mapped table: each digest maps to one
+ * slot and a newer token simply replaces the slot's previous entry, so the cache is
+ * bounded and lookups never lock.
+ *
+ * A lookup hashes the token into per-thread scratch buffers and compares digests in
+ * place, so a hit does not allocate.
+ *
+ * Filters that run before JwtAuthenticationFilter (the rate limiter) look tokens up
+ * through get(token, request), which remembers the result in the request, so a
+ * request's token is hashed and counted once.
+ *
+ * The cache is cleared whenever a token is revoked. A generation counter, bumped by
+ * each clear, keeps a request that verified its token just before a revocation from
+ * caching it just after.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    /*
+     * Longest token (in characters) that is cached; longer ones always miss.
+     */
+    private static final int MAX_TOKEN_LENGTH = 8192;
+
+    /*
+     * Reads big-endian longs out of a digest without wrapping it in a ByteBuffer.
+     */
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    /*
+     * Per-thread SHA-256 instance; MessageDigest is not thread-safe.
+     */
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available.", e);
+        }
+    });
+
+    /*
+     * Per-thread buffer holding the token's ASCII bytes followed by its 32-byte digest.
+     */
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[MAX_TOKEN_LENGTH + 32]);
+
+    /*
+     * Request attribute holding the result of get(token, request).
+     */
+    private static final String LOOKUP_ATTRIBUTE = VerifiedTokenCache.class.getName() + ".LOOKUP";
+
+    /*
+     * Marks a lookup in LOOKUP_ATTRIBUTE that found nothing.
+     */
+    private static final Object NOT_CACHED = new Object();
+
+    /*
+     * A verified token: its digest, the principal it authenticates and its expiry.
+     */
+    private static final class Entry {
+        private final long d0;
+        private final long d1;
+        private final long d2;
+        private final long d3;
+        private final UserPrincipal principal;
+        private final long expiresAtMillis;
+
+        private Entry(byte[] digest, int offset, UserPrincipal principal, long expiresAtMillis) {
+            this.d0 = (long) LONGS.get(digest, offset);
+            this.d1 = (long) LONGS.get(digest, offset + 8);
+            this.d2 = (long) LONGS.get(digest, offset + 16);
+            this.d3 = (long) LONGS.get(digest, offset + 24);
+            this.principal = principal;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        private boolean matches(byte[] digest, int offset) {
+            return d0 == (long) LONGS.get(digest, offset)
+                && d1 == (long) LONGS.get(digest, offset + 8)
+                && d2 == (long) LONGS.get(digest, offset + 16)
+                && d3 == (long) LONGS.get(digest, offset + 24);
+        }
+    }
+
+    /*
+     * Whether verified tokens are cached at all.
+     */
+    private final boolean enabled;
+
+    /*
+     * The slots; the index of a token is taken from its digest.
+     */
+    private final AtomicReferenceArray<Entry> slots;
+
+    /*
+     * Mask selecting a slot index from a digest (slot count is a power of two).
+     */
+    private final int mask;
+
+    /*
+     * Incremented by every clear().
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /*
+     * Lookups that found a live entry for the token.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /*
+     * Lookups that found no entry, an expired one, or one for a different token.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /*
+     * Live entries that were replaced by a different token mapping to the same slot.
+     */
+    private final LongAdder evictions = new LongAdder();
+
+    /*
+     * Constructs the cache and registers its metrics.
+     *
+     * @param meterRegistry registry for hit/miss and size metrics
+     * @param enabled whether verified tokens are cached
+     * @param size the number of slots (rounded up to a power of two)
+     * @throws IllegalArgumentException if size is not positive
+     */
+    @Autowired
+    public VerifiedTokenCache(MeterRegistry meterRegistry,
+                              @Value("${jwt.token-cache.enabled:true}") boolean enabled,
+                              @Value("${jwt.token-cache.size:4096}") int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Token cache size must be positive.");
+        }
+        int capacity = Integer.highestOneBit(Math.min(size, 1 << 30));
+        if (capacity < size) {
+            capacity <<= 1;
+        }
+        this.enabled = enabled;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+
+        FunctionCounter.builder("jwt.token.cache.requests", hits, LongAdder::sum)
+            .tag("result", "hit")
+            .description("Verified token cache lookups")
+            .register(meterRegistry);
+        FunctionCounter.builder("jwt.token.cache.requests", misses, LongAdder::sum)
+            .tag("result", "miss")
+            .description("Verified token cache lookups")
+            .register(meterRegistry);
+        FunctionCounter.builder("jwt.token.cache.evictions", evictions, LongAdder::sum)
+            .description("Live verified tokens replaced by another token")
+            .register(meterRegistry);
+        Gauge.builder("jwt.token.cache.size", this, VerifiedTokenCache::size)
+            .description("Verified tokens held in memory, including expired ones not yet replaced")
+            .register(meterRegistry);
+    }
+
+    /*
+     * Checks whether the cache is in use.
+     *
+     * @return true if verified tokens are cached
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /*
+     * Looks up the principal of a previously verified, unexpired token.
+     *
+     * @param token the compact JWT string
+     * @return the principal, or null if the token is not cached or has expired
+     */
+    public UserPrincipal get(String token) {
+        if (!enabled) {
+            return null;
+        }
+        byte[] scratch = SCRATCH.get();
+        int offset = digest(token, scratch);
+        if (offset < 0) {
+            misses.increment();
+            return null;
+        }
+        int index = slotIndex(scratch, offset);
+        Entry entry = slots.get(index);
+        if (entry != null && entry.matches(scratch, offset)) {
+            if (System.currentTimeMillis() < entry.expiresAtMillis) {
+                hits.increment();
+                return entry.principal;
+            }
+            slots.compareAndSet(index, entry, null);
+        }
+        misses.increment();
+        return null;
+    }
+
+    /*
+     * Looks up the principal of the request's token, once per request: the result is
+     * kept in the request and returned again by later calls with the same request.
+     *
+     * @param token the compact JWT string from the request's Authorization header
+     * @param request the request carrying the token
+     * @return the principal, or null if the token is not cached or has expired
+     */
+    public UserPrincipal get(String token, ServletRequest request) {
+        Object lookup = request.getAttribute(LOOKUP_ATTRIBUTE);
+        if (lookup != null) {
+            return lookup instanceof UserPrincipal principal ? principal : null;
+        }
+        UserPrincipal principal = get(token);
+        request.setAttribute(LOOKUP_ATTRIBUTE, principal != null ? principal : NOT_CACHED);
+        return principal;
+    }
+
+    /*
+     * Gets the current generation, to be read before a token's revocation is checked.
+     *
+     * @return the number of clears so far
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /*
+     * Caches the principal of a token whose signature, expiry and revocation status
+     * have been checked. The token is not kept if the cache was cleared since the
+     * given generation was read.
+     *
+     * @param token the compact JWT string
+     * @param principal the principal built from the token's claims
+     * @param expiresAtMillis the token's exp claim in epoch milliseconds
+     * @param checkedGeneration the generation read before the token was checked
+     */
+    public void put(String token, UserPrincipal principal, long expiresAtMillis, long checkedGeneration) {
+        if (!enabled || expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        byte[] scratch = SCRATCH.get();
+        int offset = digest(token, scratch);
+        if (offset < 0) {
+            return;
+        }
+        int index = slotIndex(scratch, offset);
+        Entry entry = new Entry(scratch, offset, principal, expiresAtMillis);
+        Entry previous = slots.getAndSet(index, entry);
+        if (generation.get() != checkedGeneration) {
+            slots.compareAndSet(index, entry, null);
+            return;
+        }
+        if (previous != null && !previous.matches(scratch, offset)
+                && System.currentTimeMillis() < previous.expiresAtMillis) {
+            evictions.increment();
+        }
+    }
+
+    /*
+     * Removes all cached tokens and starts a new generation.
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+    }
+
+    /*
+     * Counts the occupied slots.
+     *
+     * @return the number of cached tokens
+     */
+    public int size() {
+        int count = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /*
+     * Hashes a token into the scratch buffer. Tokens are compact JWTs and therefore
+     * ASCII; anything else, or an overly long token, is not cached.
+     *
+     * @param token the token to hash
+     * @param scratch the thread's scratch buffer
+     * @return the offset of the 32-byte digest in scratch, or -1 if the token is not cacheable
+     */
+    private static int digest(String token, byte[] scratch) {
+        int length = token.length();
+        if (length > MAX_TOKEN_LENGTH) {
+            return -1;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = token.charAt(i);
+            if (c > 0x7F) {
+                return -1;
+            }
+            scratch[i] = (byte) c;
+        }
+        MessageDigest sha256 = SHA256.get();
+        sha256.update(scratch, 0, length);
+        try {
+            sha256.digest(scratch, MAX_TOKEN_LENGTH, 32);
+        } catch (DigestException e) {
+            throw new RuntimeException("Token hashing failed.", e);
+        }
+        return MAX_TOKEN_LENGTH;
+    }
+
+    /*
+     * Picks the slot of a digest.
+     *
+     * @param digest buffer holding the digest
+     * @param offset offset of the digest in the buffer
+     * @return the slot index
+     */
+    private int slotIndex(byte[] digest, int offset) {
+        return (int) (long) LONGS.get(digest, offset) & mask;
+    }
+}
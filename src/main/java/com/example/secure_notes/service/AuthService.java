@@ -5,16 +5,24 @@ import com.example.secure_notes.dto.LoginRequest;
 import com.example.secure_notes.dto.SignupRequest;
 import com.example.secure_notes.entity.User;
 import com.example.secure_notes.repository.UserRepository;
+import com.example.secure_notes.security.CustomUserDetailsService;
 import com.example.secure_notes.security.JwtUtil;
+import com.example.secure_notes.security.UserPrincipal;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Collections;
+import java.util.Optional;
 
 /*
  * Service class for handling user authentication operations. This service manages the
@@ -43,6 +51,26 @@ public class AuthService {
      */
     private final AuthenticationManager authenticationManager;
 
+    /*
+     * Service for revoking tokens on logout.
+     */
+    private final TokenRevocationService revocationService;
+
+    /*
+     * Service for issuing and rotating refresh tokens.
+     */
+    private final RefreshTokenService refreshTokenService;
+
+    /*
+     * In-memory filter of taken usernames.
+     */
+    private final UsernameBloomFilter usernameFilter;
+
+    /*
+     * User details service whose cached copy of a user must be dropped on changes.
+     */
+    private final CustomUserDetailsService userDetailsService;
+
     /*
      * Constructs an AuthService with all required dependencies. 
      * 
@@ -50,26 +78,42 @@ public class AuthService {
      * @param passwordEncoder encoder for password hashing
      * @param jwtUtil utility for JWT token operations
      * @param authenticationManager manager for authentication operations
+     * @param revocationService service for revoking tokens
+     * @param refreshTokenService service for refresh tokens
+     * @param usernameFilter in-memory filter of taken usernames
+     * @param userDetailsService the user details service caching loaded users
      */
     @Autowired
-    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtil jwtUtil, AuthenticationManager authenticationManager) {
+    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtil jwtUtil, AuthenticationManager authenticationManager,
+                       TokenRevocationService revocationService, RefreshTokenService refreshTokenService,
+                       UsernameBloomFilter usernameFilter, CustomUserDetailsService userDetailsService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtil = jwtUtil;
         this.authenticationManager = authenticationManager;
+        this.revocationService = revocationService;
+        this.refreshTokenService = refreshTokenService;
+        this.usernameFilter = usernameFilter;
+        this.userDetailsService = userDetailsService;
     }
 
     /*
      * Registers a new user account and generates an authentication token.
      * 
+     * The user is created with a single insert; the unique constraint on the username
+     * decides between concurrent signups for the same name. A username the in-memory
+     * filter reports as possibly taken is checked first, so that an obvious duplicate
+     * is turned away before its password is hashed.
+     * 
      * @param request the signup request containing username and password (must not be null)
-     * @return JwtResponse containing the authentication token for immediate use
-     * @throws RuntimeException if the username is already taken
+     * @return JwtResponse containing the access token for immediate use and a refresh token
+     * @throws ResponseStatusException with 409 Conflict if the username is already taken
+     * @throws DataIntegrityViolationException if the user violates another constraint
      * @throws NullPointerException if request or required fields are null
      */
     public JwtResponse signup(SignupRequest request) {
-        if (userRepository.findByUsername(request.getUsername()).isPresent()) {
-            throw new RuntimeException("Username is already taken.");
+        if (usernameFilter.mightBeTaken(request.getUsername()) && userRepository.existsByUsername(request.getUsername())) {
+            throw usernameTaken();
         }
 
         User user = new User();
@@ -77,19 +121,33 @@ public class AuthService {
         user.setPasswordHash(passwordEncoder.encode(request.getPassword()));
         user.setRoles(Collections.singleton("ROLE_USER"));
 
-        userRepository.save(user);
+        try {
+            userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            // The violation may come from any constraint; only a committed user with the
+            // same name makes it a conflict
+            if (userRepository.existsByUsername(request.getUsername())) {
+                throw usernameTaken();
+            }
+            throw e;
+        }
+        usernameFilter.add(user.getUsername());
 
         String token = jwtUtil.generateToken(user);
-        return new JwtResponse(token);
+        return new JwtResponse(token, refreshTokenService.issue(user));
     }
 
     /*
-     * Authenticates a user and generates a JWT token.
+     * Authenticates a user and generates a JWT token. A stored password hash with
+     * outdated parameters (e.g. a lower BCrypt strength than this node uses) is
+     * replaced by a fresh hash of the verified password.
+     * 
+     * The UserPrincipal loaded by the authentication manager already carries the
+     * user's ID, roles and password hash, so the user is not queried a second time.
      * 
      * @param request the login request containing username and password (must not be null)
-     * @return JwtResponse containing the JWT token for authenticated requests
+     * @return JwtResponse containing the JWT token for authenticated requests and a refresh token
      * @throws BadCredentialsException if username or password is invalid
-     * @throws RuntimeException if user is not found after successful authentication (should not occur normally)
      * @throws DisabledException if the account is disabled
      * @throws LockedException if the account is locked
      */
@@ -98,9 +156,82 @@ public class AuthService {
             new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
         );
 
-        User user = userRepository.findByUsername(request.getUsername()).orElseThrow(() -> new RuntimeException("User not found"));
+        UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
+        rehashIfOutdated(principal, request.getPassword());
 
-        String token = jwtUtil.generateToken(user);
-        return new JwtResponse(token);
+        String token = jwtUtil.generateToken(principal);
+        return new JwtResponse(token, refreshTokenService.issue(userRepository.getReferenceById(principal.getId())));
+    }
+
+    /*
+     * Renews a session: exchanges a refresh token for a new access token and a new
+     * refresh token. No password hashing is involved.
+     * 
+     * @param refreshToken the refresh token from login, signup or the previous refresh
+     * @return JwtResponse with the new tokens, or Optional.empty() if the refresh token
+     *         is unknown, expired or was already used
+     */
+    public Optional<JwtResponse> refresh(String refreshToken) {
+        return refreshTokenService.rotate(refreshToken)
+            .map(rotation -> new JwtResponse(jwtUtil.generateToken(rotation.user()), rotation.refreshToken()));
+    }
+
+    /*
+     * Logs out the holder of a token by revoking the token and, if given, the
+     * session's refresh token.
+     * 
+     * Tokens issued before tokens had an ID cannot be revoked one by one; for those,
+     * all of the user's tokens issued so far are revoked instead.
+     * 
+     * @param token the access token to revoke
+     * @param refreshToken the session's refresh token, or null
+     * @return true if the token was valid and is now revoked, false if it was not valid
+     */
+    public boolean logout(String token, String refreshToken) {
+        refreshTokenService.revoke(refreshToken);
+        Claims claims;
+        try {
+            claims = jwtUtil.parseClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
+        if (claims.getId() != null) {
+            revocationService.revoke(claims.getId(), claims.getExpiration());
+            return true;
+        }
+        UserPrincipal principal = jwtUtil.toPrincipal(claims);
+        Long userId = principal != null ? principal.getId()
+            : userRepository.findByUsername(claims.getSubject()).map(User::getId).orElse(null);
+        return userId != null && revocationService.revokeAllForUser(userId);
+    }
+
+    /*
+     * Builds the error for a signup with a username that is already taken.
+     * 
+     * @return a 409 Conflict exception
+     */
+    private static ResponseStatusException usernameTaken() {
+        return new ResponseStatusException(HttpStatus.CONFLICT, "Username is already taken.");
+    }
+
+    /*
+     * Re-hashes a just verified password if its stored hash uses outdated parameters.
+     * A failure only delays the upgrade to the next login, so it does not fail the login.
+     * 
+     * @param principal the authenticated user, with the password hash it was checked against
+     * @param rawPassword the password the user authenticated with
+     */
+    private void rehashIfOutdated(UserPrincipal principal, String rawPassword) {
+        String storedHash = principal.getPassword();
+        if (storedHash == null || !passwordEncoder.upgradeEncoding(storedHash)) {
+            return;
+        }
+        try {
+            if (userRepository.replacePasswordHash(principal.getId(), storedHash, passwordEncoder.encode(rawPassword)) == 1) {
+                userDetailsService.invalidate(principal.getUsername());
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Password rehash failed for user " + principal.getId() + ": " + e.getMessage());
+        }
     }
 }
@@ -0,0 +1,147 @@
+package com.example.secure_notes.service;
+
+import com.example.secure_notes.repository.UserRepository;
+import com.example.secure_notes.util.BoundedTtlCache;
+import com.example.secure_notes.util.KeyProvider;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.security.NoSuchAlgorithmException;
+
+/*
+ * Service class for per-user note data keys (envelope encryption).
+ *
+ * Each user's notes are encrypted with their own AES-256 data key. The data key is
+ * stored on the user wrapped by the master key of the KeyProvider, so rotating or
+ * revoking one key only touches one user's notes. Unwrapped keys are kept in a
+ * size- and TTL-bounded LRU cache, so hot users never pay the unwrap cost.
+ */
+@Service
+public class DataKeyService {
+
+    /*
+     * Repository for reading and storing wrapped data keys.
+     */
+    private final UserRepository userRepository;
+
+    /*
+     * Provider of the master key that wraps data keys.
+     */
+    private final KeyProvider keyProvider;
+
+    /*
+     * Cache of unwrapped data keys by user ID.
+     */
+    private final BoundedTtlCache<Long, SecretKey> keyCache;
+
+    /*
+     * Whether new notes are encrypted with per-user data keys.
+     */
+    private final boolean enabled;
+
+    /*
+     * Constructs a DataKeyService and registers its cache metrics.
+     *
+     * @param userRepository repository for wrapped data key storage
+     * @param keyProvider provider of the master key
+     * @param meterRegistry registry for cache hit/miss metrics
+     * @param enabled whether new notes use envelope encryption
+     * @param cacheSize the maximum number of unwrapped keys kept in memory
+     * @param cacheTtlMillis how long an unwrapped key stays cached
+     */
+    @Autowired
+    public DataKeyService(UserRepository userRepository, KeyProvider keyProvider, MeterRegistry meterRegistry,
+                          @Value("${aes.envelope.enabled:true}") boolean enabled,
+                          @Value("${aes.envelope.key-cache.max-size:10000}") int cacheSize,
+                          @Value("${aes.envelope.key-cache.ttl-ms:600000}") long cacheTtlMillis) {
+        this.userRepository = userRepository;
+        this.keyProvider = keyProvider;
+        this.enabled = enabled;
+        this.keyCache = new BoundedTtlCache<>(cacheSize, cacheTtlMillis);
+
+        FunctionCounter.builder("notes.datakey.cache.requests", keyCache, BoundedTtlCache::hitCount)
+            .tag("result", "hit")
+            .description("Data key cache lookups")
+            .register(meterRegistry);
+        FunctionCounter.builder("notes.datakey.cache.requests", keyCache, BoundedTtlCache::missCount)
+            .tag("result", "miss")
+            .description("Data key cache lookups")
+            .register(meterRegistry);
+        Gauge.builder("notes.datakey.cache.size", keyCache, BoundedTtlCache::size)
+            .description("Unwrapped data keys held in memory")
+            .register(meterRegistry);
+    }
+
+    /*
+     * Gets the key new note content for a user should be encrypted with.
+     *
+     * @param userId the ID of the note owner
+     * @return the user's data key, or null if envelope encryption is disabled and the
+     *         shared aes.secret key should be used
+     * @throws RuntimeException if the data key cannot be created or unwrapped
+     */
+    public SecretKey getWriteKey(Long userId) {
+        return enabled ? getDataKey(userId) : null;
+    }
+
+    /*
+     * Checks whether new notes are encrypted with per-user data keys.
+     *
+     * @return true if envelope encryption is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /*
+     * Gets a user's unwrapped data key by user ID, creating and storing one on first use.
+     *
+     * @param userId the ID of the note owner
+     * @return the user's data key
+     * @throws RuntimeException if the data key cannot be created or unwrapped
+     */
+    public SecretKey getDataKey(Long userId) {
+        SecretKey cached = keyCache.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+
+        byte[] wrapped = userRepository.findWrappedDataKeyById(userId).orElse(null);
+        if (wrapped == null) {
+            byte[] fresh = keyProvider.wrapKey(generateDataKey());
+            if (userRepository.setWrappedDataKeyIfAbsent(userId, fresh) == 1) {
+                wrapped = fresh;
+            } else {
+                wrapped = userRepository.findWrappedDataKeyById(userId)
+                    .orElseThrow(() -> new RuntimeException("User not found."));
+            }
+        }
+
+        SecretKey dataKey = keyProvider.unwrapKey(wrapped);
+        keyCache.put(userId, dataKey);
+        return dataKey;
+    }
+
+    /*
+     * Generates a new random AES-256 data key.
+     *
+     * @return the new data key
+     * @throws RuntimeException if AES key generation is unavailable
+     */
+    private SecretKey generateDataKey() {
+        try {
+            KeyGenerator generator = KeyGenerator.getInstance("AES");
+            generator.init(256);
+            return generator.generateKey();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Error generating data key", e);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.secure_notes.service;
+
+import com.example.secure_notes.entity.Note;
+import com.example.secure_notes.util.BoundedTtlCache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Optional;
+
+/*
+ * Per-node cache of decrypted notes, placed in front of NoteService.getNoteById.
+ *
+ * Entries are keyed by (user id, note id, note version), so a cached plaintext can
+ * never be served for a newer revision of a note, even one written through another
+ * node. The cache is bounded by the total number of plaintext bytes it holds and
+ * entries expire after a short TTL. Plaintext is kept as UTF-8 bytes rather than a
+ * String so that it can be wiped: every entry that is evicted, expires, or is
+ * invalidated has its bytes zeroed.
+ *
+ * Notes returned from the cache are fresh, detached Note instances; their content
+ * String is built on each hit.
+ */
+@Component
+public class NoteCache {
+
+    /*
+     * Cache key: a specific revision of a specific user's note.
+     */
+    private record Key(Long userId, Long noteId, long version) {
+    }
+
+    /*
+     * A cached note revision. The content bytes are guarded by the entry's monitor so
+     * that a reader never decodes bytes that are being wiped.
+     */
+    private static final class CachedNote {
+        private final Long id;
+        private final String title;
+        private final long version;
+        private final LocalDateTime timeCreated;
+        private final LocalDateTime timeUpdated;
+        private final byte[] content;
+        private boolean wiped;
+
+        private CachedNote(Note note) {
+            this.id = note.getId();
+            this.title = note.getTitle();
+            this.version = note.getVersion();
+            this.timeCreated = note.getTimeCreated();
+            this.timeUpdated = note.getTimeUpdated();
+            this.content = note.getContent().getBytes(StandardCharsets.UTF_8);
+        }
+
+        /*
+         * Decodes the cached content, or returns null if the entry was wiped.
+         */
+        private synchronized String readContent() {
+            return wiped ? null : new String(content, StandardCharsets.UTF_8);
+        }
+
+        /*
+         * Zeroes the cached content.
+         */
+        private synchronized void wipe() {
+            wiped = true;
+            Arrays.fill(content, (byte) 0);
+        }
+    }
+
+    /*
+     * Whether the cache is used at all.
+     */
+    private final boolean enabled;
+
+    /*
+     * The underlying byte-bounded LRU/TTL cache.
+     */
+    private final BoundedTtlCache<Key, CachedNote> cache;
+
+    /*
+     * Constructs the note cache and registers its metrics.
+     *
+     * @param meterRegistry registry for hit/miss and memory metrics
+     * @param enabled whether decrypted notes are cached
+     * @param maxBytes the maximum total plaintext bytes held
+     * @param ttlMillis how long an entry stays valid, in milliseconds
+     */
+    @Autowired
+    public NoteCache(MeterRegistry meterRegistry,
+                     @Value("${notes.cache.enabled:true}") boolean enabled,
+                     @Value("${notes.cache.max-bytes:16777216}") long maxBytes,
+                     @Value("${notes.cache.ttl-ms:30000}") long ttlMillis) {
+        this.enabled = enabled;
+        this.cache = new BoundedTtlCache<>(maxBytes, ttlMillis, note -> note.content.length, CachedNote::wipe);
+
+        FunctionCounter.builder("notes.cache.requests", cache, BoundedTtlCache::hitCount)
+            .tag("result", "hit")
+            .description("Decrypted note cache lookups")
+            .register(meterRegistry);
+        FunctionCounter.builder("notes.cache.requests", cache, BoundedTtlCache::missCount)
+            .tag("result", "miss")
+            .description("Decrypted note cache lookups")
+            .register(meterRegistry);
+        Gauge.builder("notes.cache.hit.ratio", cache, c -> {
+                long total = c.hitCount() + c.missCount();
+                return total == 0 ? 0.0 : (double) c.hitCount() / total;
+            })
+            .description("Share of decrypted note cache lookups that were hits")
+            .register(meterRegistry);
+        Gauge.builder("notes.cache.size", cache, BoundedTtlCache::size)
+            .description("Decrypted notes held in memory")
+            .register(meterRegistry);
+        Gauge.builder("notes.cache.bytes", cache, BoundedTtlCache::weight)
+            .baseUnit("bytes")
+            .description("Plaintext bytes held by the decrypted note cache")
+            .register(meterRegistry);
+    }
+
+    /*
+     * Looks up a cached revision of a note.
+     *
+     * @param userId the ID of the note owner
+     * @param noteId the note ID
+     * @param version the note's current version
+     * @return a detached copy of the note with its content (but without its user), or
+     *         Optional.empty() on a miss
+     */
+    public Optional<Note> get(Long userId, Long noteId, long version) {
+        CachedNote cached = enabled ? cache.get(new Key(userId, noteId, version)) : null;
+        String content = cached != null ? cached.readContent() : null;
+        if (content == null) {
+            return Optional.empty();
+        }
+        Note note = new Note(cached.id, cached.title, content, null, cached.timeCreated, cached.timeUpdated);
+        note.setVersion(cached.version);
+        return Optional.of(note);
+    }
+
+    /*
+     * Caches a decrypted note under its current version.
+     *
+     * @param userId the ID of the note owner
+     * @param note the note, with its plaintext content set
+     */
+    public void put(Long userId, Note note) {
+        if (enabled && note.getContent() != null) {
+            cache.put(new Key(userId, note.getId(), note.getVersion()), new CachedNote(note));
+        }
+    }
+
+    /*
+     * Removes (and wipes) a cached revision of a note.
+     *
+     * @param userId the ID of the note owner
+     * @param noteId the note ID
+     * @param version the version that may be cached
+     */
+    public void invalidate(Long userId, Long noteId, long version) {
+        if (enabled) {
+            cache.invalidate(new Key(userId, noteId, version));
+        }
+    }
+}
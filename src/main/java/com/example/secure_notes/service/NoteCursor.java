@@ -0,0 +1,60 @@
+package com.example.secure_notes.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/*
+ * Position in a user's note listing: the sort key (timeUpdated, id) of the last note
+ * on a page. The next page starts right after it.
+ *
+ * Clients only see the encoded form, an opaque URL-safe string, so the listing's sort
+ * key can change without breaking the API (old cursors are then rejected).
+ *
+ * @param timeUpdated the last note's update timestamp
+ * @param id the last note's ID
+ */
+public record NoteCursor(LocalDateTime timeUpdated, Long id) {
+
+    /*
+     * Creates a cursor, rejecting incomplete positions.
+     *
+     * @throws IllegalArgumentException if timeUpdated or id is null
+     */
+    public NoteCursor {
+        if (timeUpdated == null || id == null) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+    }
+
+    /*
+     * Encodes this cursor for clients.
+     *
+     * @return the opaque cursor string
+     */
+    public String encode() {
+        String raw = timeUpdated + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /*
+     * Decodes a cursor received from a client.
+     *
+     * @param cursor the opaque cursor string
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the string is not a valid cursor
+     */
+    public static NoteCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int comma = raw.indexOf(',');
+            if (comma < 0) {
+                throw new IllegalArgumentException("Invalid cursor.");
+            }
+            return new NoteCursor(LocalDateTime.parse(raw.substring(0, comma)), Long.valueOf(raw.substring(comma + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor.", e);
+        }
+    }
+}
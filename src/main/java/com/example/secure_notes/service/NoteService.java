@@ -1,22 +1,45 @@
 package com.example.secure_notes.service;
 
+import com.example.secure_notes.dto.NoteBatchOperation;
+import com.example.secure_notes.dto.NoteBatchResult;
+import com.example.secure_notes.dto.NotePage;
 import com.example.secure_notes.entity.Note;
-import com.example.secure_notes.entity.User;
 import com.example.secure_notes.repository.NoteRepository;
+import com.example.secure_notes.repository.NoteSummary;
+import com.example.secure_notes.repository.UserRepository;
+import com.example.secure_notes.security.UserPrincipal;
 import com.example.secure_notes.util.AesEncryptionUtil;
+import com.example.secure_notes.util.ParallelBatchExecutor;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import javax.crypto.SecretKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.function.Function;
 
 /*
  * Service class for managing encrypted note operations.
  * 
  * Provides CRUD interface for secure notes, automatically handling 
- * AES-256 encryption and decryption of note content. 
+ * AES-256 encryption and decryption of note content. Reads accept both the
+ * legacy ECB format and the authenticated GCM format, so notes can be
+ * migrated without downtime.
+ * 
+ * Notes are scoped to the authenticated UserPrincipal by its user ID; the User
+ * entity is never loaded (creating a note only needs a reference to it).
  */
 @Service
 public class NoteService {
@@ -31,16 +54,46 @@ public class NoteService {
      */
     private final AesEncryptionUtil aesEncryptionUtil;
 
+    /*
+     * Service providing per-user data keys for envelope encryption.
+     */
+    private final DataKeyService dataKeyService;
+
+    /*
+     * Executor that decrypts large note lists, and encrypts large batches, in parallel.
+     */
+    private final ParallelBatchExecutor decryptExecutor;
+
+    /*
+     * Per-node cache of decrypted notes for getNoteById.
+     */
+    private final NoteCache noteCache;
+
+    /*
+     * Repository providing references to note owners.
+     */
+    private final UserRepository userRepository;
+
     /*
      * Constructs a NoteService with required dependencies.
      * 
      * @param noteRepository repository for note database operations
      * @param aesEncryptionUtil utility for content encryption/decryption
+     * @param dataKeyService service for per-user data keys
+     * @param decryptExecutor executor for decrypting large note lists and encrypting batches
+     * @param noteCache cache of decrypted notes
+     * @param userRepository repository for user references
      */
     @Autowired
-    public NoteService(NoteRepository noteRepository, AesEncryptionUtil aesEncryptionUtil) {
+    public NoteService(NoteRepository noteRepository, AesEncryptionUtil aesEncryptionUtil,
+                       DataKeyService dataKeyService, ParallelBatchExecutor decryptExecutor,
+                       NoteCache noteCache, UserRepository userRepository) {
         this.noteRepository = noteRepository;
         this.aesEncryptionUtil = aesEncryptionUtil;
+        this.dataKeyService = dataKeyService;
+        this.decryptExecutor = decryptExecutor;
+        this.noteCache = noteCache;
+        this.userRepository = userRepository;
     }
     
     /*
@@ -48,51 +101,103 @@ public class NoteService {
      * 
      * @param title the title of the note (if null, defaults to "Untitled Note")
      * @param content the plaintext content to encrypt and store (must not be null)
-     * @param user the user who owns this note (must not be null)
-     * @return the created Note entity with encrypted content
-     * @throws NullPointerException if content or user is null
+     * @param principal the user who owns this note (must not be null)
+     * @return the created Note entity with its plaintext content filled in
+     * @throws NullPointerException if content or principal is null
      * @throws RuntimeException if encryption or database operation fails
      */
-    public Note createNote(String title, String content, User user) {
-        String encrypted = aesEncryptionUtil.encrypt(content);
+    public Note createNote(String title, String content, UserPrincipal principal) {
+        byte[] encrypted = encryptFor(principal.getId(), content);
         Note note = new Note();
         note.setTitle(title != null ? title : "Untitled Note");
-        note.setContent(encrypted);
-        note.setUser(user);
-        return noteRepository.save(note);
+        note.setEncryptedContent(encrypted);
+        note.setUser(userRepository.getReferenceById(principal.getId()));
+        Note saved = noteRepository.save(note);
+        saved.setContent(content);
+        return saved;
     }
 
     /*
-     * Retrieves all notes for a user with decrypted content. 
+     * Retrieves a page of a user's notes with decrypted content, most recently updated
+     * first. 
      * 
-     * @param id the ID of the note to retrieve (must not be null)
-     * @param user the user who should own the note (must not be null)
-     * @return an Optional containing the note with decrypted content if found and owned by user,
-     *         or Optional.empty() if not found or not owned by user
+     * Pages are keyset-paginated on (timeUpdated, id): the next cursor names the last
+     * note of the page, and the following page starts right after it. A note updated
+     * while a client pages through the listing moves to the front, so it can be missed
+     * or seen twice. Large pages are decrypted in parallel on the shared decryption
+     * executor; the returned list keeps the repository order.
+     * 
+     * @param principal the user whose notes to retrieve (must not be null)
+     * @param cursor the next cursor of the previous page, or null for the first page
+     * @param limit the maximum number of notes on the page (must be positive)
+     * @return the page of notes with decrypted content, and the cursor of the next page
+     * @throws ResponseStatusException with 400 Bad Request if the cursor is invalid
      * @throws RuntimeException if decryption fails
      * @throws DataAccessException if database query fails
      */
-    public List<Note> getAllNotesForUser(User user) {
-        return noteRepository.findByUser(user).stream().map(note -> {
-            note.setContent(aesEncryptionUtil.decrypt(note.getContent()));
-            return note;
-        }).collect(Collectors.toList());
+    public NotePage<Note> getNotesPage(UserPrincipal principal, String cursor, int limit) {
+        Long userId = principal.getId();
+        NoteCursor after = decodeCursor(cursor);
+        Pageable page = PageRequest.of(0, limit + 1);
+        List<Note> rows = after == null
+            ? noteRepository.findPageByUserId(userId, page)
+            : noteRepository.findPageByUserIdAfter(userId, after.timeUpdated(), after.id(), page);
+
+        NotePage<Note> notePage = toPage(rows, limit, note -> new NoteCursor(note.getTimeUpdated(), note.getId()));
+        List<Note> notes = notePage.getItems();
+        List<String> contents = decryptExecutor.map(notes, note -> decryptFor(userId, note.getEncryptedContent()));
+        for (int i = 0; i < notes.size(); i++) {
+            notes.get(i).setContent(contents.get(i));
+        }
+        return notePage;
+    }
+
+    /*
+     * Lists the metadata (id, title, timestamps) of a page of a user's notes, in the
+     * same order and with the same cursors as getNotesPage. Content is neither loaded
+     * nor decrypted; fetch it per note with getNoteById.
+     * 
+     * @param principal the user whose notes to list (must not be null)
+     * @param cursor the next cursor of the previous page, or null for the first page
+     * @param limit the maximum number of notes on the page (must be positive)
+     * @return the page of note summaries, and the cursor of the next page
+     * @throws ResponseStatusException with 400 Bad Request if the cursor is invalid
+     * @throws DataAccessException if database query fails
+     */
+    public NotePage<NoteSummary> getNoteSummariesPage(UserPrincipal principal, String cursor, int limit) {
+        Long userId = principal.getId();
+        NoteCursor after = decodeCursor(cursor);
+        Pageable page = PageRequest.of(0, limit + 1);
+        List<NoteSummary> rows = after == null
+            ? noteRepository.findSummaryPageByUserId(userId, page)
+            : noteRepository.findSummaryPageByUserIdAfter(userId, after.timeUpdated(), after.id(), page);
+        return toPage(rows, limit, summary -> new NoteCursor(summary.getTimeUpdated(), summary.getId()));
     }
 
     /*
      * Retrieves a single note by ID for a specific user with decrypted content.
      * 
+     * The note is loaded in a single query. If the note cache holds its current
+     * revision, the cached plaintext is used and the content is not decrypted.
+     * 
      * @param id the ID of the note to retrieve (must not be null)
-     * @param user the user who should own the note (must not be null)
+     * @param principal the user who should own the note (must not be null)
      * @return an Optional containing the note with decrypted content if found and owned by user,
      *         or Optional.empty() if not found or not owned by user
      * @throws RuntimeException if decryption fails
      * @throws DataAccessException if database query fails
      * 
      */
-    public Optional<Note> getNoteById(Long id, User user) {
-        return noteRepository.findByIdAndUser(id, user).map(note -> {
-            note.setContent(aesEncryptionUtil.decrypt(note.getContent()));
+    public Optional<Note> getNoteById(Long id, UserPrincipal principal) {
+        Long userId = principal.getId();
+        return noteRepository.findByIdAndUserId(id, userId).map(note -> {
+            Optional<Note> cached = noteCache.get(userId, id, note.getVersion());
+            if (cached.isPresent()) {
+                note.setContent(cached.get().getContent());
+                return note;
+            }
+            note.setContent(decryptFor(userId, note.getEncryptedContent()));
+            noteCache.put(userId, note);
             return note;
         });
     }
@@ -103,17 +208,22 @@ public class NoteService {
      * @param id the ID of the note to update (must not be null)
      * @param title the new title (if null, defaults to "Untitiled Note" - note the typo)
      * @param content the new plaintext content to encrypt (must not be null)
-     * @param user the user who should own the note (must not be null)
-     * @return an Optional containing the updated note with encrypted content if found and owned,
+     * @param principal the user who should own the note (must not be null)
+     * @return an Optional containing the updated note with its plaintext content if found and owned,
      *         or Optional.empty() if not found or not owned by user
-     * @throws NullPointerException if content or user is null
+     * @throws NullPointerException if content or principal is null
      * @throws RuntimeException if encryption or database operation fails
      */
-    public Optional<Note> updateNote(Long id, String title, String content, User user) {
-        return noteRepository.findByIdAndUser(id, user).map(note -> {
+    public Optional<Note> updateNote(Long id, String title, String content, UserPrincipal principal) {
+        Long userId = principal.getId();
+        return noteRepository.findByIdAndUserId(id, userId).map(note -> {
+            long previousVersion = note.getVersion();
             note.setTitle(title != null ? title : "Untitiled Note");
-            note.setContent(aesEncryptionUtil.encrypt(content));
-            return noteRepository.save(note);
+            note.setEncryptedContent(encryptFor(userId, content));
+            Note saved = noteRepository.save(note);
+            noteCache.invalidate(userId, id, previousVersion);
+            saved.setContent(content);
+            return saved;
         });
     }
 
@@ -121,16 +231,211 @@ public class NoteService {
      * Deletes a note with authorization check. 
      * 
      * @param id the ID of the note to delete (must not be null)
-     * @param user the user who should own the note (must not be null)
+     * @param principal the user who should own the note (must not be null)
      * @return true if note was found and deleted, false if not found or not owned by user
      * @throws DataAccessException if database operation fails
      */
-    public boolean deleteNote(Long id, User user) {
-        Optional<Note> optionalNote = noteRepository.findByIdAndUser(id, user);
+    public boolean deleteNote(Long id, UserPrincipal principal) {
+        Optional<Note> optionalNote = noteRepository.findByIdAndUserId(id, principal.getId());
         if (optionalNote.isPresent()) {
             noteRepository.delete(optionalNote.get());
+            noteCache.invalidate(principal.getId(), id, optionalNote.get().getVersion());
             return true;
         }
         return false;
     }
+
+    /*
+     * Applies a batch of note creates, updates and deletes for a user and reports the
+     * outcome of each operation.
+     * 
+     * All notes named by the batch are checked for ownership with a single query, the
+     * content of all creates and updates is encrypted in parallel on the shared
+     * executor, and the writes are flushed in one transaction, so Hibernate sends them
+     * as JDBC batches. Invalid operations, notes that are missing or not owned, and
+     * notes already named by an earlier operation only fail their own item. If the
+     * transaction fails (e.g. a note was changed concurrently), nothing is applied.
+     * 
+     * @param operations the operations to apply, in order (must not be null)
+     * @param principal the user applying the batch (must not be null)
+     * @return one result per operation, in the same order
+     * @throws RuntimeException if encryption or database operation fails
+     */
+    @Transactional
+    public List<NoteBatchResult> applyBatch(List<NoteBatchOperation> operations, UserPrincipal principal) {
+        Long userId = principal.getId();
+        NoteBatchResult[] results = new NoteBatchResult[operations.size()];
+        List<Integer> accepted = new ArrayList<>();
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < operations.size(); i++) {
+            NoteBatchOperation operation = operations.get(i);
+            if (!isValid(operation)) {
+                results[i] = batchResult(operation, HttpStatus.BAD_REQUEST, null);
+            } else if (!"create".equals(operation.getOp()) && !ids.add(operation.getId())) {
+                results[i] = batchResult(operation, HttpStatus.CONFLICT, null);
+            } else {
+                accepted.add(i);
+            }
+        }
+
+        Map<Long, Note> owned = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Note note : noteRepository.findByUserIdAndIdIn(userId, ids)) {
+                owned.put(note.getId(), note);
+            }
+        }
+
+        List<Integer> writes = new ArrayList<>();
+        List<Note> deletes = new ArrayList<>();
+        for (int i : accepted) {
+            NoteBatchOperation operation = operations.get(i);
+            if ("create".equals(operation.getOp())) {
+                writes.add(i);
+            } else if (!owned.containsKey(operation.getId())) {
+                results[i] = batchResult(operation, HttpStatus.NOT_FOUND, null);
+            } else if ("update".equals(operation.getOp())) {
+                writes.add(i);
+            } else {
+                deletes.add(owned.get(operation.getId()));
+                results[i] = batchResult(operation, HttpStatus.NO_CONTENT, null);
+            }
+        }
+
+        List<byte[]> ciphertexts = new ArrayList<>();
+        if (!writes.isEmpty()) {
+            SecretKey writeKey = dataKeyService.getWriteKey(userId);
+            ciphertexts = decryptExecutor.map(writes,
+                i -> aesEncryptionUtil.encryptToBytes(operations.get(i).getContent(), writeKey));
+        }
+
+        List<Note> notes = new ArrayList<>();
+        Map<Long, Long> previousVersions = new HashMap<>();
+        for (int w = 0; w < writes.size(); w++) {
+            NoteBatchOperation operation = operations.get(writes.get(w));
+            Note note;
+            if ("create".equals(operation.getOp())) {
+                note = new Note();
+                note.setUser(userRepository.getReferenceById(userId));
+            } else {
+                note = owned.get(operation.getId());
+                previousVersions.put(note.getId(), note.getVersion());
+            }
+            note.setTitle(operation.getTitle() != null ? operation.getTitle() : "Untitled Note");
+            note.setEncryptedContent(ciphertexts.get(w));
+            notes.add(note);
+        }
+
+        List<Note> saved = noteRepository.saveAll(notes);
+        noteRepository.deleteAll(deletes);
+
+        for (int w = 0; w < writes.size(); w++) {
+            int i = writes.get(w);
+            Note note = saved.get(w);
+            note.setContent(operations.get(i).getContent());
+            results[i] = batchResult(operations.get(i), HttpStatus.OK, note);
+        }
+        previousVersions.forEach((id, version) -> noteCache.invalidate(userId, id, version));
+        for (Note note : deletes) {
+            noteCache.invalidate(userId, note.getId(), note.getVersion());
+        }
+        return Arrays.asList(results);
+    }
+
+    /*
+     * Checks that a batch operation is complete: a known op, an ID for updates and
+     * deletes, and content for creates and updates.
+     * 
+     * @param operation the operation (may be null)
+     * @return true if the operation can be applied
+     */
+    private static boolean isValid(NoteBatchOperation operation) {
+        if (operation == null || operation.getOp() == null) {
+            return false;
+        }
+        switch (operation.getOp()) {
+            case "create":
+                return operation.getContent() != null;
+            case "update":
+                return operation.getId() != null && operation.getContent() != null;
+            case "delete":
+                return operation.getId() != null;
+            default:
+                return false;
+        }
+    }
+
+    /*
+     * Builds the result of a batch operation.
+     * 
+     * @param operation the operation (may be null)
+     * @param status the outcome
+     * @param note the created or updated note, or null
+     * @return the result, naming the note's ID if there is one
+     */
+    private static NoteBatchResult batchResult(NoteBatchOperation operation, HttpStatus status, Note note) {
+        String op = operation != null ? operation.getOp() : null;
+        Long id = note != null ? note.getId() : operation != null ? operation.getId() : null;
+        return new NoteBatchResult(op, id, status.value(), note);
+    }
+
+    /*
+     * Decodes a client's page cursor.
+     * 
+     * @param cursor the opaque cursor, or null (or empty) for the first page
+     * @return the decoded cursor, or null for the first page
+     * @throws ResponseStatusException with 400 Bad Request if the cursor is invalid
+     */
+    private static NoteCursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return NoteCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor.");
+        }
+    }
+
+    /*
+     * Cuts the rows of a page query, which fetches one row more than the page size, down
+     * to the page. The extra row only signals that there is a next page.
+     * 
+     * @param rows the rows fetched, at most limit + 1
+     * @param limit the page size
+     * @param cursorOf gives the cursor of a row
+     * @return the page, with a next cursor if more rows follow
+     */
+    private static <T> NotePage<T> toPage(List<T> rows, int limit, Function<T, NoteCursor> cursorOf) {
+        if (rows.size() <= limit) {
+            return new NotePage<>(rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, limit));
+        return new NotePage<>(items, cursorOf.apply(items.get(limit - 1)).encode());
+    }
+
+    /*
+     * Encrypts note content for its owner, using the owner's data key when envelope
+     * encryption is enabled.
+     * 
+     * @param userId the ID of the note owner
+     * @param content the plaintext content
+     * @return the ciphertext bytes
+     * @throws RuntimeException if encryption fails
+     */
+    private byte[] encryptFor(Long userId, String content) {
+        return aesEncryptionUtil.encryptToBytes(content, dataKeyService.getWriteKey(userId));
+    }
+
+    /*
+     * Decrypts note content for its owner. The owner's data key is only looked up for
+     * envelope-encrypted content.
+     * 
+     * @param userId the ID of the note owner
+     * @param encrypted the ciphertext bytes
+     * @return the plaintext content
+     * @throws RuntimeException if decryption fails
+     */
+    private String decryptFor(Long userId, byte[] encrypted) {
+        return aesEncryptionUtil.decrypt(encrypted, () -> dataKeyService.getDataKey(userId));
+    }
 }
@@ -0,0 +1,186 @@
+package com.example.secure_notes.service;
+
+import com.example.secure_notes.entity.RefreshToken;
+import com.example.secure_notes.entity.User;
+import com.example.secure_notes.repository.RefreshTokenRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+/*
+ * Service for issuing and rotating refresh tokens.
+ *
+ * A refresh token lets a client obtain a new short-lived access token without sending
+ * the password again, so renewing a session costs a hash lookup instead of a BCrypt
+ * verification. Tokens are 256-bit random values stored only as SHA-256 hashes (a
+ * fast hash is enough for values with that much entropy). Every use rotates the
+ * token; presenting an already used token revokes its whole family and all access
+ * tokens of the user, since one of the two holders must have stolen it.
+ */
+@Service
+public class RefreshTokenService {
+
+    /*
+     * The result of a successful rotation: the token's user and the new refresh token.
+     *
+     * @param user the user the token belongs to
+     * @param refreshToken the successor refresh token
+     */
+    public record Rotation(User user, String refreshToken) {
+    }
+
+    /*
+     * Source of token values.
+     */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /*
+     * Repository for refresh token persistence.
+     */
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    /*
+     * Service for revoking access tokens when token reuse is detected.
+     */
+    private final TokenRevocationService revocationService;
+
+    /*
+     * Lifetime of refresh tokens in milliseconds.
+     */
+    private final long refreshLifetimeMillis;
+
+    /*
+     * Constructs a RefreshTokenService with required dependencies.
+     *
+     * @param refreshTokenRepository repository for refresh token persistence
+     * @param revocationService service for revoking access tokens
+     * @param refreshLifetimeMillis lifetime of refresh tokens in milliseconds
+     */
+    @Autowired
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, TokenRevocationService revocationService,
+                               @Value("${jwt.refresh.expiration:1209600000}") long refreshLifetimeMillis) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.revocationService = revocationService;
+        this.refreshLifetimeMillis = refreshLifetimeMillis;
+    }
+
+    /*
+     * Issues the first refresh token of a new family, e.g. on login.
+     *
+     * @param user the user to issue the token to (must have an ID)
+     * @return the opaque refresh token
+     */
+    public String issue(User user) {
+        return issue(user, UUID.randomUUID().toString());
+    }
+
+    /*
+     * Uses a refresh token: marks it as used and issues its successor.
+     *
+     * @param token the opaque refresh token presented by the client
+     * @return the token's user and the new refresh token, or Optional.empty() if the
+     *         token is unknown, expired or was already used
+     */
+    public Optional<Rotation> rotate(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<RefreshToken> stored = refreshTokenRepository.findByTokenHash(hash(token));
+        if (stored.isEmpty()) {
+            return Optional.empty();
+        }
+        RefreshToken refreshToken = stored.get();
+        Instant now = Instant.now();
+        if (!refreshToken.getExpiresAt().isAfter(now)) {
+            return Optional.empty();
+        }
+        if (refreshToken.getUsedAt() != null || refreshTokenRepository.markUsed(refreshToken.getId(), now) == 0) {
+            System.out.println("Refresh token reuse detected for user " + refreshToken.getUser().getId()
+                + "; revoking token family " + refreshToken.getFamilyId());
+            refreshTokenRepository.deleteByFamilyId(refreshToken.getFamilyId());
+            revocationService.revokeAllForUser(refreshToken.getUser().getId());
+            return Optional.empty();
+        }
+        User user = refreshToken.getUser();
+        return Optional.of(new Rotation(user, issue(user, refreshToken.getFamilyId())));
+    }
+
+    /*
+     * Revokes the family of a refresh token, e.g. on logout. Unknown tokens are ignored.
+     *
+     * @param token the opaque refresh token
+     */
+    public void revoke(String token) {
+        if (token != null && !token.isEmpty()) {
+            refreshTokenRepository.findByTokenHash(hash(token))
+                .ifPresent(refreshToken -> refreshTokenRepository.deleteByFamilyId(refreshToken.getFamilyId()));
+        }
+    }
+
+    /*
+     * Revokes every refresh token of a user.
+     *
+     * @param userId the ID of the user
+     */
+    public void revokeAllForUser(Long userId) {
+        refreshTokenRepository.deleteByUserId(userId);
+    }
+
+    /*
+     * Deletes expired refresh tokens.
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh.sweep-ms:3600000}",
+               initialDelayString = "${jwt.refresh.sweep-ms:3600000}")
+    public void deleteExpired() {
+        try {
+            int deleted = refreshTokenRepository.deleteExpired(Instant.now());
+            if (deleted > 0) {
+                System.out.println("Deleted " + deleted + " expired refresh tokens.");
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Refresh token cleanup failed: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Issues a refresh token in a family.
+     *
+     * @param user the user to issue the token to
+     * @param familyId the token family
+     * @return the opaque refresh token
+     */
+    private String issue(User user, String familyId) {
+        byte[] value = new byte[32];
+        RANDOM.nextBytes(value);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(value);
+        Instant now = Instant.now();
+        refreshTokenRepository.save(new RefreshToken(hash(token), user, familyId, now, now.plusMillis(refreshLifetimeMillis)));
+        return token;
+    }
+
+    /*
+     * Hashes a refresh token for storage and lookup.
+     *
+     * @param token the opaque refresh token
+     * @return the Base64url-encoded SHA-256 hash
+     */
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available.", e);
+        }
+    }
+}
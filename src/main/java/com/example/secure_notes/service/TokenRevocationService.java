@@ -0,0 +1,309 @@
+package com.example.secure_notes.service;
+
+import com.example.secure_notes.entity.RevokedToken;
+import com.example.secure_notes.repository.RevokedTokenRepository;
+import com.example.secure_notes.repository.UserRepository;
+import com.example.secure_notes.security.VerifiedTokenCache;
+import com.example.secure_notes.util.BloomFilter;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Service for revoking access tokens before they expire.
+ *
+ * Two kinds of revocation are supported: a single token (logout), identified by its
+ * jti claim, and all tokens of a user issued before a point in time (a per-user
+ * watermark). Both are persisted, and both are checked entirely in memory so that
+ * the request path never queries the database:
+ *  - revoked token IDs are kept in an exact set until the tokens expire, with a
+ *    Bloom filter in front of it so that the common case (a token that was never
+ *    revoked) is answered from a few bits
+ *  - watermarks are kept in a map by user ID for one token lifetime
+ *
+ * The in-memory state is loaded at startup and refreshed periodically, which also
+ * picks up revocations made on other nodes and drops expired entries.
+ */
+@Service
+public class TokenRevocationService {
+
+    /*
+     * How far back each refresh looks, to tolerate clock differences between nodes.
+     */
+    private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+
+    /*
+     * Repository for persisted token revocations.
+     */
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    /*
+     * Repository for per-user revocation watermarks.
+     */
+    private final UserRepository userRepository;
+
+    /*
+     * Cache of verified tokens, cleared whenever a revocation is added.
+     */
+    private final VerifiedTokenCache tokenCache;
+
+    /*
+     * Lifetime of access tokens; watermarks older than this no longer matter.
+     */
+    private final long tokenLifetimeMillis;
+
+    /*
+     * Number of revoked tokens the Bloom filter is sized for.
+     */
+    private final int expectedRevocations;
+
+    /*
+     * Target false-positive rate of the Bloom filter.
+     */
+    private final double falsePositiveRate;
+
+    /*
+     * Revoked token IDs mapped to the tokens' expiry (epoch milliseconds).
+     */
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    /*
+     * Per-user watermarks (epoch milliseconds): tokens issued earlier are revoked.
+     */
+    private final Map<Long, Long> watermarks = new ConcurrentHashMap<>();
+
+    /*
+     * Bloom filter over the IDs in revokedTokens. Replaced (under this service's
+     * monitor) when expired IDs are dropped.
+     */
+    private volatile BloomFilter bloomFilter;
+
+    /*
+     * Start time of the previous refresh.
+     */
+    private volatile Instant lastRefresh;
+
+    /*
+     * Token checks answered by the Bloom filter alone.
+     */
+    private final LongAdder bloomNegatives = new LongAdder();
+
+    /*
+     * Token checks where the Bloom filter matched but the token was not revoked.
+     */
+    private final LongAdder falsePositives = new LongAdder();
+
+    /*
+     * Token checks that found the token or its user revoked.
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    /*
+     * Constructs the service and registers its metrics.
+     *
+     * @param revokedTokenRepository repository for persisted token revocations
+     * @param userRepository repository for per-user watermarks
+     * @param tokenCache cache of verified tokens to clear on revocation
+     * @param meterRegistry registry for revocation check metrics
+     * @param tokenLifetimeMillis lifetime of access tokens in milliseconds
+     * @param expectedRevocations number of revoked tokens the Bloom filter is sized for
+     * @param falsePositiveRate target false-positive rate of the Bloom filter
+     */
+    @Autowired
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository, UserRepository userRepository,
+                                  VerifiedTokenCache tokenCache, MeterRegistry meterRegistry,
+                                  @Value("${jwt.expiration}") long tokenLifetimeMillis,
+                                  @Value("${jwt.revocation.expected-revocations:100000}") int expectedRevocations,
+                                  @Value("${jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.userRepository = userRepository;
+        this.tokenCache = tokenCache;
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.bloomFilter = new BloomFilter(expectedRevocations, falsePositiveRate);
+
+        FunctionCounter.builder("jwt.revocation.checks", bloomNegatives, LongAdder::sum)
+            .tag("result", "bloom_negative")
+            .description("Token revocation checks")
+            .register(meterRegistry);
+        FunctionCounter.builder("jwt.revocation.checks", falsePositives, LongAdder::sum)
+            .tag("result", "false_positive")
+            .description("Token revocation checks")
+            .register(meterRegistry);
+        FunctionCounter.builder("jwt.revocation.checks", rejected, LongAdder::sum)
+            .tag("result", "revoked")
+            .description("Token revocation checks")
+            .register(meterRegistry);
+        Gauge.builder("jwt.revocation.tokens", revokedTokens, Map::size)
+            .description("Revoked, unexpired tokens held in memory")
+            .register(meterRegistry);
+        Gauge.builder("jwt.revocation.watermarks", watermarks, Map::size)
+            .description("Users with a recent revoke-all watermark")
+            .register(meterRegistry);
+    }
+
+    /*
+     * Loads the revocations that are still relevant, before any request is served.
+     */
+    @PostConstruct
+    public void init() {
+        Instant now = Instant.now();
+        loadSince(now.minusMillis(tokenLifetimeMillis), now);
+        lastRefresh = now;
+        System.out.println("Loaded " + revokedTokens.size() + " revoked tokens and "
+            + watermarks.size() + " token watermarks.");
+    }
+
+    /*
+     * Checks whether a verified token has been revoked. Never queries the database.
+     *
+     * @param tokenId the token's jti claim, or null if it has none
+     * @param userId the ID of the token's user, or null if unknown
+     * @param issuedAt the token's iat claim, or null if it has none
+     * @return true if the token or all of its user's earlier tokens were revoked
+     */
+    public boolean isRevoked(String tokenId, Long userId, Date issuedAt) {
+        Long watermark = userId != null ? watermarks.get(userId) : null;
+        if (watermark != null && (issuedAt == null || issuedAt.getTime() < watermark)) {
+            rejected.increment();
+            return true;
+        }
+        if (tokenId == null) {
+            return false;
+        }
+        if (!bloomFilter.mightContain(tokenId)) {
+            bloomNegatives.increment();
+            return false;
+        }
+        if (revokedTokens.containsKey(tokenId)) {
+            rejected.increment();
+            return true;
+        }
+        falsePositives.increment();
+        return false;
+    }
+
+    /*
+     * Revokes a single token until it expires.
+     *
+     * @param tokenId the token's jti claim
+     * @param expiresAt the token's exp claim
+     */
+    public void revoke(String tokenId, Date expiresAt) {
+        Instant expiry = expiresAt.toInstant();
+        if (!expiry.isAfter(Instant.now())) {
+            return;
+        }
+        revokedTokenRepository.save(new RevokedToken(tokenId, expiry, Instant.now()));
+        addRevokedToken(tokenId, expiry.toEpochMilli());
+        tokenCache.clear();
+    }
+
+    /*
+     * Revokes every token of a user issued before the current second.
+     *
+     * The iat claim only has whole seconds, so the watermark is rounded down to the
+     * second: a token issued right after the revocation (e.g. by the next login) has an
+     * iat in the same second and must stay valid. Tokens issued earlier in that same
+     * second are not revoked.
+     *
+     * @param userId the ID of the user
+     * @return true if the user exists, false otherwise
+     */
+    public boolean revokeAllForUser(Long userId) {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        if (userRepository.setTokensRevokedBefore(userId, now) == 0) {
+            return false;
+        }
+        watermarks.merge(userId, now.toEpochMilli(), Math::max);
+        tokenCache.clear();
+        return true;
+    }
+
+    /*
+     * Picks up revocations made on other nodes, drops expired entries and deletes
+     * expired rows.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.refresh-ms:30000}",
+               initialDelayString = "${jwt.revocation.refresh-ms:30000}")
+    public void refresh() {
+        Instant now = Instant.now();
+        try {
+            if (loadSince(lastRefresh.minus(REFRESH_OVERLAP), now)) {
+                tokenCache.clear();
+            }
+            lastRefresh = now;
+            dropExpired(now.toEpochMilli());
+            revokedTokenRepository.deleteExpired(now);
+        } catch (RuntimeException e) {
+            System.out.println("Token revocation refresh failed: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Loads revocations persisted after a point in time.
+     *
+     * @param since only revocations after this time are loaded
+     * @param now the current time
+     * @return true if a revocation not known before was loaded
+     */
+    private boolean loadSince(Instant since, Instant now) {
+        boolean changed = false;
+        for (RevokedToken token : revokedTokenRepository.findActiveRevokedAfter(since, now)) {
+            changed |= addRevokedToken(token.getTokenId(), token.getExpiresAt().toEpochMilli());
+        }
+        for (Object[] row : userRepository.findTokenWatermarksAfter(since)) {
+            Long userId = (Long) row[0];
+            long watermark = ((Instant) row[1]).truncatedTo(ChronoUnit.SECONDS).toEpochMilli();
+            Long previous = watermarks.get(userId);
+            if (previous == null || previous < watermark) {
+                watermarks.merge(userId, watermark, Math::max);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /*
+     * Adds a revoked token to the exact set and the Bloom filter.
+     *
+     * @param tokenId the token's jti claim
+     * @param expiresAtMillis the token's expiry in epoch milliseconds
+     * @return true if the token was not known to be revoked before
+     */
+    private synchronized boolean addRevokedToken(String tokenId, long expiresAtMillis) {
+        boolean added = revokedTokens.put(tokenId, expiresAtMillis) == null;
+        bloomFilter.put(tokenId);
+        return added;
+    }
+
+    /*
+     * Drops expired tokens and outdated watermarks from memory and, if any token was
+     * dropped, rebuilds the Bloom filter from the remaining tokens.
+     *
+     * @param nowMillis the current time in epoch milliseconds
+     */
+    private synchronized void dropExpired(long nowMillis) {
+        watermarks.values().removeIf(watermark -> watermark <= nowMillis - tokenLifetimeMillis);
+        if (revokedTokens.values().removeIf(expiresAt -> expiresAt <= nowMillis)) {
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, revokedTokens.size()), falsePositiveRate);
+            revokedTokens.keySet().forEach(rebuilt::put);
+            bloomFilter = rebuilt;
+        }
+    }
+}
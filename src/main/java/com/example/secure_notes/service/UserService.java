@@ -2,6 +2,7 @@ package com.example.secure_notes.service;
 
 import com.example.secure_notes.entity.User;
 import com.example.secure_notes.repository.UserRepository;
+import com.example.secure_notes.security.CustomUserDetailsService;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
@@ -17,13 +18,20 @@ public class UserService {
      */
     private final UserRepository userRepository;
 
+    /*
+     * User details service whose cached copy of a user must be dropped on changes.
+     */
+    private final CustomUserDetailsService userDetailsService;
+
     /*
      * Constructs a UserService with the required repository. 
      * 
      * @param userRepository the repository for user data operations
+     * @param userDetailsService the user details service caching loaded users
      */
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, CustomUserDetailsService userDetailsService) {
         this.userRepository = userRepository;
+        this.userDetailsService = userDetailsService;
     }
 
     /*
@@ -38,7 +46,8 @@ public class UserService {
     }
 
     /*
-     * Saves a user entity to the database.
+     * Saves a user entity to the database. The user's cached details are dropped, so a
+     * changed password or role takes effect on the next login.
      * 
      * @param user the user entity to save (must not be null)
      * @return the saved user entity with generated ID if new, or updated state if existing
@@ -47,6 +56,8 @@ public class UserService {
      * @throws DataAccessException if database operation fails
      */
     public User save(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userDetailsService.invalidate(saved.getUsername());
+        return saved;
     }
 }
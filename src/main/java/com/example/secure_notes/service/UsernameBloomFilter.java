@@ -0,0 +1,94 @@
+package com.example.secure_notes.service;
+
+import com.example.secure_notes.repository.UserRepository;
+import com.example.secure_notes.util.BloomFilter;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/*
+ * In-memory Bloom filter over the usernames that are taken.
+ *
+ * Lets signup tell a username that is certainly free (the common case) from one
+ * that may be taken without a database query. It is loaded at startup and updated
+ * by this node's signups; usernames taken on other nodes since startup are missing,
+ * which is harmless because the unique constraint on users.username still decides.
+ */
+@Component
+public class UsernameBloomFilter {
+
+    /*
+     * Number of usernames read per query at startup.
+     */
+    private static final int PAGE_SIZE = 10000;
+
+    /*
+     * Repository for loading the existing usernames.
+     */
+    private final UserRepository userRepository;
+
+    /*
+     * The filter; usernames are only ever added.
+     */
+    private final BloomFilter bloomFilter;
+
+    /*
+     * Constructs the filter; usernames are loaded by init().
+     *
+     * @param userRepository repository for loading the existing usernames
+     * @param expectedUsers number of usernames the filter is sized for
+     * @param falsePositiveRate target false-positive rate of the filter
+     */
+    @Autowired
+    public UsernameBloomFilter(UserRepository userRepository,
+                               @Value("${auth.signup.expected-users:1000000}") int expectedUsers,
+                               @Value("${auth.signup.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.userRepository = userRepository;
+        this.bloomFilter = new BloomFilter(expectedUsers, falsePositiveRate);
+    }
+
+    /*
+     * Loads the existing usernames, before any request is served. They are read in
+     * pages, so only one page is held in memory at a time.
+     */
+    @PostConstruct
+    public void init() {
+        int count = 0;
+        long lastId = 0;
+        List<Object[]> rows = userRepository.findUsernamesAfter(lastId, PageRequest.of(0, PAGE_SIZE));
+        while (!rows.isEmpty()) {
+            for (Object[] row : rows) {
+                bloomFilter.put((String) row[1]);
+                lastId = (Long) row[0];
+            }
+            count += rows.size();
+            rows = rows.size() < PAGE_SIZE ? List.of() : userRepository.findUsernamesAfter(lastId, PageRequest.of(0, PAGE_SIZE));
+        }
+        System.out.println("Loaded " + count + " usernames into the signup filter.");
+    }
+
+    /*
+     * Checks whether a username may be taken.
+     *
+     * @param username the username to check
+     * @return false if the username is certainly free (as of this node's knowledge),
+     *         true if it may be taken
+     */
+    public boolean mightBeTaken(String username) {
+        return bloomFilter.mightContain(username);
+    }
+
+    /*
+     * Records a username that was just taken.
+     *
+     * @param username the new user's username
+     */
+    public void add(String username) {
+        bloomFilter.put(username);
+    }
+}
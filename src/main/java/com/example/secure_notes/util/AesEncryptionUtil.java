@@ -6,12 +6,59 @@ import org.springframework.stereotype.Component;
 import jakarta.annotation.PostConstruct;
 
 import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.function.Supplier;
+import java.util.zip.DataFormatException;
 
 /*
  * Utility class for AES encryption and decryption of note content.
- * 
+ *
+ * New content is written in an authenticated AES-GCM format:
+ *
+ *  [version (1 byte)][key id (1 byte, VERSION_KEYED only)][IV (12 bytes)][ciphertext + GCM tag (16 bytes)]
+ *
+ * The version byte identifies the key:
+ *  VERSION_KEYED content names the shared key it was encrypted with by key id, so
+ *   notes under an old aes.secret stay readable while they are re-encrypted
+ *  VERSION_ENVELOPE content is encrypted with the owner's data key (see DataKeyService)
+ *  VERSION_GCM content (written before key ids existed) uses the legacy key
+ *
+ * When compression is enabled, GCM content at or above aes.compression.min-size is
+ * Deflate-compressed before encryption (see NoteCompressor). Compressed content has
+ * COMPRESSED_FLAG set in the version byte, and the version byte is then also bound
+ * into the GCM tag as associated data so the flag cannot be flipped. Note that
+ * compression makes ciphertext length depend on content, which matters only if an
+ * attacker can mix chosen text into a note and observe its stored size.
+ *
+ * Text is always encoded as UTF-8. The String and byte[] methods run on the same
+ * ByteBuffer engine as the public ByteBuffer overloads: plaintext is staged in pooled
+ * scratch buffers (zeroed on release) and ciphertext is written straight into an
+ * output array sized exactly for it, so a round trip does not copy the note
+ * several times.
+ *
+ * Content written before the GCM format was introduced is AES/ECB ciphertext
+ * encrypted with the legacy key. It was stored Base64-encoded without a header; it is
+ * tagged with VERSION_ECB (see tagLegacy) when it is read from or moved out of that
+ * column, and ECB content written now carries the tag too. decrypt() reads all formats,
+ * so existing notes keep working while they are migrated. The format is taken from the
+ * version byte alone: GCM content that fails authentication is rejected, never retried
+ * as ECB.
+ *
+ * Key configuration:
+ *  aes.secret / aes.key-id       the active shared key and its id (1-255)
+ *  aes.retired-keys              older keys still needed for reads, as "id:secret,id:secret"
+ *  aes.legacy-key-id             id of the key that wrote content without a key id
+ *                                (VERSION_ECB and VERSION_GCM); defaults to aes.key-id
  */
 
 @Component
@@ -22,10 +69,70 @@ public class AesEncryptionUtil {
     private static final String ALGORITHM = "AES";
 
     /*
-     * The AES secret key specification used for encryption and decryption.
+     * Transformation for the legacy format (the provider default for "AES" is ECB/PKCS5Padding).
+     */
+    private static final String LEGACY_TRANSFORMATION = ALGORITHM;
+
+    /*
+     * Transformation for the authenticated format.
+     */
+    private static final String GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+
+    /*
+     * Version byte of GCM ciphertext encrypted with the legacy shared key (no key id).
+     */
+    public static final byte VERSION_GCM = 0x01;
+
+    /*
+     * Version byte written at the front of GCM ciphertext encrypted with a per-user data key.
+     */
+    public static final byte VERSION_ENVELOPE = 0x02;
+
+    /*
+     * Version byte of GCM ciphertext encrypted with the shared key named by the key id byte.
+     */
+    public static final byte VERSION_KEYED = 0x03;
+
+    /*
+     * Bit set in the version byte when the plaintext was compressed before encryption.
+     */
+    public static final byte COMPRESSED_FLAG = (byte) 0x80;
+
+    /*
+     * Version byte of legacy AES/ECB ciphertext encrypted with the legacy key.
+     */
+    public static final byte VERSION_ECB = 0x04;
+
+    /*
+     * Length of the random per-note GCM IV in bytes.
+     */
+    private static final int GCM_IV_LENGTH = 12;
+
+    /*
+     * Length of the GCM authentication tag in bits.
+     */
+    private static final int GCM_TAG_BITS = 128;
+
+    /*
+     * Source of per-note IVs. SecureRandom is thread-safe.
+     */
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    /*
+     * Shared keys by key id. Holds the active key and any retired keys.
+     */
+    private final SecretKey[] keyRing = new SecretKey[256];
+
+    /*
+     * The active shared key used for new content.
      */
     private SecretKeySpec secretKeySpec;
 
+    /*
+     * The key used by legacy content without a key id (ECB and VERSION_GCM).
+     */
+    private SecretKey legacyKey;
+
     /*
      * The secret key string injected from application.properties.
      */
@@ -33,43 +140,253 @@ public class AesEncryptionUtil {
     private  String SECRET_KEY;
 
     /*
-     * Initializes the AES encryption key after dependency injection.
-     * 
-     * @throws IllegalArgumentException if the secret key is not 16, 24, or 32 bytes
+     * The key id of aes.secret, written into VERSION_KEYED ciphertext.
+     */
+    @Value("${aes.key-id:1}")
+    private int keyId = 1;
+
+    /*
+     * Retired keys that are still needed to read existing notes, as "id:secret,id:secret".
+     */
+    @Value("${aes.retired-keys:}")
+    private String retiredKeys = "";
+
+    /*
+     * The key id of the key that wrote content without a key id, or 0 for aes.key-id.
+     */
+    @Value("${aes.legacy-key-id:0}")
+    private int legacyKeyId;
+
+    /*
+     * The format used for new ciphertext: "gcm" (default) or "ecb".
+     *
+     * Setting "ecb" keeps writing the legacy cipher (with the legacy key and the
+     * VERSION_ECB tag), which is useful during a rolling deploy while older nodes that
+     * cannot read GCM are still serving traffic.
+     */
+    @Value("${aes.write-format:gcm}")
+    private String writeFormat = "gcm";
+
+    /*
+     * The maximum number of idle Cipher instances kept for reuse.
+     */
+    @Value("${aes.cipher-pool.max-idle:64}")
+    private int cipherPoolMaxIdle = 64;
+
+    /*
+     * Whether new GCM content is compressed before encryption. Compressed content is
+     * always readable, whatever this is set to.
+     */
+    @Value("${aes.compression.enabled:false}")
+    private boolean compressionEnabled;
+
+    /*
+     * Minimum plaintext size in bytes that is compressed.
+     */
+    @Value("${aes.compression.min-size:256}")
+    private int compressionMinSize = 256;
+
+    /*
+     * Deflater level used for compression (-1 for the zlib default, 1 fastest, 9 smallest).
+     */
+    @Value("${aes.compression.level:-1}")
+    private int compressionLevel = -1;
+
+    /*
+     * Compression stage for note content.
+     */
+    private NoteCompressor compressor;
+
+    /*
+     * The maximum number of idle plaintext scratch buffers kept for reuse.
+     */
+    @Value("${aes.buffer-pool.max-idle:64}")
+    private int bufferPoolMaxIdle = 64;
+
+    /*
+     * The largest scratch buffer kept for reuse; bigger notes use one-off buffers.
+     */
+    @Value("${aes.buffer-pool.max-buffer-size:262144}")
+    private int bufferPoolMaxBufferSize = 262144;
+
+    /*
+     * Pool of plaintext scratch buffers.
+     */
+    private ByteBufferPool bufferPool;
+
+    /*
+     * Pool of reusable legacy (ECB) Cipher instances.
+     */
+    private CipherPool cipherPool;
+
+    /*
+     * Pool of reusable GCM Cipher instances.
+     */
+    private CipherPool gcmCipherPool;
+
+    /*
+     * Initializes the AES key ring after dependency injection.
+     *
+     * @throws IllegalArgumentException if a key is not 16, 24, or 32 bytes, a key id is
+     *         outside 1-255 or unknown, or the write format is not "gcm" or "ecb"
      * @throws NullPointerException if SECRET_KEY was not injected (missing config)
      */
     @PostConstruct
     public void init() {
-        byte[] keyBytes = SECRET_KEY.getBytes();
+        if (!"gcm".equalsIgnoreCase(writeFormat) && !"ecb".equalsIgnoreCase(writeFormat)) {
+            throw new IllegalArgumentException("aes.write-format must be gcm or ecb.");
+        }
+        this.secretKeySpec = toKey(SECRET_KEY);
+        addToKeyRing(keyId, secretKeySpec);
+        if (retiredKeys != null && !retiredKeys.isBlank()) {
+            for (String entry : retiredKeys.split(",")) {
+                int separator = entry.indexOf(':');
+                if (separator <= 0) {
+                    throw new IllegalArgumentException("aes.retired-keys entries must be id:secret.");
+                }
+                addToKeyRing(Integer.parseInt(entry.substring(0, separator).trim()), toKey(entry.substring(separator + 1).trim()));
+            }
+        }
+        int legacyId = legacyKeyId > 0 ? legacyKeyId : keyId;
+        if (legacyId > 255 || keyRing[legacyId] == null) {
+            throw new IllegalArgumentException("aes.legacy-key-id does not name a configured key.");
+        }
+        this.legacyKey = keyRing[legacyId];
+        this.cipherPool = new CipherPool(LEGACY_TRANSFORMATION, cipherPoolMaxIdle);
+        this.gcmCipherPool = new CipherPool(GCM_TRANSFORMATION, cipherPoolMaxIdle);
+        this.compressor = new NoteCompressor(compressionLevel, compressionMinSize);
+        this.bufferPool = new ByteBufferPool(bufferPoolMaxIdle, bufferPoolMaxBufferSize);
+    }
+
+    /*
+     * Gets the compression stage, e.g. to report its statistics.
+     *
+     * @return the note compressor
+     */
+    public NoteCompressor getCompressor() {
+        return compressor;
+    }
+
+    /*
+     * Builds an AES key from a configured secret string.
+     *
+     * @param secret the secret string
+     * @return the AES key
+     * @throws IllegalArgumentException if the secret is not 16, 24, or 32 bytes
+     */
+    private static SecretKeySpec toKey(String secret) {
+        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
         if (keyBytes.length != 16 && keyBytes.length != 24 && keyBytes.length != 32) {
             throw new IllegalArgumentException("AES key must be 16, 24, or 32 bytes.");
         }
-        this.secretKeySpec = new SecretKeySpec(keyBytes, ALGORITHM);
+        return new SecretKeySpec(keyBytes, ALGORITHM);
+    }
+
+    /*
+     * Registers a shared key under its key id.
+     *
+     * @param id the key id (1-255)
+     * @param key the AES key
+     * @throws IllegalArgumentException if the id is out of range or already used
+     */
+    private void addToKeyRing(int id, SecretKey key) {
+        if (id < 1 || id > 255) {
+            throw new IllegalArgumentException("AES key ids must be between 1 and 255.");
+        }
+        if (keyRing[id] != null) {
+            throw new IllegalArgumentException("Duplicate AES key id: " + id);
+        }
+        keyRing[id] = key;
+    }
+
+    /*
+     * Tags legacy ECB ciphertext, as stored in the Base64 content column without a
+     * header, so that decrypt() reads it as ECB.
+     *
+     * @param ecbCiphertext the bare ECB ciphertext (must not be null)
+     * @return the ciphertext prefixed with VERSION_ECB
+     */
+    public static byte[] tagLegacy(byte[] ecbCiphertext) {
+        byte[] tagged = new byte[ecbCiphertext.length + 1];
+        tagged[0] = VERSION_ECB;
+        System.arraycopy(ecbCiphertext, 0, tagged, 1, ecbCiphertext.length);
+        return tagged;
     }
 
     /*
      * Ecrypts plaintext content using AES encryption. Returns a Base64-encoded encrypted
      * string.
-     * 
+     *
      * @param plainText the plaintext string to encrypt (must not be null)
      * @return Base64-encoded encrypted string safe for storage
      * @throws RuntimeException if encryption fails for any reason (wraps underlying exceptions)
      * @throws NullPointerException if plainText is null
      */
     public String encrypt(String plainText) {
+        return Base64.getEncoder().encodeToString(encryptToBytes(plainText));
+    }
+
+    /*
+     * Encrypts plaintext content to raw ciphertext bytes for binary (bytea) storage.
+     *
+     * @param plainText the plaintext string to encrypt (must not be null)
+     * @return the ciphertext bytes in the configured write format
+     * @throws RuntimeException if encryption fails for any reason (wraps underlying exceptions)
+     * @throws NullPointerException if plainText is null
+     */
+    public byte[] encryptToBytes(String plainText) {
+        return encryptToBytes(plainText, null);
+    }
+
+    /*
+     * Encrypts plaintext content to raw ciphertext bytes with a per-user data key.
+     *
+     * @param plainText the plaintext string to encrypt (must not be null)
+     * @param dataKey the owner's data key, or null to use the shared aes.secret key
+     * @return the ciphertext bytes
+     * @throws RuntimeException if encryption fails for any reason (wraps underlying exceptions)
+     * @throws NullPointerException if plainText is null
+     */
+    public byte[] encryptToBytes(String plainText, SecretKey dataKey) {
+        ByteBuffer plain = encodeUtf8(plainText);
         try {
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKeySpec);
-            byte[] encrypted = cipher.doFinal(plainText.getBytes());
-            return Base64.getEncoder().encodeToString(encrypted);
-        } catch (Exception e) {
-            throw new RuntimeException("Error encrypting note", e);
+            return encryptInto(plain, dataKey, null).array();
+        } finally {
+            bufferPool.release(plain);
         }
     }
 
+    /*
+     * Encrypts the remaining bytes of a buffer into an output buffer. Both buffers can
+     * be reused across calls; nothing proportional to the note size is allocated
+     * unless the content is compressed.
+     *
+     * @param plain the plaintext bytes (UTF-8 for text); consumed by this call
+     * @param out the buffer to write the ciphertext to; needs maxEncryptedSize() bytes remaining
+     * @param dataKey the owner's data key, or null to use the shared aes.secret key
+     * @return the number of ciphertext bytes written
+     * @throws IllegalArgumentException if out is too small
+     * @throws RuntimeException if encryption fails for any reason (wraps underlying exceptions)
+     */
+    public int encrypt(ByteBuffer plain, ByteBuffer out, SecretKey dataKey) {
+        int start = out.position();
+        encryptInto(plain, dataKey, out);
+        return out.position() - start;
+    }
+
+    /*
+     * Gets an upper bound for the ciphertext size of a plaintext, in any write format.
+     *
+     * @param plainLength the plaintext length in bytes
+     * @return the largest number of bytes encrypt() can write for it
+     */
+    public int maxEncryptedSize(int plainLength) {
+        return 2 + GCM_IV_LENGTH + plainLength + GCM_TAG_BITS / 8;
+    }
+
     /*
      * Decrypts AES-encrypted content back to plaintext.
-     * 
+     *
      * @param encryptedText the Base64-encoded encrypted string to decrypt (must not be null)
      * @return the original plaintext string
      * @throws RuntimeException if decryption fails for any reason (wraps underlying exceptions)
@@ -77,13 +394,366 @@ public class AesEncryptionUtil {
      * @throws IllegalArgumentException if encryptedText is not valid Base64
      */
     public String decrypt(String encryptedText) {
+        return decrypt(Base64.getDecoder().decode(encryptedText));
+    }
+
+    /*
+     * Decrypts raw ciphertext bytes encrypted with a shared key.
+     *
+     * @param encrypted the ciphertext bytes to decrypt (must not be null)
+     * @return the original plaintext string
+     * @throws RuntimeException if decryption fails for any reason (wraps underlying exceptions)
+     * @throws NullPointerException if encrypted is null
+     */
+    public String decrypt(byte[] encrypted) {
+        return decrypt(encrypted, () -> null);
+    }
+
+    /*
+     * Decrypts raw ciphertext bytes back to plaintext.
+     *
+     * Content that carries a GCM version byte is decrypted and authenticated as GCM
+     * with the key the header names; content tagged VERSION_ECB is decrypted as legacy
+     * ECB. Content that fails GCM authentication, or has an unknown version byte or
+     * key id, is rejected.
+     *
+     * @param encrypted the ciphertext bytes to decrypt (must not be null)
+     * @param dataKey supplies the owner's data key (or null if there is none); only
+     *        called for envelope-encrypted content
+     * @return the original plaintext string
+     * @throws RuntimeException if decryption fails for any reason (wraps underlying exceptions)
+     * @throws NullPointerException if encrypted is null
+     */
+    public String decrypt(byte[] encrypted, Supplier<SecretKey> dataKey) {
+        ByteBuffer plain = decryptToScratch(ByteBuffer.wrap(encrypted), dataKey);
+        try {
+            return new String(plain.array(), plain.arrayOffset() + plain.position(), plain.remaining(), StandardCharsets.UTF_8);
+        } finally {
+            bufferPool.release(plain);
+        }
+    }
+
+    /*
+     * Decrypts the remaining bytes of a buffer into an output buffer. Both buffers can
+     * be reused across calls.
+     *
+     * @param encrypted the ciphertext bytes; consumed by this call
+     * @param out the buffer to write the plaintext to; the plaintext of uncompressed
+     *        content is never longer than the ciphertext
+     * @param dataKey supplies the owner's data key (or null if there is none); only
+     *        called for envelope-encrypted content
+     * @return the number of plaintext bytes written
+     * @throws IllegalArgumentException if out is too small
+     * @throws RuntimeException if decryption fails for any reason (wraps underlying exceptions)
+     */
+    public int decrypt(ByteBuffer encrypted, ByteBuffer out, Supplier<SecretKey> dataKey) {
+        ByteBuffer plain = decryptToScratch(encrypted, dataKey);
+        try {
+            int length = plain.remaining();
+            if (out.remaining() < length) {
+                throw new IllegalArgumentException("Output buffer too small: " + length + " bytes needed");
+            }
+            out.put(plain);
+            return length;
+        } finally {
+            bufferPool.release(plain);
+        }
+    }
+
+    /*
+     * Checks whether ciphertext is already in the format new content would be written
+     * in, i.e. whether re-encrypting it during a key rotation would change anything.
+     *
+     * The header is authenticated by decrypting, so legacy ciphertext that only looks
+     * like the current format is reported as not current.
+     *
+     * @param encrypted the ciphertext bytes (must not be null)
+     * @param dataKey the owner's data key if new content is envelope-encrypted, or null
+     *        if it is written with the active shared key
+     * @return true if the content is in the current format under the current key
+     */
+    public boolean isCurrentFormat(byte[] encrypted, SecretKey dataKey) {
+        if (encrypted.length == 0 || encrypted.length < headerLength(encrypted[0]) + GCM_TAG_BITS / 8) {
+            return false;
+        }
+        byte version = (byte) (encrypted[0] & ~COMPRESSED_FLAG);
+        boolean headerMatches = dataKey != null
+            ? version == VERSION_ENVELOPE
+            : version == VERSION_KEYED && keyRing[encrypted[1] & 0xff] == secretKeySpec;
+        if (!headerMatches) {
+            return false;
+        }
+        ByteBuffer plain = bufferPool.acquire(encrypted.length);
+        try {
+            decryptGcm(dataKey != null ? dataKey : secretKeySpec, ByteBuffer.wrap(encrypted), plain);
+            return true;
+        } catch (GeneralSecurityException e) {
+            return false;
+        } finally {
+            bufferPool.release(plain);
+        }
+    }
+
+    /*
+     * Encodes text as UTF-8 into a pooled scratch buffer.
+     *
+     * @param text the text to encode
+     * @return a flipped buffer holding the UTF-8 bytes; release it to the pool when done
+     */
+    private ByteBuffer encodeUtf8(String text) {
+        long maxBytes = (long) text.length() * 3;
+        if (maxBytes > bufferPool.getMaxRetainedCapacity()) {
+            return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        }
+        ByteBuffer buffer = bufferPool.acquire((int) maxBytes);
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        encoder.encode(CharBuffer.wrap(text), buffer, true);
+        encoder.flush(buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    /*
+     * Encrypts plaintext in the configured write format, compressing it first when
+     * compression is enabled and worthwhile.
+     *
+     * @param plain the plaintext bytes; consumed by this call
+     * @param dataKey the owner's data key, or null to use the shared aes.secret key
+     * @param out the buffer to write to, or null to allocate an exactly sized one
+     * @return the buffer the ciphertext was written to
+     * @throws IllegalArgumentException if out is too small
+     * @throws RuntimeException if encryption fails for any reason (wraps underlying exceptions)
+     */
+    private ByteBuffer encryptInto(ByteBuffer plain, SecretKey dataKey, ByteBuffer out) {
         try {
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.DECRYPT_MODE, secretKeySpec);
-            byte[] decrypted = cipher.doFinal(Base64.getDecoder().decode(encryptedText));
-            return new String(decrypted);
-        } catch (Exception e) {
+            byte version = dataKey != null ? VERSION_ENVELOPE
+                : "ecb".equalsIgnoreCase(writeFormat) ? VERSION_ECB : VERSION_KEYED;
+            byte[] compressed = version != VERSION_ECB && compressionEnabled ? compressor.compress(plain) : null;
+            ByteBuffer payload = plain;
+            if (compressed != null) {
+                version |= COMPRESSED_FLAG;
+                payload = ByteBuffer.wrap(compressed);
+                plain.position(plain.limit());
+            }
+
+            int length = version == VERSION_ECB
+                ? 1 + (payload.remaining() / 16 + 1) * 16
+                : headerLength(version) + payload.remaining() + GCM_TAG_BITS / 8;
+            if (out == null) {
+                out = ByteBuffer.allocate(length);
+            } else if (out.remaining() < length) {
+                throw new IllegalArgumentException("Output buffer too small: " + length + " bytes needed");
+            }
+
+            if (version == VERSION_ECB) {
+                out.put(VERSION_ECB);
+                encryptLegacy(payload, out);
+            } else {
+                encryptGcm(version, dataKey != null ? dataKey : secretKeySpec, payload, out);
+            }
+            return out;
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Error encrypting note", e);
+        }
+    }
+
+    /*
+     * Decrypts ciphertext in any supported format into a pooled scratch buffer,
+     * decompressing it if needed.
+     *
+     * @param encrypted the ciphertext bytes; consumed by this call
+     * @param dataKey supplies the owner's data key for envelope-encrypted content
+     * @return a flipped buffer holding the plaintext; release it to the pool when done
+     * @throws RuntimeException if decryption fails for any reason (wraps underlying exceptions)
+     */
+    private ByteBuffer decryptToScratch(ByteBuffer encrypted, Supplier<SecretKey> dataKey) {
+        try {
+            if (encrypted.hasRemaining() && encrypted.get(encrypted.position()) == VERSION_ECB) {
+                encrypted.get();
+                ByteBuffer plain = bufferPool.acquire(encrypted.remaining());
+                try {
+                    decryptLegacy(encrypted, plain);
+                    plain.flip();
+                    return plain;
+                } catch (GeneralSecurityException e) {
+                    bufferPool.release(plain);
+                    throw e;
+                }
+            }
+
+            int start = encrypted.position();
+            SecretKey key = gcmKeyFor(encrypted, dataKey);
+            if (key == null) {
+                throw new GeneralSecurityException("Unknown note format or key");
+            }
+            ByteBuffer plain = bufferPool.acquire(encrypted.remaining());
+            try {
+                decryptGcm(key, encrypted, plain);
+                plain.flip();
+            } catch (GeneralSecurityException e) {
+                bufferPool.release(plain);
+                throw e;
+            }
+            return (encrypted.get(start) & COMPRESSED_FLAG) != 0 ? inflate(plain) : plain;
+        } catch (GeneralSecurityException | DataFormatException e) {
             throw new RuntimeException("Error decrypting note", e);
         }
     }
+
+    /*
+     * Decompresses a scratch buffer into a new scratch buffer and releases the input.
+     *
+     * @param compressed a flipped buffer holding compressed plaintext
+     * @return a flipped buffer holding the original plaintext
+     * @throws DataFormatException if the compressed data is invalid
+     */
+    private ByteBuffer inflate(ByteBuffer compressed) throws DataFormatException {
+        try {
+            ByteBuffer plain = bufferPool.acquire(compressor.decompressedLength(compressed));
+            try {
+                compressor.decompress(compressed, plain);
+                plain.flip();
+                return plain;
+            } catch (DataFormatException | RuntimeException e) {
+                bufferPool.release(plain);
+                throw e;
+            }
+        } finally {
+            bufferPool.release(compressed);
+        }
+    }
+
+    /*
+     * Finds the GCM key named by a ciphertext header.
+     *
+     * @param encrypted the raw ciphertext bytes (from its position)
+     * @param dataKey supplies the owner's data key for envelope-encrypted content
+     * @return the key, or null if the bytes do not carry a GCM header or the key is unknown
+     */
+    private SecretKey gcmKeyFor(ByteBuffer encrypted, Supplier<SecretKey> dataKey) {
+        int start = encrypted.position();
+        if (!encrypted.hasRemaining() || encrypted.remaining() < headerLength(encrypted.get(start)) + GCM_TAG_BITS / 8) {
+            return null;
+        }
+        switch ((byte) (encrypted.get(start) & ~COMPRESSED_FLAG)) {
+            case VERSION_GCM:
+                return legacyKey;
+            case VERSION_ENVELOPE:
+                return dataKey.get();
+            case VERSION_KEYED:
+                return keyRing[encrypted.get(start + 1) & 0xff];
+            default:
+                return null;
+        }
+    }
+
+    /*
+     * Gets the length of the header (version byte, optional key id and IV) for a version.
+     *
+     * @param version the version byte, with or without COMPRESSED_FLAG
+     * @return the header length in bytes
+     */
+    private static int headerLength(byte version) {
+        return ((version & ~COMPRESSED_FLAG) == VERSION_KEYED ? 2 : 1) + GCM_IV_LENGTH;
+    }
+
+    /*
+     * Encrypts bytes in the GCM format with a fresh random IV.
+     *
+     * @param version the version byte identifying the key (with COMPRESSED_FLAG if the
+     *        payload is compressed)
+     * @param key the AES key to encrypt with
+     * @param plain the plaintext or compressed payload; consumed by this call
+     * @param out receives the header (version, key id for VERSION_KEYED, IV) and
+     *        ciphertext with tag
+     * @return the number of bytes written
+     * @throws GeneralSecurityException if the cipher cannot be initialized or run
+     */
+    private int encryptGcm(byte version, SecretKey key, ByteBuffer plain, ByteBuffer out) throws GeneralSecurityException {
+        byte[] iv = new byte[GCM_IV_LENGTH];
+        SECURE_RANDOM.nextBytes(iv);
+
+        Cipher cipher = gcmCipherPool.acquire();
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, iv));
+            out.put(version);
+            if ((version & ~COMPRESSED_FLAG) == VERSION_KEYED) {
+                out.put((byte) keyId);
+            }
+            out.put(iv);
+            if ((version & COMPRESSED_FLAG) != 0) {
+                cipher.updateAAD(new byte[] {version});
+            }
+            return headerLength(version) + cipher.doFinal(plain, out);
+        } finally {
+            gcmCipherPool.release(cipher);
+        }
+    }
+
+    /*
+     * Decrypts and authenticates bytes written in the GCM format.
+     *
+     * @param key the AES key the content was encrypted with
+     * @param encrypted header and ciphertext with tag; consumed by this call
+     * @param out receives the plaintext (still compressed if COMPRESSED_FLAG is set)
+     * @return the number of bytes written
+     * @throws GeneralSecurityException if authentication fails or the cipher cannot run
+     */
+    private int decryptGcm(SecretKey key, ByteBuffer encrypted, ByteBuffer out) throws GeneralSecurityException {
+        int start = encrypted.position();
+        byte version = encrypted.get(start);
+        int headerLength = headerLength(version);
+        byte[] iv = new byte[GCM_IV_LENGTH];
+        encrypted.get(start + headerLength - GCM_IV_LENGTH, iv);
+
+        Cipher cipher = gcmCipherPool.acquire();
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, iv));
+            if ((version & COMPRESSED_FLAG) != 0) {
+                cipher.updateAAD(new byte[] {version});
+            }
+            encrypted.position(start + headerLength);
+            return cipher.doFinal(encrypted, out);
+        } finally {
+            gcmCipherPool.release(cipher);
+        }
+    }
+
+    /*
+     * Encrypts bytes in the legacy ECB format with the legacy key.
+     *
+     * @param plain the plaintext bytes; consumed by this call
+     * @param out receives the ECB ciphertext (without the VERSION_ECB tag)
+     * @return the number of bytes written
+     * @throws GeneralSecurityException if the cipher cannot be initialized or run
+     */
+    private int encryptLegacy(ByteBuffer plain, ByteBuffer out) throws GeneralSecurityException {
+        Cipher cipher = cipherPool.acquire();
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, legacyKey);
+            return cipher.doFinal(plain, out);
+        } finally {
+            cipherPool.release(cipher);
+        }
+    }
+
+    /*
+     * Decrypts bytes written in the legacy ECB format with the legacy key.
+     *
+     * @param encrypted the ECB ciphertext after the VERSION_ECB tag; consumed by this call
+     * @param out receives the plaintext bytes
+     * @return the number of bytes written
+     * @throws GeneralSecurityException if the padding is invalid or the cipher cannot run
+     */
+    private int decryptLegacy(ByteBuffer encrypted, ByteBuffer out) throws GeneralSecurityException {
+        Cipher cipher = cipherPool.acquire();
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, legacyKey);
+            return cipher.doFinal(encrypted, out);
+        } finally {
+            cipherPool.release(cipher);
+        }
+    }
 }
@@ -0,0 +1,109 @@
+package com.example.secure_notes.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Thread-safe Bloom filter over strings.
+ *
+ * Answers "definitely not present" or "possibly present" in constant time without
+ * holding the strings themselves. It is sized for an expected number of insertions
+ * and a target false-positive probability; inserting more than expected raises the
+ * false-positive rate but never causes false negatives. Entries cannot be removed,
+ * so callers rebuild the filter when its contents shrink.
+ */
+public class BloomFilter {
+
+    /*
+     * The bit array.
+     */
+    private final AtomicLongArray bits;
+
+    /*
+     * Number of bits in the array.
+     */
+    private final long bitCount;
+
+    /*
+     * Number of bit positions set per entry.
+     */
+    private final int hashCount;
+
+    /*
+     * Creates a filter.
+     *
+     * @param expectedInsertions the number of entries the filter is sized for (must be positive)
+     * @param falsePositiveRate the target false-positive probability, between 0 and 1
+     * @throws IllegalArgumentException if either argument is out of range
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter size or false-positive rate.");
+        }
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) >>> 6));
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * ln2));
+    }
+
+    /*
+     * Adds an entry.
+     *
+     * @param value the entry to add (must not be null)
+     */
+    public void put(String value) {
+        long h1 = hash(value, 0x9E3779B97F4A7C15L);
+        long h2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = bits.get(word)) & mask) == 0
+                    && !bits.compareAndSet(word, current, current | mask)) {
+                // retry until the bit is set
+            }
+        }
+    }
+
+    /*
+     * Checks whether an entry may have been added.
+     *
+     * @param value the entry to look up (must not be null)
+     * @return false if the entry was definitely never added, true if it possibly was
+     */
+    public boolean mightContain(String value) {
+        long h1 = hash(value, 0x9E3779B97F4A7C15L);
+        long h2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Computes a seeded 64-bit hash of a string (multiply-xorshift over its chars,
+     * finished with the MurmurHash3 mixer).
+     *
+     * @param value the string to hash
+     * @param seed the seed selecting the hash function
+     * @return the hash
+     */
+    private static long hash(String value, long seed) {
+        long h = seed ^ value.length();
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001B3L;
+            h ^= h >>> 29;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
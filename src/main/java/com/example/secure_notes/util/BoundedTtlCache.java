@@ -0,0 +1,261 @@
+package com.example.secure_notes.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/*
+ * Thread-safe LRU cache bounded by total weight and time-to-live.
+ *
+ * By default every entry weighs 1, so the bound is an entry count; a weigher can
+ * bound the cache by e.g. bytes instead. Entries are evicted in least-recently-used
+ * order once the cache is over its bound, and are treated as absent once they are
+ * older than the TTL. Values are loaded by the caller outside the cache lock, so a
+ * slow load never blocks other readers. Hit and miss counts are kept for metrics.
+ *
+ * An optional removal listener is told about every value that leaves the cache
+ * (eviction, expiry, replacement or invalidation), e.g. to wipe sensitive data. It
+ * runs while the cache lock is held and must be quick.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class BoundedTtlCache<K, V> {
+
+    /*
+     * A cached value and the time (System.nanoTime) after which it expires.
+     */
+    private record Entry<V>(V value, long weight, long expiresAtNanos) {
+    }
+
+    /*
+     * Access-ordered map; the eldest entries are evicted when over the weight bound.
+     */
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    /*
+     * Guards the access-ordered map, which is modified on every get.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /*
+     * Time-to-live of each entry in nanoseconds.
+     */
+    private final long ttlNanos;
+
+    /*
+     * Maximum total weight of all entries.
+     */
+    private final long maxWeight;
+
+    /*
+     * Computes the weight of a value.
+     */
+    private final ToLongFunction<? super V> weigher;
+
+    /*
+     * Called with each value that leaves the cache.
+     */
+    private final Consumer<? super V> removalListener;
+
+    /*
+     * Current total weight of all entries. Guarded by lock.
+     */
+    private long totalWeight;
+
+    /*
+     * Number of lookups that found a live entry.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /*
+     * Number of lookups that found no entry or an expired one.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /*
+     * Creates a cache.
+     *
+     * @param maxEntries the maximum number of entries (must be positive)
+     * @param ttlMillis the time-to-live of each entry in milliseconds (must be positive)
+     * @throws IllegalArgumentException if maxEntries or ttlMillis is not positive
+     */
+    public BoundedTtlCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, value -> 1, value -> { });
+    }
+
+    /*
+     * Creates a cache bounded by total weight.
+     *
+     * @param maxWeight the maximum total weight of all entries (must be positive)
+     * @param ttlMillis the time-to-live of each entry in milliseconds (must be positive)
+     * @param weigher computes the (non-negative) weight of a value
+     * @param removalListener called with each value that leaves the cache
+     * @throws IllegalArgumentException if maxWeight or ttlMillis is not positive
+     */
+    public BoundedTtlCache(long maxWeight, long ttlMillis, ToLongFunction<? super V> weigher,
+                           Consumer<? super V> removalListener) {
+        if (maxWeight <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("Cache size and TTL must be positive.");
+        }
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.removalListener = removalListener;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /*
+     * Looks up a live value and records a hit or miss.
+     *
+     * @param key the key to look up
+     * @return the cached value, or null if absent or expired
+     */
+    public V get(K key) {
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAtNanos() - System.nanoTime() > 0) {
+                hits.increment();
+                return entry.value();
+            }
+            if (entry != null) {
+                removed(entries.remove(key));
+            }
+            misses.increment();
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Stores a value, replacing any existing entry and restarting its TTL. Least recently
+     * used entries are evicted until the cache is within its bound, and expired entries
+     * at the old end are dropped along the way. A value that is heavier than the whole
+     * cache is not stored (and goes straight to the removal listener).
+     *
+     * @param key the key to store under
+     * @param value the value to store (must not be null)
+     */
+    public void put(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        lock.lock();
+        try {
+            if (weight > maxWeight) {
+                removed(entries.remove(key));
+                removalListener.accept(value);
+                return;
+            }
+            Entry<V> previous = entries.put(key, new Entry<>(value, weight, System.nanoTime() + ttlNanos));
+            totalWeight += weight;
+            if (previous != null && previous.value() != value) {
+                removed(previous);
+            } else if (previous != null) {
+                totalWeight -= previous.weight();
+            }
+            long now = System.nanoTime();
+            Iterator<Entry<V>> eldest = entries.values().iterator();
+            while (eldest.hasNext()) {
+                Entry<V> entry = eldest.next();
+                if (totalWeight <= maxWeight && entry.expiresAtNanos() - now > 0) {
+                    break;
+                }
+                eldest.remove();
+                removed(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Removes the entry for a key, if present.
+     *
+     * @param key the key to remove
+     */
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            removed(entries.remove(key));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Removes all entries.
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            entries.values().forEach(this::removed);
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Gets the current number of entries, including any that have expired but not yet been removed.
+     *
+     * @return the entry count
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Gets the current total weight of all entries (the entry count unless a weigher
+     * was given).
+     *
+     * @return the total weight
+     */
+    public long weight() {
+        lock.lock();
+        try {
+            return totalWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Gets the number of lookups that found a live entry.
+     *
+     * @return the hit count
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /*
+     * Gets the number of lookups that found no live entry.
+     *
+     * @return the miss count
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /*
+     * Accounts for an entry that left the map and notifies the removal listener.
+     * Must be called with the lock held.
+     *
+     * @param entry the removed entry (ignored if null)
+     */
+    private void removed(Entry<V> entry) {
+        if (entry != null) {
+            totalWeight -= entry.weight();
+            removalListener.accept(entry.value());
+        }
+    }
+}
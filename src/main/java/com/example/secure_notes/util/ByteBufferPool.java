@@ -0,0 +1,97 @@
+package com.example.secure_notes.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/*
+ * Bounded pool of reusable heap ByteBuffers used as scratch space for plaintext.
+ *
+ * Works like CipherPool: callers never block, an empty pool allocates, and a full
+ * pool drops returned buffers. Buffers above a size limit are never retained, so one
+ * very large note cannot pin memory. Because the buffers hold plaintext, the used part
+ * of a buffer is zeroed before it goes back into the pool.
+ */
+public class ByteBufferPool {
+
+    /*
+     * Smallest buffer the pool allocates, so that small requests do not cause churn.
+     */
+    private static final int MIN_CAPACITY = 8192;
+
+    /*
+     * Idle buffers ready for reuse.
+     */
+    private final BlockingQueue<ByteBuffer> idle;
+
+    /*
+     * Largest buffer capacity that is kept for reuse.
+     */
+    private final int maxRetainedCapacity;
+
+    /*
+     * Creates a pool.
+     *
+     * @param maxIdle the maximum number of idle buffers kept (must be positive)
+     * @param maxRetainedCapacity the largest buffer capacity kept for reuse
+     * @throws IllegalArgumentException if maxIdle is not positive
+     */
+    public ByteBufferPool(int maxIdle, int maxRetainedCapacity) {
+        if (maxIdle <= 0) {
+            throw new IllegalArgumentException("Buffer pool size must be positive.");
+        }
+        this.idle = new ArrayBlockingQueue<>(maxIdle);
+        this.maxRetainedCapacity = maxRetainedCapacity;
+    }
+
+    /*
+     * Takes a cleared buffer with at least the requested capacity.
+     *
+     * @param minCapacity the number of bytes the caller needs
+     * @return a heap buffer, positioned at 0 with its limit at its capacity
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        ByteBuffer buffer = idle.poll();
+        if (buffer != null && buffer.capacity() >= minCapacity) {
+            return buffer;
+        }
+        return ByteBuffer.allocate(Math.max(minCapacity, MIN_CAPACITY));
+    }
+
+    /*
+     * Zeroes the used part of a buffer and returns it to the pool. Buffers that are
+     * too large, or that arrive when the pool is full, are discarded.
+     *
+     * @param buffer a buffer obtained from acquire() (ignored if null)
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        Arrays.fill(buffer.array(), buffer.arrayOffset(),
+            buffer.arrayOffset() + Math.max(buffer.position(), buffer.limit()), (byte) 0);
+        buffer.clear();
+        if (buffer.capacity() <= maxRetainedCapacity) {
+            idle.offer(buffer);
+        }
+    }
+
+    /*
+     * Gets the largest buffer capacity the pool keeps for reuse.
+     *
+     * @return the retained capacity limit in bytes
+     */
+    public int getMaxRetainedCapacity() {
+        return maxRetainedCapacity;
+    }
+
+    /*
+     * Gets the number of idle buffers currently held by the pool.
+     *
+     * @return the idle buffer count
+     */
+    public int idleCount() {
+        return idle.size();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.secure_notes.util;
+
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/*
+ * Bounded pool of reusable Cipher instances for a single transformation.
+ *
+ * Cipher.getInstance performs a provider lookup and builds a new object graph
+ * on every call. The pool keeps up to a fixed number of idle instances so that
+ * hot paths only pay for Cipher.init. Instances are not tied to a thread, which keeps
+ * the pool safe to use from virtual threads (unlike a ThreadLocal cache).
+ *
+ * When the pool is empty a new Cipher is created, and when it is full a returned
+ * Cipher is simply dropped, so callers never block.
+ */
+public class CipherPool {
+
+    /*
+     * The cipher transformation served by this pool (e.g. "AES").
+     */
+    private final String transformation;
+
+    /*
+     * Idle Cipher instances ready for reuse.
+     */
+    private final BlockingQueue<Cipher> idle;
+
+    /*
+     * Creates a pool for the given transformation.
+     *
+     * @param transformation the transformation passed to Cipher.getInstance
+     * @param maxIdle the maximum number of idle instances kept by the pool (must be positive)
+     * @throws IllegalArgumentException if maxIdle is not positive
+     */
+    public CipherPool(String transformation, int maxIdle) {
+        if (maxIdle <= 0) {
+            throw new IllegalArgumentException("Cipher pool size must be positive.");
+        }
+        this.transformation = transformation;
+        this.idle = new ArrayBlockingQueue<>(maxIdle);
+    }
+
+    /*
+     * Takes a Cipher from the pool, creating a new one if none are idle.
+     *
+     * The caller must initialize the returned Cipher before use and hand it back
+     * with release() once done.
+     *
+     * @return a Cipher for this pool's transformation
+     * @throws NoSuchAlgorithmException if the transformation is not available
+     * @throws NoSuchPaddingException if the padding scheme is not available
+     */
+    public Cipher acquire() throws NoSuchAlgorithmException, NoSuchPaddingException {
+        Cipher cipher = idle.poll();
+        return cipher != null ? cipher : Cipher.getInstance(transformation);
+    }
+
+    /*
+     * Returns a Cipher to the pool. If the pool is already full the instance is discarded.
+     *
+     * @param cipher the Cipher previously obtained from acquire() (ignored if null)
+     */
+    public void release(Cipher cipher) {
+        if (cipher != null) {
+            idle.offer(cipher);
+        }
+    }
+
+    /*
+     * Gets the number of idle Cipher instances currently held by the pool.
+     *
+     * @return the idle instance count
+     */
+    public int idleCount() {
+        return idle.size();
+    }
+}
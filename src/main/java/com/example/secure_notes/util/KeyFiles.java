@@ -0,0 +1,56 @@
+package com.example.secure_notes.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+/*
+ * Helpers for the local key files (master key, JWT signing keys).
+ */
+public final class KeyFiles {
+
+    private KeyFiles() {
+    }
+
+    /*
+     * Creates a key file with the given content unless it already exists.
+     *
+     * The content is written to a temporary file (owner read/write only where supported)
+     * next to the key file, which is then linked into place. The key file therefore
+     * never exists without its full content, and if another process creates it first,
+     * that process's key is kept and this one is discarded.
+     *
+     * @param keyFile the path of the key file
+     * @param content the ASCII content of the key file
+     * @return true if the file was created, false if it already existed
+     * @throws IOException if the file cannot be written
+     */
+    public static boolean createIfAbsent(Path keyFile, String content) throws IOException {
+        Path parent = keyFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp;
+        if (parent.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            temp = Files.createTempFile(parent, ".key", ".tmp",
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            temp = Files.createTempFile(parent, ".key", ".tmp");
+        }
+        try {
+            Files.writeString(temp, content, StandardCharsets.US_ASCII);
+            try {
+                Files.createLink(keyFile, temp);
+            } catch (UnsupportedOperationException e) {
+                // No hard links: a plain move still never exposes a partial file
+                Files.move(temp, keyFile);
+            }
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.secure_notes.util;
+
+import javax.crypto.SecretKey;
+
+/*
+ * Source of the master key used for envelope encryption.
+ *
+ * Per-user data keys are never stored in the clear. They are wrapped (encrypted) by
+ * the master key held by a KeyProvider and only unwrapped in memory when needed.
+ * Implementations can keep the master key in a local file, an HSM or a cloud KMS.
+ */
+public interface KeyProvider {
+
+    /*
+     * Wraps a data key with the master key for storage.
+     *
+     * @param dataKey the plaintext data key to wrap (must not be null)
+     * @return the wrapped key bytes
+     * @throws RuntimeException if wrapping fails
+     */
+    byte[] wrapKey(SecretKey dataKey);
+
+    /*
+     * Unwraps a data key previously produced by wrapKey().
+     *
+     * @param wrappedKey the wrapped key bytes (must not be null)
+     * @return the plaintext data key
+     * @throws RuntimeException if unwrapping fails or the key was wrapped by a different master key
+     */
+    SecretKey unwrapKey(byte[] wrappedKey);
+}
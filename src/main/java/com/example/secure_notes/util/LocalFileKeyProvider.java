@@ -0,0 +1,147 @@
+package com.example.secure_notes.util;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+/*
+ * KeyProvider that keeps the master key in a local file.
+ *
+ * This is the default stand-in for a real KMS. The file holds a Base64-encoded
+ * 256-bit AES key and is created (owner read/write only where supported) on first
+ * start if it does not exist. Data keys are wrapped with AES Key Wrap (RFC 3394).
+ *
+ * Creating a key is only allowed while no data key has been wrapped yet: once one
+ * exists, a missing file means the key is lost or the path is wrong (e.g. a relative
+ * path resolved against another working directory), and a new key would leave every
+ * stored data key, and with it every note, unreadable.
+ */
+public class LocalFileKeyProvider implements KeyProvider {
+
+    /*
+     * The key wrap transformation.
+     */
+    private static final String WRAP_TRANSFORMATION = "AESWrap";
+
+    /*
+     * The master key loaded from the key file.
+     */
+    private final SecretKey masterKey;
+
+    /*
+     * Loads the master key from a file, generating the file if it does not exist.
+     *
+     * @param keyFile the path of the master key file
+     * @throws IllegalStateException if the file cannot be read or created, or does not
+     *         contain a 16, 24 or 32 byte key
+     */
+    public LocalFileKeyProvider(Path keyFile) {
+        this(keyFile, true);
+    }
+
+    /*
+     * Loads the master key from a file.
+     *
+     * @param keyFile the path of the master key file
+     * @param createIfMissing whether to generate the file if it does not exist; pass
+     *        false once data keys wrapped by the master key exist
+     * @throws IllegalStateException if the file is missing and may not be created, cannot
+     *         be read or created, or does not contain a 16, 24 or 32 byte key
+     */
+    public LocalFileKeyProvider(Path keyFile, boolean createIfMissing) {
+        this.masterKey = loadOrCreate(keyFile, createIfMissing);
+    }
+
+    /*
+     * Wraps a data key with the master key using AES Key Wrap.
+     *
+     * @param dataKey the plaintext data key to wrap (must not be null)
+     * @return the wrapped key bytes
+     * @throws RuntimeException if wrapping fails
+     */
+    @Override
+    public byte[] wrapKey(SecretKey dataKey) {
+        try {
+            Cipher cipher = Cipher.getInstance(WRAP_TRANSFORMATION);
+            cipher.init(Cipher.WRAP_MODE, masterKey);
+            return cipher.wrap(dataKey);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Error wrapping data key", e);
+        }
+    }
+
+    /*
+     * Unwraps a data key with the master key. AES Key Wrap checks integrity, so a key
+     * wrapped by a different master key is rejected.
+     *
+     * @param wrappedKey the wrapped key bytes (must not be null)
+     * @return the plaintext data key
+     * @throws RuntimeException if unwrapping fails
+     */
+    @Override
+    public SecretKey unwrapKey(byte[] wrappedKey) {
+        try {
+            Cipher cipher = Cipher.getInstance(WRAP_TRANSFORMATION);
+            cipher.init(Cipher.UNWRAP_MODE, masterKey);
+            return (SecretKey) cipher.unwrap(wrappedKey, "AES", Cipher.SECRET_KEY);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Error unwrapping data key", e);
+        }
+    }
+
+    /*
+     * Reads the master key file, creating it with a fresh random key if it is missing
+     * and that is allowed.
+     *
+     * @param keyFile the path of the master key file
+     * @param createIfMissing whether a missing file may be created
+     * @return the master key
+     * @throws IllegalStateException if the file is missing and may not be created, cannot
+     *         be read or created, or holds an invalid key
+     */
+    private static SecretKey loadOrCreate(Path keyFile, boolean createIfMissing) {
+        try {
+            if (Files.notExists(keyFile)) {
+                if (!createIfMissing) {
+                    throw new IllegalStateException("Master key file not found: " + keyFile.toAbsolutePath() +
+                        ". Data keys wrapped by a master key already exist; restore the file or point" +
+                        " aes.envelope.master-key-file at it instead of generating a new key.");
+                }
+                create(keyFile);
+            }
+            byte[] keyBytes = Base64.getDecoder().decode(Files.readString(keyFile, StandardCharsets.US_ASCII).trim());
+            if (keyBytes.length != 16 && keyBytes.length != 24 && keyBytes.length != 32) {
+                throw new IllegalStateException("Master key must be 16, 24, or 32 bytes: " + keyFile);
+            }
+            return new SecretKeySpec(keyBytes, "AES");
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("Unable to load master key file: " + keyFile, e);
+        }
+    }
+
+    /*
+     * Writes a new random 256-bit master key to the given file. If another process
+     * creates the file first, its key is kept.
+     *
+     * @param keyFile the path of the master key file
+     * @throws IOException if the file cannot be written
+     */
+    private static void create(Path keyFile) throws IOException {
+        String encoded;
+        try {
+            KeyGenerator generator = KeyGenerator.getInstance("AES");
+            generator.init(256);
+            encoded = Base64.getEncoder().encodeToString(generator.generateKey().getEncoded());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to generate master key", e);
+        }
+        KeyFiles.createIfAbsent(keyFile, encoded);
+    }
+}
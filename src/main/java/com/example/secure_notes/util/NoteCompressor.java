@@ -0,0 +1,259 @@
+package com.example.secure_notes.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/*
+ * Deflate compression of note content before encryption, with running statistics
+ * for the compression ratio and CPU time spent.
+ *
+ * Compressed data is stored as:
+ *
+ *  [original length (4 bytes, big-endian)][deflate stream]
+ *
+ * Content below the size threshold, or content that does not get smaller, is left
+ * uncompressed so that short notes and already-compressed data pay nothing.
+ */
+public class NoteCompressor {
+
+    /*
+     * Length of the original-length prefix in bytes.
+     */
+    private static final int LENGTH_PREFIX = 4;
+
+    /*
+     * Deflater compression level (0-9, or -1 for the default).
+     */
+    private final int level;
+
+    /*
+     * Minimum plaintext size in bytes that is compressed.
+     */
+    private final int minSize;
+
+    /*
+     * Plaintext bytes passed to compress() that were compressed.
+     */
+    private final LongAdder inputBytes = new LongAdder();
+
+    /*
+     * Compressed bytes produced for those inputs.
+     */
+    private final LongAdder outputBytes = new LongAdder();
+
+    /*
+     * Number of inputs that were compressed / left as is.
+     */
+    private final LongAdder compressedCount = new LongAdder();
+    private final LongAdder skippedCount = new LongAdder();
+
+    /*
+     * Time spent compressing and decompressing, in nanoseconds.
+     */
+    private final LongAdder compressNanos = new LongAdder();
+    private final LongAdder decompressNanos = new LongAdder();
+
+    /*
+     * Creates a compressor.
+     *
+     * @param level the Deflater level (0-9, or -1 for the default)
+     * @param minSize the minimum plaintext size in bytes that is compressed
+     * @throws IllegalArgumentException if level is out of range
+     */
+    public NoteCompressor(int level, int minSize) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between -1 and 9.");
+        }
+        this.level = level;
+        this.minSize = Math.max(minSize, LENGTH_PREFIX + 1);
+    }
+
+    /*
+     * Compresses plaintext if it is large enough and compression makes it smaller.
+     *
+     * @param plainBytes the plaintext bytes
+     * @return the compressed form (length prefix and deflate stream), or null if the
+     *         input should be stored uncompressed
+     */
+    public byte[] compress(byte[] plainBytes) {
+        return compress(ByteBuffer.wrap(plainBytes));
+    }
+
+    /*
+     * Compresses the remaining bytes of a buffer if there are enough of them and
+     * compression makes them smaller. The buffer's position is not changed.
+     *
+     * @param plain the plaintext bytes
+     * @return the compressed form (length prefix and deflate stream), or null if the
+     *         input should be stored uncompressed
+     */
+    public byte[] compress(ByteBuffer plain) {
+        int length = plain.remaining();
+        if (length < minSize) {
+            skippedCount.increment();
+            return null;
+        }
+        long start = System.nanoTime();
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(plain.duplicate());
+            deflater.finish();
+            byte[] out = new byte[length];
+            writeLength(out, length);
+            int written = LENGTH_PREFIX;
+            while (!deflater.finished() && written < out.length) {
+                written += deflater.deflate(out, written, out.length - written);
+            }
+            if (!deflater.finished()) {
+                skippedCount.increment();
+                return null;
+            }
+            inputBytes.add(length);
+            outputBytes.add(written);
+            compressedCount.increment();
+            return Arrays.copyOf(out, written);
+        } finally {
+            deflater.end();
+            compressNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /*
+     * Restores plaintext from its compressed form.
+     *
+     * @param compressed the length prefix and deflate stream written by compress()
+     * @return the original plaintext bytes
+     * @throws DataFormatException if the data is not a complete deflate stream of the
+     *         recorded length
+     */
+    public byte[] decompress(byte[] compressed) throws DataFormatException {
+        ByteBuffer in = ByteBuffer.wrap(compressed);
+        ByteBuffer out = ByteBuffer.allocate(decompressedLength(in));
+        decompress(in, out);
+        return out.array();
+    }
+
+    /*
+     * Reads the original plaintext length recorded in compressed data.
+     *
+     * @param compressed the compressed data (its position is not changed)
+     * @return the original length in bytes
+     * @throws DataFormatException if the length prefix is missing or invalid
+     */
+    public int decompressedLength(ByteBuffer compressed) throws DataFormatException {
+        if (compressed.remaining() < LENGTH_PREFIX) {
+            throw new DataFormatException("Compressed note is truncated");
+        }
+        int length = compressed.getInt(compressed.position());
+        if (length < 0) {
+            throw new DataFormatException("Invalid compressed note length");
+        }
+        return length;
+    }
+
+    /*
+     * Restores plaintext from its compressed form into a buffer. The input is consumed.
+     *
+     * @param compressed the length prefix and deflate stream written by compress()
+     * @param out the buffer to write the plaintext to; needs decompressedLength() bytes remaining
+     * @return the number of plaintext bytes written
+     * @throws DataFormatException if the data is not a complete deflate stream of the
+     *         recorded length
+     * @throws IllegalArgumentException if out is too small
+     */
+    public int decompress(ByteBuffer compressed, ByteBuffer out) throws DataFormatException {
+        int length = decompressedLength(compressed);
+        if (out.remaining() < length) {
+            throw new IllegalArgumentException("Output buffer too small for decompressed note");
+        }
+        long start = System.nanoTime();
+        Inflater inflater = new Inflater();
+        try {
+            compressed.position(compressed.position() + LENGTH_PREFIX);
+            inflater.setInput(compressed);
+            ByteBuffer target = out.slice().limit(length);
+            while (!inflater.finished()) {
+                int n = inflater.inflate(target);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary() || !target.hasRemaining())) {
+                    throw new DataFormatException("Compressed note does not match its recorded length");
+                }
+            }
+            if (target.hasRemaining()) {
+                throw new DataFormatException("Compressed note does not match its recorded length");
+            }
+            out.position(out.position() + length);
+            return length;
+        } finally {
+            inflater.end();
+            decompressNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /*
+     * Writes a big-endian int at the start of a buffer.
+     */
+    private static void writeLength(byte[] out, int length) {
+        out[0] = (byte) (length >>> 24);
+        out[1] = (byte) (length >>> 16);
+        out[2] = (byte) (length >>> 8);
+        out[3] = (byte) length;
+    }
+
+    /*
+     * Gets the total plaintext bytes that were compressed.
+     *
+     * @return the input byte count
+     */
+    public long getInputBytes() {
+        return inputBytes.sum();
+    }
+
+    /*
+     * Gets the total compressed bytes produced.
+     *
+     * @return the output byte count
+     */
+    public long getOutputBytes() {
+        return outputBytes.sum();
+    }
+
+    /*
+     * Gets the number of notes that were compressed.
+     *
+     * @return the compressed count
+     */
+    public long getCompressedCount() {
+        return compressedCount.sum();
+    }
+
+    /*
+     * Gets the number of notes left uncompressed (too small or incompressible).
+     *
+     * @return the skipped count
+     */
+    public long getSkippedCount() {
+        return skippedCount.sum();
+    }
+
+    /*
+     * Gets the total time spent compressing, in nanoseconds.
+     *
+     * @return the compression time
+     */
+    public long getCompressNanos() {
+        return compressNanos.sum();
+    }
+
+    /*
+     * Gets the total time spent decompressing, in nanoseconds.
+     *
+     * @return the decompression time
+     */
+    public long getDecompressNanos() {
+        return decompressNanos.sum();
+    }
+}
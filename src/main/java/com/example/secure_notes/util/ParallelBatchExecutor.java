@@ -0,0 +1,118 @@
+package com.example.secure_notes.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/*
+ * Applies a CPU-bound function to every element of a list, fanning out across a
+ * dedicated bounded fork-join pool once the list is large enough to benefit.
+ *
+ * Lists below the threshold are processed sequentially on the calling thread, so
+ * small requests pay no hand-off cost. Larger lists are split into at most
+ * maxTasksPerCall contiguous chunks; the caller processes the first chunk itself and
+ * the rest go to the pool. Capping the chunks per call keeps a single large request
+ * from occupying every worker while other requests wait. Results are always returned
+ * in input order.
+ */
+public class ParallelBatchExecutor {
+
+    /*
+     * Worker pool shared by all callers.
+     */
+    private final ForkJoinPool pool;
+
+    /*
+     * Minimum list size that is processed in parallel.
+     */
+    private final int threshold;
+
+    /*
+     * Maximum number of chunks a single call is split into.
+     */
+    private final int maxTasksPerCall;
+
+    /*
+     * Creates an executor with its own worker pool.
+     *
+     * @param parallelism number of worker threads (0 or less uses the number of available processors)
+     * @param threshold minimum list size that is processed in parallel
+     * @param maxTasksPerCall maximum number of chunks a single call is split into
+     */
+    public ParallelBatchExecutor(int parallelism, int threshold, int maxTasksPerCall) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.threshold = Math.max(1, threshold);
+        this.maxTasksPerCall = Math.max(1, maxTasksPerCall);
+    }
+
+    /*
+     * Applies a function to each element of a list.
+     *
+     * @param items the input elements
+     * @param function the function to apply (must be safe to call from several threads)
+     * @return the results, in the same order as the input
+     * @throws RuntimeException the first exception thrown by the function
+     * @throws IllegalStateException if interrupted while waiting for workers
+     */
+    @SuppressWarnings("unchecked")
+    public <T, R> List<R> map(List<T> items, Function<? super T, ? extends R> function) {
+        int size = items.size();
+        int tasks = Math.min(maxTasksPerCall, size);
+        if (size < threshold || tasks <= 1) {
+            List<R> results = new ArrayList<>(size);
+            for (T item : items) {
+                results.add(function.apply(item));
+            }
+            return results;
+        }
+
+        Object[] results = new Object[size];
+        int chunkSize = (size + tasks - 1) / tasks;
+        List<Future<?>> futures = new ArrayList<>(tasks - 1);
+        try {
+            for (int from = chunkSize; from < size; from += chunkSize) {
+                int start = from;
+                int end = Math.min(size, from + chunkSize);
+                futures.add(pool.submit(() -> applyRange(items, function, results, start, end)));
+            }
+            applyRange(items, function, results, 0, Math.min(size, chunkSize));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for parallel tasks", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(false);
+            }
+        }
+        return (List<R>) Arrays.asList(results);
+    }
+
+    /*
+     * Stops the worker pool. Tasks already submitted still run to completion.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /*
+     * Applies the function to one contiguous range of the input.
+     */
+    private static <T> void applyRange(List<T> items, Function<? super T, ?> function,
+                                       Object[] results, int from, int to) {
+        for (int i = from; i < to; i++) {
+            results[i] = function.apply(items.get(i));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.secure_notes.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Thread-safe, lock-free token bucket rate limiter with one bucket per key.
+ *
+ * Each bucket holds up to capacity tokens and regains refillPerSecond tokens per
+ * second; a request takes one token or is refused. A bucket is stored as a single
+ * long, the time at which it will be full again (the generic cell rate algorithm,
+ * which behaves exactly like a token bucket): taking a token pushes that time one
+ * refill interval further, and a request is refused if that would put it more than
+ * capacity intervals ahead of now. Updates are a single compare-and-set, so buckets
+ * never lock, and buckets live in a ConcurrentHashMap whose reads do not lock either.
+ *
+ * A bucket that has been full for a while is indistinguishable from a new one, so
+ * evictIdle() can drop it; a request racing with the eviction is at worst counted
+ * against the dropped bucket, i.e. its token is given back.
+ */
+public class TokenBucketLimiter {
+
+    /*
+     * Buckets by key; each value is the time (System.nanoTime() scale) at which the
+     * bucket will be full.
+     */
+    private final ConcurrentHashMap<Object, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    /*
+     * Nanoseconds it takes to regain one token.
+     */
+    private final long intervalNanos;
+
+    /*
+     * How far the full-again time may run ahead of now: capacity intervals, less the
+     * one the current request takes.
+     */
+    private final long burstNanos;
+
+    /*
+     * Creates a limiter.
+     *
+     * @param capacity the maximum number of tokens per bucket, i.e. the largest burst (must be positive)
+     * @param refillPerSecond tokens regained per second (must be positive)
+     * @throws IllegalArgumentException if either argument is not positive
+     */
+    public TokenBucketLimiter(int capacity, double refillPerSecond) {
+        if (capacity <= 0 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("Token bucket capacity and refill rate must be positive.");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / refillPerSecond));
+        this.burstNanos = (capacity - 1) * intervalNanos;
+    }
+
+    /*
+     * Takes a token from a key's bucket if one is available.
+     *
+     * @param key the bucket key (must not be null; compared with equals)
+     * @param nowNanos the current System.nanoTime()
+     * @return 0 if a token was taken, otherwise the nanoseconds until one is available
+     */
+    public long tryAcquire(Object key, long nowNanos) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(nowNanos));
+        }
+        while (true) {
+            long fullAt = bucket.get();
+            long start = fullAt - nowNanos < 0 ? nowNanos : fullAt;
+            long waitNanos = start - nowNanos - burstNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (bucket.compareAndSet(fullAt, start + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /*
+     * Drops buckets that have been full for at least idleNanos.
+     *
+     * @param nowNanos the current System.nanoTime()
+     * @param idleNanos how long a bucket must have been full to be dropped
+     * @return the number of buckets dropped
+     */
+    public int evictIdle(long nowNanos, long idleNanos) {
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> nowNanos - bucket.get() >= idleNanos);
+        return Math.max(0, before - buckets.size());
+    }
+
+    /*
+     * Gets the number of buckets held.
+     *
+     * @return the number of keys with a bucket
+     */
+    public int size() {
+        return buckets.size();
+    }
+}
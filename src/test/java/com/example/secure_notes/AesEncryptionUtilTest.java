@@ -0,0 +1,234 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.util.AesEncryptionUtil;
+import com.example.secure_notes.util.CipherPool;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AesEncryptionUtilTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private AesEncryptionUtil aesEncryptionUtil;
+
+    @BeforeEach
+    void setUp() {
+        aesEncryptionUtil = new AesEncryptionUtil();
+        ReflectionTestUtils.setField(aesEncryptionUtil, "SECRET_KEY", SECRET);
+        aesEncryptionUtil.init();
+    }
+
+    @Test
+    @DisplayName("Encrypt then decrypt should return the original text")
+    void testRoundTrip() {
+        String encrypted = aesEncryptionUtil.encrypt("Secret content");
+
+        assertNotEquals("Secret content", encrypted);
+        assertEquals("Secret content", aesEncryptionUtil.decrypt(encrypted));
+    }
+
+    @Test
+    @DisplayName("Encrypt should write the GCM version byte, key id and a fresh IV per call")
+    void testGcmFormat() {
+        byte[] first = Base64.getDecoder().decode(aesEncryptionUtil.encrypt("Secret content"));
+        byte[] second = Base64.getDecoder().decode(aesEncryptionUtil.encrypt("Secret content"));
+
+        assertEquals(AesEncryptionUtil.VERSION_KEYED, first[0]);
+        assertEquals(1, first[1]);
+        assertEquals(2 + 12 + "Secret content".length() + 16, first.length);
+        assertFalse(Arrays.equals(first, second));
+    }
+
+    @Test
+    @DisplayName("Non-ASCII content should round trip as UTF-8")
+    void testUtf8RoundTrip() {
+        String text = "Grüße – 日本語 🎉";
+
+        assertEquals(text, aesEncryptionUtil.decrypt(aesEncryptionUtil.encryptToBytes(text)));
+    }
+
+    @Test
+    @DisplayName("ByteBuffer overloads should round trip through reusable buffers")
+    void testByteBufferRoundTrip() {
+        byte[] plain = "Secret content".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer encrypted = ByteBuffer.allocate(aesEncryptionUtil.maxEncryptedSize(plain.length));
+        ByteBuffer decrypted = ByteBuffer.allocate(64);
+
+        int written = aesEncryptionUtil.encrypt(ByteBuffer.wrap(plain), encrypted, null);
+        encrypted.flip();
+        int read = aesEncryptionUtil.decrypt(encrypted, decrypted, () -> null);
+
+        assertEquals(2 + 12 + plain.length + 16, written);
+        assertEquals(plain.length, read);
+        assertEquals("Secret content", new String(decrypted.array(), 0, read, StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class,
+            () -> aesEncryptionUtil.encrypt(ByteBuffer.wrap(plain), ByteBuffer.allocate(8), null));
+    }
+
+    @Test
+    @DisplayName("Content under a retired key should stay readable after rotation")
+    void testReadAfterRotation() {
+        byte[] oldContent = aesEncryptionUtil.encryptToBytes("Old key content");
+
+        AesEncryptionUtil rotated = new AesEncryptionUtil();
+        ReflectionTestUtils.setField(rotated, "SECRET_KEY", "fedcba9876543210fedcba9876543210");
+        ReflectionTestUtils.setField(rotated, "keyId", 2);
+        ReflectionTestUtils.setField(rotated, "retiredKeys", "1:" + SECRET);
+        ReflectionTestUtils.setField(rotated, "legacyKeyId", 1);
+        rotated.init();
+        byte[] newContent = rotated.encryptToBytes("New key content");
+
+        assertEquals("Old key content", rotated.decrypt(oldContent));
+        assertEquals("New key content", rotated.decrypt(newContent));
+        assertEquals(2, newContent[1]);
+        assertFalse(rotated.isCurrentFormat(oldContent, null));
+        assertTrue(rotated.isCurrentFormat(newContent, null));
+    }
+
+    @Test
+    @DisplayName("Large content should be compressed before encryption and read back transparently")
+    void testCompressedRoundTrip() {
+        ReflectionTestUtils.setField(aesEncryptionUtil, "compressionEnabled", true);
+        String large = "Meeting notes: review the roadmap. ".repeat(100);
+
+        byte[] encrypted = aesEncryptionUtil.encryptToBytes(large);
+        byte[] small = aesEncryptionUtil.encryptToBytes("Secret content");
+
+        assertEquals(AesEncryptionUtil.VERSION_KEYED | AesEncryptionUtil.COMPRESSED_FLAG, encrypted[0]);
+        assertTrue(encrypted.length < large.length());
+        assertEquals(large, aesEncryptionUtil.decrypt(encrypted));
+        assertEquals(AesEncryptionUtil.VERSION_KEYED, small[0]);
+        assertEquals(1, aesEncryptionUtil.getCompressor().getCompressedCount());
+    }
+
+    @Test
+    @DisplayName("Decrypt should reject content whose compression flag was flipped")
+    void testCompressedFlagTampered() {
+        ReflectionTestUtils.setField(aesEncryptionUtil, "compressionEnabled", true);
+        byte[] encrypted = aesEncryptionUtil.encryptToBytes("Meeting notes: review the roadmap. ".repeat(100));
+        encrypted[0] &= ~AesEncryptionUtil.COMPRESSED_FLAG;
+
+        assertThrows(RuntimeException.class, () -> aesEncryptionUtil.decrypt(encrypted));
+    }
+
+    @Test
+    @DisplayName("Decrypt should read tagged legacy ECB ciphertext")
+    void testDecryptLegacyEcb() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(SECRET.getBytes(), "AES"));
+        byte[] legacy = AesEncryptionUtil.tagLegacy(cipher.doFinal("Old note".getBytes()));
+
+        assertEquals(AesEncryptionUtil.VERSION_ECB, legacy[0]);
+        assertEquals("Old note", aesEncryptionUtil.decrypt(legacy));
+    }
+
+    @Test
+    @DisplayName("Decrypt should reject GCM ciphertext that was tampered with")
+    void testDecryptTamperedGcm() {
+        byte[] encrypted = Base64.getDecoder().decode(aesEncryptionUtil.encrypt("Secret content"));
+        encrypted[encrypted.length - 1] ^= 1;
+        String tampered = Base64.getEncoder().encodeToString(encrypted);
+
+        assertThrows(RuntimeException.class, () -> aesEncryptionUtil.decrypt(tampered));
+    }
+
+    @Test
+    @DisplayName("Decrypt should reject tampered block-aligned GCM ciphertext instead of reading it as ECB")
+    void testDecryptTamperedBlockAlignedGcm() {
+        byte[] encrypted = aesEncryptionUtil.encryptToBytes("ab");
+        assertEquals(0, encrypted.length % 16);
+
+        for (int i = 2; i < encrypted.length; i++) {
+            byte[] tampered = encrypted.clone();
+            tampered[i] ^= 1;
+            assertThrows(RuntimeException.class, () -> aesEncryptionUtil.decrypt(tampered));
+        }
+    }
+
+    @Test
+    @DisplayName("Decrypt should reject content with an unknown version byte")
+    void testDecryptUnknownVersion() {
+        byte[] encrypted = aesEncryptionUtil.encryptToBytes("Secret content");
+        encrypted[0] = 0x05;
+
+        assertThrows(RuntimeException.class, () -> aesEncryptionUtil.decrypt(encrypted));
+    }
+
+    @Test
+    @DisplayName("Legacy write format should still be readable")
+    void testLegacyWriteFormat() {
+        ReflectionTestUtils.setField(aesEncryptionUtil, "writeFormat", "ecb");
+
+        String encrypted = aesEncryptionUtil.encrypt("Secret content");
+
+        byte[] bytes = Base64.getDecoder().decode(encrypted);
+        assertEquals(AesEncryptionUtil.VERSION_ECB, bytes[0]);
+        assertEquals(1 + 16, bytes.length);
+        assertEquals("Secret content", aesEncryptionUtil.decrypt(encrypted));
+    }
+
+    @Test
+    @DisplayName("Init should reject keys that are not 16, 24, or 32 bytes")
+    void testInvalidKeyLength() {
+        AesEncryptionUtil util = new AesEncryptionUtil();
+        ReflectionTestUtils.setField(util, "SECRET_KEY", "short");
+
+        assertThrows(IllegalArgumentException.class, util::init);
+    }
+
+    @Test
+    @DisplayName("Decrypt should wrap failures in a RuntimeException")
+    void testDecryptGarbage() {
+        assertThrows(RuntimeException.class, () -> aesEncryptionUtil.decrypt("bm90IGNpcGhlcnRleHQ="));
+    }
+
+    @Test
+    @DisplayName("Concurrent encrypt/decrypt calls should share pooled ciphers safely")
+    void testConcurrentRoundTrips() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String text = "note-" + i;
+                results.add(executor.submit(() -> text.equals(aesEncryptionUtil.decrypt(aesEncryptionUtil.encrypt(text)))));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Cipher pool should reuse released instances and stay bounded")
+    void testCipherPoolBounded() throws Exception {
+        CipherPool pool = new CipherPool("AES", 1);
+
+        Cipher first = pool.acquire();
+        Cipher second = pool.acquire();
+        pool.release(first);
+        pool.release(second);
+
+        assertEquals(1, pool.idleCount());
+        assertSame(first, pool.acquire());
+        assertEquals(0, pool.idleCount());
+    }
+}
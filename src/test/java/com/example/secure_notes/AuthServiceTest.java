@@ -5,9 +5,16 @@ import com.example.secure_notes.dto.LoginRequest;
 import com.example.secure_notes.dto.SignupRequest;
 import com.example.secure_notes.entity.User;
 import com.example.secure_notes.repository.UserRepository;
+import com.example.secure_notes.security.CustomUserDetailsService;
 import com.example.secure_notes.security.JwtUtil;
+import com.example.secure_notes.security.UserPrincipal;
 import com.example.secure_notes.service.AuthService;
+import com.example.secure_notes.service.RefreshTokenService;
+import com.example.secure_notes.service.TokenRevocationService;
+import com.example.secure_notes.service.UsernameBloomFilter;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.MalformedJwtException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -20,9 +27,15 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Optional;
 import java.util.Collections;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -46,12 +59,25 @@ class AuthServiceTest {
     @Mock
     private Authentication authentication;
 
+    @Mock
+    private TokenRevocationService revocationService;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
+    @Mock
+    private UsernameBloomFilter usernameFilter;
+
+    @Mock
+    private CustomUserDetailsService userDetailsService;
+
     @InjectMocks
     private AuthService authService;
 
     private SignupRequest signupRequest;
     private LoginRequest loginRequest;
     private User testUser;
+    private UserPrincipal testPrincipal;
 
     @BeforeEach
     void setUp() {
@@ -68,12 +94,12 @@ class AuthServiceTest {
         testUser.setUsername("existinguser");
         testUser.setPasswordHash("hashedPassword");
         testUser.setRoles(Collections.singleton("ROLE_USER"));
+        testPrincipal = UserPrincipal.fromUser(testUser);
     }
 
     @Test
     @DisplayName("Signup should create new user and return JWT token")
     void testSignupSuccess() {
-        when(userRepository.findByUsername("newuser")).thenReturn(Optional.empty());
         when(passwordEncoder.encode("password123")).thenReturn("hashedPassword123");
         when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(jwtUtil.generateToken(any(User.class))).thenReturn("jwt-token-123");
@@ -83,7 +109,8 @@ class AuthServiceTest {
         assertNotNull(response);
         assertEquals("jwt-token-123", response.getToken());
         
-        verify(userRepository).findByUsername("newuser");
+        verify(userRepository, never()).findByUsername(anyString());
+        verify(userRepository, never()).existsByUsername(anyString());
         verify(passwordEncoder).encode("password123");
         verify(userRepository).save(argThat(user -> 
             user.getUsername().equals("newuser") &&
@@ -91,29 +118,72 @@ class AuthServiceTest {
             user.getRoles().contains("ROLE_USER")
         ));
         verify(jwtUtil).generateToken(any(User.class));
+        verify(usernameFilter).add("newuser");
     }
 
     @Test
     @DisplayName("Signup should throw exception when username already exists")
     void testSignupUsernameAlreadyTaken() {
-        when(userRepository.findByUsername("newuser")).thenReturn(Optional.of(testUser));
+        when(usernameFilter.mightBeTaken("newuser")).thenReturn(true);
+        when(userRepository.existsByUsername("newuser")).thenReturn(true);
 
-        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
             authService.signup(signupRequest);
         });
 
-        assertEquals("Username is already taken.", exception.getMessage());
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+        assertEquals("Username is already taken.", exception.getReason());
         
-        verify(userRepository).findByUsername("newuser");
+        verify(userRepository).existsByUsername("newuser");
         verify(passwordEncoder, never()).encode(anyString());
         verify(userRepository, never()).save(any(User.class));
         verify(jwtUtil, never()).generateToken(any(User.class));
     }
 
+    @Test
+    @DisplayName("Signup should map a unique constraint violation to 409")
+    void testSignupConstraintViolation() {
+        when(passwordEncoder.encode("password123")).thenReturn("hashedPassword");
+        when(userRepository.save(any(User.class))).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(userRepository.existsByUsername("newuser")).thenReturn(true);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
+            authService.signup(signupRequest);
+        });
+
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+        verify(usernameFilter, never()).add(anyString());
+        verify(jwtUtil, never()).generateToken(any(User.class));
+    }
+
+    @Test
+    @DisplayName("Signup should not report other constraint violations as a taken username")
+    void testSignupOtherConstraintViolation() {
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("value too long");
+        when(passwordEncoder.encode("password123")).thenReturn("hashedPassword");
+        when(userRepository.save(any(User.class))).thenThrow(violation);
+        when(userRepository.existsByUsername("newuser")).thenReturn(false);
+
+        assertSame(violation, assertThrows(DataIntegrityViolationException.class, () -> authService.signup(signupRequest)));
+        verify(usernameFilter, never()).add(anyString());
+    }
+
+    @Test
+    @DisplayName("Signup should insert a user whose name was a Bloom filter false positive")
+    void testSignupBloomFalsePositive() {
+        when(usernameFilter.mightBeTaken("newuser")).thenReturn(true);
+        when(userRepository.existsByUsername("newuser")).thenReturn(false);
+        when(passwordEncoder.encode("password123")).thenReturn("hashedPassword");
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(jwtUtil.generateToken(any(User.class))).thenReturn("jwt-token");
+
+        assertEquals("jwt-token", authService.signup(signupRequest).getToken());
+        verify(userRepository).save(any(User.class));
+    }
+
     @Test
     @DisplayName("Signup should save user with encoded password")
     void testSignupPasswordEncoding() {
-        when(userRepository.findByUsername("newuser")).thenReturn(Optional.empty());
         when(passwordEncoder.encode("password123")).thenReturn("$2a$10$encodedHash");
         when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(jwtUtil.generateToken(any(User.class))).thenReturn("jwt-token");
@@ -129,7 +199,6 @@ class AuthServiceTest {
     @Test
     @DisplayName("Signup should assign ROLE_USER to new user")
     void testSignupAssignsUserRole() {
-        when(userRepository.findByUsername("newuser")).thenReturn(Optional.empty());
         when(passwordEncoder.encode(anyString())).thenReturn("hashedPassword");
         when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(jwtUtil.generateToken(any(User.class))).thenReturn("jwt-token");
@@ -147,8 +216,8 @@ class AuthServiceTest {
     void testLoginSuccess() {
         when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
             .thenReturn(authentication);
-        when(userRepository.findByUsername("existinguser")).thenReturn(Optional.of(testUser));
-        when(jwtUtil.generateToken(testUser)).thenReturn("jwt-token-456");
+        when(authentication.getPrincipal()).thenReturn(testPrincipal);
+        when(jwtUtil.generateToken(testPrincipal)).thenReturn("jwt-token-456");
 
         JwtResponse response = authService.login(loginRequest);
 
@@ -159,25 +228,21 @@ class AuthServiceTest {
             auth.getPrincipal().equals("existinguser") &&
             auth.getCredentials().equals("password123")
         ));
-        verify(userRepository).findByUsername("existinguser");
-        verify(jwtUtil).generateToken(testUser);
+        verify(jwtUtil).generateToken(testPrincipal);
     }
 
     @Test
-    @DisplayName("Login should throw exception when user not found")
-    void testLoginUserNotFound() {
+    @DisplayName("Login should use the authenticated principal instead of loading the user again")
+    void testLoginDoesNotReloadUser() {
         when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
             .thenReturn(authentication);
-        when(userRepository.findByUsername("existinguser")).thenReturn(Optional.empty());
+        when(authentication.getPrincipal()).thenReturn(testPrincipal);
+        when(jwtUtil.generateToken(testPrincipal)).thenReturn("jwt-token");
 
-        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
-            authService.login(loginRequest);
-        });
+        authService.login(loginRequest);
 
-        assertEquals("User not found", exception.getMessage());
-        
-        verify(authenticationManager).authenticate(any(UsernamePasswordAuthenticationToken.class));
-        verify(userRepository).findByUsername("existinguser");
+        verify(userRepository, never()).findByUsername(anyString());
+        verify(userRepository, never()).findById(any());
         verify(jwtUtil, never()).generateToken(any(User.class));
     }
 
@@ -201,8 +266,8 @@ class AuthServiceTest {
     void testLoginAuthenticationToken() {
         when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
             .thenReturn(authentication);
-        when(userRepository.findByUsername("existinguser")).thenReturn(Optional.of(testUser));
-        when(jwtUtil.generateToken(any(User.class))).thenReturn("jwt-token");
+        when(authentication.getPrincipal()).thenReturn(testPrincipal);
+        when(jwtUtil.generateToken(any(UserPrincipal.class))).thenReturn("jwt-token");
 
         authService.login(loginRequest);
 
@@ -217,7 +282,6 @@ class AuthServiceTest {
     @DisplayName("Signup should handle special characters in username")
     void testSignupSpecialCharacters() {
         signupRequest.setUsername("user_123@test");
-        when(userRepository.findByUsername("user_123@test")).thenReturn(Optional.empty());
         when(passwordEncoder.encode(anyString())).thenReturn("hashedPassword");
         when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(jwtUtil.generateToken(any(User.class))).thenReturn("jwt-token");
@@ -235,7 +299,6 @@ class AuthServiceTest {
     void testSignupLongPassword() {
         String longPassword = "a".repeat(100);
         signupRequest.setPassword(longPassword);
-        when(userRepository.findByUsername(anyString())).thenReturn(Optional.empty());
         when(passwordEncoder.encode(longPassword)).thenReturn("hashedLongPassword");
         when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(jwtUtil.generateToken(any(User.class))).thenReturn("jwt-token");
@@ -248,12 +311,11 @@ class AuthServiceTest {
     @Test
     @DisplayName("Login should return different tokens for different users")
     void testLoginDifferentTokensForDifferentUsers() {
-        User user1 = new User();
-        user1.setUsername("user1");
+        UserPrincipal user1 = new UserPrincipal(2L, "user1", "hashedPassword", Set.of("ROLE_USER"));
         
         when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
             .thenReturn(authentication);
-        when(userRepository.findByUsername("user1")).thenReturn(Optional.of(user1));
+        when(authentication.getPrincipal()).thenReturn(user1);
         when(jwtUtil.generateToken(user1)).thenReturn("token-for-user1");
 
         loginRequest.setUsername("user1");
@@ -263,4 +325,130 @@ class AuthServiceTest {
         assertEquals("token-for-user1", response.getToken());
         verify(jwtUtil).generateToken(user1);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Logout should revoke the token by its ID until it expires")
+    void testLogoutRevokesToken() {
+        Claims claims = mock(Claims.class);
+        Date expiration = new Date(System.currentTimeMillis() + 60000);
+        when(jwtUtil.parseClaims("jwt-token")).thenReturn(claims);
+        when(claims.getId()).thenReturn("token-id");
+        when(claims.getExpiration()).thenReturn(expiration);
+
+        assertTrue(authService.logout("jwt-token", null));
+
+        verify(revocationService).revoke("token-id", expiration);
+        verify(revocationService, never()).revokeAllForUser(any());
+    }
+
+    @Test
+    @DisplayName("Logout with a token without ID should revoke all of the user's tokens")
+    void testLogoutLegacyTokenRevokesAll() {
+        Claims claims = mock(Claims.class);
+        when(jwtUtil.parseClaims("legacy-token")).thenReturn(claims);
+        when(claims.getSubject()).thenReturn("existinguser");
+        when(userRepository.findByUsername("existinguser")).thenReturn(Optional.of(testUser));
+        when(revocationService.revokeAllForUser(1L)).thenReturn(true);
+
+        assertTrue(authService.logout("legacy-token", null));
+
+        verify(revocationService).revokeAllForUser(1L);
+    }
+
+    @Test
+    @DisplayName("Logout with an invalid token should revoke nothing")
+    void testLogoutInvalidToken() {
+        when(jwtUtil.parseClaims("bad-token")).thenThrow(new MalformedJwtException("bad"));
+
+        assertFalse(authService.logout("bad-token", null));
+
+        verifyNoInteractions(revocationService);
+    }
+
+    @Test
+    @DisplayName("Login should also issue a refresh token")
+    void testLoginIssuesRefreshToken() {
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+            .thenReturn(authentication);
+        when(authentication.getPrincipal()).thenReturn(testPrincipal);
+        when(jwtUtil.generateToken(testPrincipal)).thenReturn("jwt-token");
+        when(userRepository.getReferenceById(1L)).thenReturn(testUser);
+        when(refreshTokenService.issue(testUser)).thenReturn("refresh-token");
+
+        JwtResponse response = authService.login(loginRequest);
+
+        assertEquals("jwt-token", response.getToken());
+        assertEquals("refresh-token", response.getRefreshToken());
+    }
+
+    @Test
+    @DisplayName("Login should rehash a password stored with outdated parameters")
+    void testLoginRehashesOutdatedHash() {
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+            .thenReturn(authentication);
+        when(authentication.getPrincipal()).thenReturn(testPrincipal);
+        when(passwordEncoder.upgradeEncoding("hashedPassword")).thenReturn(true);
+        when(passwordEncoder.encode("password123")).thenReturn("{bcrypt}strongerHash");
+        when(userRepository.replacePasswordHash(1L, "hashedPassword", "{bcrypt}strongerHash")).thenReturn(1);
+
+        authService.login(loginRequest);
+
+        verify(userRepository).replacePasswordHash(1L, "hashedPassword", "{bcrypt}strongerHash");
+        verify(userDetailsService).invalidate("existinguser");
+    }
+
+    @Test
+    @DisplayName("Login should not rehash a current password hash")
+    void testLoginKeepsCurrentHash() {
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+            .thenReturn(authentication);
+        when(authentication.getPrincipal()).thenReturn(testPrincipal);
+        when(passwordEncoder.upgradeEncoding("hashedPassword")).thenReturn(false);
+
+        authService.login(loginRequest);
+
+        verify(passwordEncoder, never()).encode(anyString());
+        verify(userRepository, never()).replacePasswordHash(anyLong(), anyString(), anyString());
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    @DisplayName("A failed rehash should not fail the login")
+    void testLoginSucceedsWhenRehashFails() {
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+            .thenReturn(authentication);
+        when(authentication.getPrincipal()).thenReturn(testPrincipal);
+        when(passwordEncoder.upgradeEncoding("hashedPassword")).thenReturn(true);
+        when(passwordEncoder.encode("password123")).thenThrow(new RejectedExecutionException("busy"));
+        when(jwtUtil.generateToken(testPrincipal)).thenReturn("jwt-token");
+
+        JwtResponse response = authService.login(loginRequest);
+
+        assertEquals("jwt-token", response.getToken());
+        verify(userRepository, never()).replacePasswordHash(anyLong(), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Refresh should issue new tokens without checking the password")
+    void testRefresh() {
+        when(refreshTokenService.rotate("refresh-token"))
+            .thenReturn(Optional.of(new RefreshTokenService.Rotation(testUser, "next-refresh-token")));
+        when(jwtUtil.generateToken(testUser)).thenReturn("new-jwt-token");
+
+        Optional<JwtResponse> response = authService.refresh("refresh-token");
+
+        assertTrue(response.isPresent());
+        assertEquals("new-jwt-token", response.get().getToken());
+        assertEquals("next-refresh-token", response.get().getRefreshToken());
+        verifyNoInteractions(authenticationManager, passwordEncoder);
+    }
+
+    @Test
+    @DisplayName("Refresh with an invalid refresh token should fail")
+    void testRefreshInvalid() {
+        when(refreshTokenService.rotate("used-token")).thenReturn(Optional.empty());
+
+        assertTrue(authService.refresh("used-token").isEmpty());
+        verify(jwtUtil, never()).generateToken(any(User.class));
+    }
+}
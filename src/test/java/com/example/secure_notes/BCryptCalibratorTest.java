@@ -0,0 +1,51 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.security.BCryptCalibrator;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.IntToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BCryptCalibratorTest {
+
+    // Simulated hardware: 1 ms at strength 4, doubling with each step
+    private static final IntToLongFunction HASH_NANOS = strength -> 1_000_000L << (strength - 4);
+
+    @Test
+    @DisplayName("Calibration should pick the strength closest to the target")
+    void testPicksClosestStrength() {
+        // strength 10 takes 64 ms, 11 takes 128 ms
+        assertEquals(10, BCryptCalibrator.pickStrength(HASH_NANOS, 80_000_000L, 4, 31));
+        assertEquals(11, BCryptCalibrator.pickStrength(HASH_NANOS, 100_000_000L, 4, 31));
+        assertEquals(12, BCryptCalibrator.pickStrength(HASH_NANOS, 256_000_000L, 4, 31));
+    }
+
+    @Test
+    @DisplayName("Calibration should stay within the configured range")
+    void testRespectsRange() {
+        assertEquals(10, BCryptCalibrator.pickStrength(HASH_NANOS, 1_000L, 10, 16));
+        assertEquals(16, BCryptCalibrator.pickStrength(HASH_NANOS, 60_000_000_000L, 10, 16));
+    }
+
+    @Test
+    @DisplayName("Calibration should stop measuring once the target is reached")
+    void testStopsAtTarget() {
+        int[] highest = {0};
+        BCryptCalibrator.pickStrength(strength -> {
+            highest[0] = Math.max(highest[0], strength);
+            return HASH_NANOS.applyAsLong(strength);
+        }, 250_000_000L, 10, 31);
+
+        assertEquals(12, highest[0]);
+    }
+
+    @Test
+    @DisplayName("An invalid strength range should be rejected")
+    void testInvalidRange() {
+        assertThrows(IllegalArgumentException.class, () -> BCryptCalibrator.pickStrength(HASH_NANOS, 1L, 3, 10));
+        assertThrows(IllegalArgumentException.class, () -> BCryptCalibrator.pickStrength(HASH_NANOS, 1L, 12, 10));
+    }
+}
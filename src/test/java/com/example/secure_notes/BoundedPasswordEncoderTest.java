@@ -0,0 +1,88 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.security.BoundedPasswordEncoder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BoundedPasswordEncoderTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PasswordEncoder delegate;
+    private BoundedPasswordEncoder encoder;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        delegate = mock(PasswordEncoder.class);
+        encoder = new BoundedPasswordEncoder(delegate, 1, 1, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        encoder.shutdown();
+    }
+
+    @Test
+    @DisplayName("Encode and matches should be delegated and timed")
+    void testDelegates() {
+        when(delegate.encode("password")).thenReturn("hash");
+        when(delegate.matches("password", "hash")).thenReturn(true);
+
+        assertEquals("hash", encoder.encode("password"));
+        assertTrue(encoder.matches("password", "hash"));
+
+        assertEquals(1, meterRegistry.get("auth.password.hash").tag("operation", "encode").timer().count());
+        assertEquals(1, meterRegistry.get("auth.password.hash").tag("operation", "matches").timer().count());
+        assertEquals(2, meterRegistry.get("auth.password.hash.wait").timer().count());
+    }
+
+    @Test
+    @DisplayName("Delegate exceptions should reach the caller unchanged")
+    void testDelegateException() {
+        when(delegate.encode("password")).thenThrow(new IllegalArgumentException("bad"));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> encoder.encode("password"));
+        assertEquals("bad", e.getMessage());
+    }
+
+    @Test
+    @DisplayName("Calls beyond the queue capacity should be rejected instead of waiting")
+    void testRejectsWhenQueueFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.encode(anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "hash";
+        });
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("second"));
+        while (encoder.getQueueDepth() < 1) {
+            Thread.onSpinWait();
+        }
+        assertEquals(1.0, meterRegistry.get("auth.password.hash.queue").gauge().value());
+
+        assertThrows(RejectedExecutionException.class, () -> encoder.encode("third"));
+        assertEquals(1.0, meterRegistry.get("auth.password.hash.rejected").functionCounter().count());
+
+        release.countDown();
+        assertEquals("hash", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hash", queued.get(5, TimeUnit.SECONDS));
+        verify(delegate, times(2)).encode(anyString());
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.util.BoundedTtlCache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedTtlCacheTest {
+
+    @Test
+    @DisplayName("A stored value should be returned until it expires")
+    void testTtlExpiry() throws InterruptedException {
+        List<String> removed = new ArrayList<>();
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, 50, value -> 1, removed::add);
+
+        cache.put("a", "A");
+        assertEquals("A", cache.get("a"));
+
+        Thread.sleep(100);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        assertEquals(List.of("A"), removed);
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    @DisplayName("The least recently used entry should be evicted first")
+    void testLruEviction() {
+        List<String> removed = new ArrayList<>();
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(2, 60000, value -> 1, removed::add);
+
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.get("a");
+        cache.put("c", "C");
+
+        assertEquals("A", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("C", cache.get("c"));
+        assertEquals(List.of("B"), removed);
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    @DisplayName("The cache should stay within its weight bound and skip values heavier than the bound")
+    void testWeightBound() {
+        List<String> removed = new ArrayList<>();
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, 60000, String::length, removed::add);
+
+        cache.put("a", "xxxx");
+        cache.put("b", "yyyy");
+        assertEquals(8, cache.weight());
+
+        cache.put("c", "zzzz");
+        assertEquals(8, cache.weight());
+        assertNull(cache.get("a"));
+        assertEquals(List.of("xxxx"), removed);
+
+        cache.put("d", "x".repeat(11));
+        assertNull(cache.get("d"));
+        assertEquals(8, cache.weight());
+        assertEquals(List.of("xxxx", "x".repeat(11)), removed);
+    }
+
+    @Test
+    @DisplayName("Replaced, invalidated and cleared values should go to the removal listener")
+    void testRemovalListener() {
+        List<String> removed = new ArrayList<>();
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, 60000, String::length, removed::add);
+
+        cache.put("a", "A1");
+        cache.put("a", "A2");
+        cache.put("b", "B");
+        cache.invalidate("b");
+        cache.invalidate("missing");
+        cache.put("c", "C");
+        cache.invalidateAll();
+
+        assertEquals(List.of("A1", "B", "A2", "C"), removed);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weight());
+    }
+
+    @Test
+    @DisplayName("Storing the same value again should not notify the removal listener")
+    void testSameValueNotRemoved() {
+        List<String> removed = new ArrayList<>();
+        BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, 60000, String::length, removed::add);
+        String value = "A";
+
+        cache.put("a", value);
+        cache.put("a", value);
+
+        assertTrue(removed.isEmpty());
+        assertEquals(1, cache.weight());
+    }
+
+    @Test
+    @DisplayName("Non-positive bounds should be rejected")
+    void testInvalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedTtlCache<String, String>(0, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new BoundedTtlCache<String, String>(10, 0));
+    }
+}
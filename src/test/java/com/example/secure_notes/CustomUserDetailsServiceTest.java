@@ -0,0 +1,105 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.entity.User;
+import com.example.secure_notes.repository.UserRepository;
+import com.example.secure_notes.security.CustomUserDetailsService;
+import com.example.secure_notes.security.UserPrincipal;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomUserDetailsServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CustomUserDetailsService userDetailsService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userDetailsService = new CustomUserDetailsService(userRepository, meterRegistry, 100, 60000);
+
+        user = new User();
+        user.setId(1L);
+        user.setUsername("testuser");
+        user.setPasswordHash("hashedPassword");
+        user.setRoles(Collections.singleton("ROLE_USER"));
+    }
+
+    @Test
+    @DisplayName("A loaded user should be served from the cache afterwards")
+    void testCachesLoadedUser() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+
+        UserDetails first = userDetailsService.loadUserByUsername("testuser");
+        UserDetails second = userDetailsService.loadUserByUsername("testuser");
+
+        assertSame(first, second);
+        assertEquals(1L, ((UserPrincipal) first).getId());
+        assertEquals("hashedPassword", first.getPassword());
+        verify(userRepository, times(1)).findByUsername("testuser");
+        assertEquals(1.0, meterRegistry.get("auth.user.cache.requests").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("auth.user.cache.requests").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("An invalidated user should be loaded again with its new state")
+    void testInvalidate() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+        userDetailsService.loadUserByUsername("testuser");
+
+        User changed = new User();
+        changed.setId(1L);
+        changed.setUsername("testuser");
+        changed.setPasswordHash("newHash");
+        changed.setRoles(Collections.singleton("ROLE_USER"));
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(changed));
+        userDetailsService.invalidate("testuser");
+
+        assertEquals("newHash", userDetailsService.loadUserByUsername("testuser").getPassword());
+        verify(userRepository, times(2)).findByUsername("testuser");
+    }
+
+    @Test
+    @DisplayName("A load that raced with an invalidation should not be cached")
+    void testLoadRacingInvalidationNotCached() {
+        when(userRepository.findByUsername("testuser")).thenAnswer(invocation -> {
+            userDetailsService.invalidate("testuser");
+            return Optional.of(user);
+        }).thenReturn(Optional.of(user));
+
+        userDetailsService.loadUserByUsername("testuser");
+        userDetailsService.loadUserByUsername("testuser");
+
+        verify(userRepository, times(2)).findByUsername("testuser");
+    }
+
+    @Test
+    @DisplayName("Unknown usernames should fail and not be cached")
+    void testUnknownUser() {
+        when(userRepository.findByUsername("nobody")).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("nobody"));
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("nobody"));
+
+        verify(userRepository, times(2)).findByUsername("nobody");
+        assertEquals(0.0, meterRegistry.get("auth.user.cache.size").gauge().value());
+    }
+}
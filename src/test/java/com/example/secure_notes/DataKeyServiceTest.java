@@ -0,0 +1,145 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.entity.User;
+import com.example.secure_notes.repository.UserRepository;
+import com.example.secure_notes.service.DataKeyService;
+import com.example.secure_notes.util.AesEncryptionUtil;
+import com.example.secure_notes.util.KeyProvider;
+import com.example.secure_notes.util.LocalFileKeyProvider;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DataKeyServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private KeyProvider keyProvider;
+    private SimpleMeterRegistry meterRegistry;
+    private DataKeyService dataKeyService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        keyProvider = new LocalFileKeyProvider(tempDir.resolve("master.key"));
+        meterRegistry = new SimpleMeterRegistry();
+        dataKeyService = new DataKeyService(userRepository, keyProvider, meterRegistry, true, 100, 60000);
+
+        user = new User();
+        user.setId(1L);
+        user.setUsername("testuser");
+    }
+
+    @Test
+    @DisplayName("First use should create, wrap and store a data key")
+    void testCreatesDataKey() {
+        when(userRepository.findWrappedDataKeyById(1L)).thenReturn(Optional.empty());
+        when(userRepository.setWrappedDataKeyIfAbsent(eq(1L), any())).thenReturn(1);
+
+        SecretKey dataKey = dataKeyService.getDataKey(user.getId());
+
+        assertEquals(32, dataKey.getEncoded().length);
+        verify(userRepository).setWrappedDataKeyIfAbsent(eq(1L), argThat(wrapped ->
+            Arrays.equals(keyProvider.unwrapKey(wrapped).getEncoded(), dataKey.getEncoded())));
+    }
+
+    @Test
+    @DisplayName("Losing a creation race should use the key that was stored first")
+    void testCreationRace() {
+        SecretKey winner = new SecretKeySpec(new byte[32], "AES");
+        byte[] winnerWrapped = keyProvider.wrapKey(winner);
+        when(userRepository.findWrappedDataKeyById(1L)).thenReturn(Optional.empty(), Optional.of(winnerWrapped));
+        when(userRepository.setWrappedDataKeyIfAbsent(eq(1L), any())).thenReturn(0);
+
+        SecretKey dataKey = dataKeyService.getDataKey(user.getId());
+
+        assertArrayEquals(winner.getEncoded(), dataKey.getEncoded());
+    }
+
+    @Test
+    @DisplayName("Repeated lookups should be served from the cache")
+    void testCacheHits() {
+        when(userRepository.findWrappedDataKeyById(1L)).thenReturn(Optional.of(keyProvider.wrapKey(new SecretKeySpec(new byte[32], "AES"))));
+
+        SecretKey first = dataKeyService.getDataKey(user.getId());
+        SecretKey second = dataKeyService.getDataKey(user.getId());
+
+        assertSame(first, second);
+        verify(userRepository, times(1)).findWrappedDataKeyById(1L);
+        assertEquals(1.0, meterRegistry.get("notes.datakey.cache.requests").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("notes.datakey.cache.requests").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Write key should be null when envelope encryption is disabled")
+    void testDisabled() {
+        DataKeyService disabled = new DataKeyService(userRepository, keyProvider, new SimpleMeterRegistry(), false, 100, 60000);
+
+        assertNull(disabled.getWriteKey(user.getId()));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("Envelope-encrypted content should only decrypt with the owner's data key")
+    void testEnvelopeRoundTrip() {
+        AesEncryptionUtil aesEncryptionUtil = new AesEncryptionUtil();
+        ReflectionTestUtils.setField(aesEncryptionUtil, "SECRET_KEY", "0123456789abcdef0123456789abcdef");
+        aesEncryptionUtil.init();
+        when(userRepository.findWrappedDataKeyById(1L)).thenReturn(Optional.of(keyProvider.wrapKey(new SecretKeySpec(new byte[32], "AES"))));
+        SecretKey dataKey = dataKeyService.getDataKey(user.getId());
+
+        byte[] encrypted = aesEncryptionUtil.encryptToBytes("Secret content", dataKey);
+
+        assertEquals(AesEncryptionUtil.VERSION_ENVELOPE, encrypted[0]);
+        assertEquals("Secret content", aesEncryptionUtil.decrypt(encrypted, () -> dataKey));
+        assertThrows(RuntimeException.class, () -> aesEncryptionUtil.decrypt(encrypted));
+    }
+
+    @Test
+    @DisplayName("A created master key file should be complete and load the same key again")
+    void testMasterKeyFileReload() throws Exception {
+        Path keyFile = tempDir.resolve("keys").resolve("master.key");
+        KeyProvider created = new LocalFileKeyProvider(keyFile);
+        byte[] wrapped = created.wrapKey(new SecretKeySpec(new byte[32], "AES"));
+
+        KeyProvider reloaded = new LocalFileKeyProvider(keyFile, false);
+
+        assertArrayEquals(new byte[32], reloaded.unwrapKey(wrapped).getEncoded());
+        try (var files = Files.list(keyFile.getParent())) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("A missing master key file should not be replaced once data keys exist")
+    void testMissingMasterKeyFileNotRecreated() {
+        Path keyFile = tempDir.resolve("missing.key");
+
+        assertThrows(IllegalStateException.class, () -> new LocalFileKeyProvider(keyFile, false));
+        assertFalse(Files.exists(keyFile));
+    }
+}
@@ -2,19 +2,30 @@ package com.example.secure_notes;
 
 import com.example.secure_notes.entity.User;
 import com.example.secure_notes.security.JwtUtil;
+import com.example.secure_notes.security.UserPrincipal;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,6 +38,9 @@ class JwtUtilTest {
     private String testSecret;
     private long testExpiration;
 
+    @TempDir
+    Path tempDir;
+
     @BeforeEach
     void setUp() {
         jwtUtil = new JwtUtil();
@@ -36,6 +50,7 @@ class JwtUtilTest {
         
         ReflectionTestUtils.setField(jwtUtil, "secret", testSecret);
         ReflectionTestUtils.setField(jwtUtil, "expirationMillis", testExpiration);
+        jwtUtil.init();
 
         testUser = new User();
         testUser.setId(1L);
@@ -130,6 +145,7 @@ class JwtUtilTest {
         String token = jwtUtil.generateToken(testUser);
         
         ReflectionTestUtils.setField(jwtUtil, "secret", "differentSecretKeyThatIsAtLeast256BitsLong!!!!");
+        jwtUtil.init();
 
         assertThrows(SignatureException.class, () -> {
             jwtUtil.extractUsername(token);
@@ -182,6 +198,75 @@ class JwtUtilTest {
         assertTrue(jwtUtil.validateToken(token2, testUser));
     }
 
+    @Test
+    @DisplayName("Parsed claims should validate without parsing the token again")
+    void testValidateClaims() {
+        String token = jwtUtil.generateToken(testUser);
+        UserDetails userDetails = mock(UserDetails.class);
+        when(userDetails.getUsername()).thenReturn("testuser");
+
+        Claims claims = jwtUtil.parseClaims(token);
+
+        assertEquals("testuser", claims.getSubject());
+        assertTrue(jwtUtil.validateClaims(claims, userDetails));
+    }
+
+    @Test
+    @DisplayName("Principal built from claims should carry user ID, username and roles")
+    void testToPrincipal() {
+        Set<String> roles = new HashSet<>();
+        roles.add("ROLE_USER");
+        roles.add("ROLE_ADMIN");
+        testUser.setRoles(roles);
+        String token = jwtUtil.generateToken(testUser);
+
+        UserPrincipal principal = jwtUtil.toPrincipal(jwtUtil.parseClaims(token));
+
+        assertNotNull(principal);
+        assertEquals(1L, principal.getId());
+        assertEquals("testuser", principal.getUsername());
+        assertNull(principal.getPassword());
+        assertEquals(2, principal.getAuthorities().size());
+        assertTrue(jwtUtil.validateClaims(jwtUtil.parseClaims(token), principal));
+    }
+
+    @Test
+    @DisplayName("Token generated from a principal should carry the same claims as one from the user")
+    void testGenerateTokenFromPrincipal() {
+        UserPrincipal loaded = new UserPrincipal(1L, "testuser", "hashedPassword", Set.of("ROLE_USER", "ROLE_ADMIN"));
+        String token = jwtUtil.generateToken(loaded);
+
+        UserPrincipal principal = jwtUtil.toPrincipal(jwtUtil.parseClaims(token));
+
+        assertNotNull(principal);
+        assertEquals(1L, principal.getId());
+        assertEquals("testuser", principal.getUsername());
+        assertEquals(loaded.getAuthorities(), principal.getAuthorities());
+    }
+
+    @Test
+    @DisplayName("Each token should carry its own ID")
+    void testTokenId() {
+        String token1 = jwtUtil.generateToken(testUser);
+        String token2 = jwtUtil.generateToken(testUser);
+
+        String id1 = jwtUtil.parseClaims(token1).getId();
+
+        assertNotNull(id1);
+        assertNotEquals(id1, jwtUtil.parseClaims(token2).getId());
+    }
+
+    @Test
+    @DisplayName("Claims without a user ID should not yield a principal")
+    void testToPrincipalWithoutUserId() {
+        User userWithoutId = new User();
+        userWithoutId.setUsername("noid");
+        userWithoutId.setRoles(Collections.singleton("ROLE_USER"));
+        String token = jwtUtil.generateToken(userWithoutId);
+
+        assertNull(jwtUtil.toPrincipal(jwtUtil.parseClaims(token)));
+    }
+
     @Test
     @DisplayName("Validate token with UserDetails should return false for null username")
     void testValidateTokenNullUsername() {
@@ -285,4 +370,97 @@ class JwtUtilTest {
         assertEquals("testuser", jwtUtil.extractUsername(token));
         assertTrue(jwtUtil.validateToken(token, testUser));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("ES256 tokens should carry the key id and verify with the published key")
+    void testEs256Token() {
+        useEs256("key-1", tempDir.resolve("jwt.key"), "");
+
+        String token = jwtUtil.generateToken(testUser);
+
+        String header = new String(Base64.getUrlDecoder().decode(token.split("\\.")[0]));
+        assertTrue(header.contains("\"alg\":\"ES256\""));
+        assertTrue(header.contains("\"kid\":\"key-1\""));
+        assertEquals("testuser", jwtUtil.extractUsername(token));
+
+        List<?> keys = (List<?>) jwtUtil.getJwks().get("keys");
+        assertEquals(1, keys.size());
+        Map<?, ?> jwk = (Map<?, ?>) keys.get(0);
+        assertEquals("EC", jwk.get("kty"));
+        assertEquals("key-1", jwk.get("kid"));
+        assertEquals(43, ((String) jwk.get("x")).length());
+        assertTrue(Files.exists(tempDir.resolve("jwt.key")));
+    }
+
+    @Test
+    @DisplayName("Tokens of a retired ES256 key should verify after rotation, others should not")
+    void testEs256KeyRotation() throws Exception {
+        Path oldKeyFile = tempDir.resolve("old.key");
+        useEs256("old", oldKeyFile, "");
+        String oldToken = jwtUtil.generateToken(testUser);
+        String oldPublicKey = Files.readAllLines(oldKeyFile).get(1);
+
+        useEs256("new", tempDir.resolve("new.key"), "old:" + oldPublicKey);
+
+        assertEquals("testuser", jwtUtil.extractUsername(oldToken));
+        assertEquals("testuser", jwtUtil.extractUsername(jwtUtil.generateToken(testUser)));
+        assertEquals(2, ((List<?>) jwtUtil.getJwks().get("keys")).size());
+
+        useEs256("new", tempDir.resolve("new.key"), "");
+
+        assertThrows(UnsupportedJwtException.class, () -> jwtUtil.extractUsername(oldToken));
+    }
+
+    @Test
+    @DisplayName("ES256 mode should accept HS256 tokens without kid only while the secret is configured")
+    void testHs256TokensAfterSwitchToEs256() {
+        String hs256Token = Jwts.builder()
+            .setSubject("testuser")
+            .setExpiration(new Date(System.currentTimeMillis() + 60000))
+            .signWith(Keys.hmacShaKeyFor(testSecret.getBytes()))
+            .compact();
+        useEs256("1", tempDir.resolve("jwt.key"), "");
+
+        assertEquals("testuser", jwtUtil.extractUsername(hs256Token));
+        assertTrue(((List<?>) jwtUtil.getJwks().get("keys")).stream()
+            .noneMatch(jwk -> ((Map<?, ?>) jwk).containsKey("k")));
+
+        ReflectionTestUtils.setField(jwtUtil, "secret", "");
+        jwtUtil.init();
+
+        assertThrows(UnsupportedJwtException.class, () -> jwtUtil.extractUsername(hs256Token));
+    }
+
+    @Test
+    @DisplayName("An HS256 token naming an ES256 key id should be rejected")
+    void testHs256TokenWithEcKeyId() {
+        useEs256("1", tempDir.resolve("jwt.key"), "");
+        String forged = Jwts.builder()
+            .setHeaderParam("kid", "1")
+            .setSubject("testuser")
+            .signWith(Keys.hmacShaKeyFor(testSecret.getBytes()))
+            .compact();
+
+        assertThrows(UnsupportedJwtException.class, () -> jwtUtil.extractUsername(forged));
+    }
+
+    @Test
+    @DisplayName("A missing ES256 key file should fail startup unless creating it is allowed")
+    void testMissingEs256KeyFile() {
+        Path keyFile = tempDir.resolve("missing.key");
+        ReflectionTestUtils.setField(jwtUtil, "algorithm", "ES256");
+        ReflectionTestUtils.setField(jwtUtil, "signingKeyFile", keyFile.toString());
+
+        assertThrows(IllegalStateException.class, () -> jwtUtil.init());
+        assertFalse(Files.exists(keyFile));
+    }
+
+    private void useEs256(String keyId, Path keyFile, String retiredKeys) {
+        ReflectionTestUtils.setField(jwtUtil, "algorithm", "ES256");
+        ReflectionTestUtils.setField(jwtUtil, "keyId", keyId);
+        ReflectionTestUtils.setField(jwtUtil, "signingKeyFile", keyFile.toString());
+        ReflectionTestUtils.setField(jwtUtil, "createSigningKey", true);
+        ReflectionTestUtils.setField(jwtUtil, "retiredKeys", retiredKeys);
+        jwtUtil.init();
+    }
+}
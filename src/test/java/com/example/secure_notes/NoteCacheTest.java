@@ -0,0 +1,165 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.entity.Note;
+import com.example.secure_notes.entity.User;
+import com.example.secure_notes.service.NoteCache;
+import com.example.secure_notes.util.BoundedTtlCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NoteCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private NoteCache noteCache;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        noteCache = new NoteCache(meterRegistry, true, 100, 60000);
+
+        user = new User();
+        user.setId(1L);
+        user.setUsername("testuser");
+    }
+
+    private Note note(Long id, long version, String content) {
+        Note note = new Note(id, "Title " + id, content, user, null, null);
+        note.setVersion(version);
+        return note;
+    }
+
+    /*
+     * Reaches into the cache for the plaintext bytes held by the entry of a note, so a
+     * test can check that they are wiped once the entry is gone.
+     */
+    private static byte[] cachedBytes(NoteCache noteCache, Long noteId) {
+        BoundedTtlCache<?, ?> cache = (BoundedTtlCache<?, ?>) ReflectionTestUtils.getField(noteCache, "cache");
+        Map<?, ?> entries = (Map<?, ?>) ReflectionTestUtils.getField(cache, "entries");
+        for (Map.Entry<?, ?> entry : entries.entrySet()) {
+            if (noteId.equals(ReflectionTestUtils.getField(entry.getKey(), "noteId"))) {
+                Object cachedNote = ReflectionTestUtils.getField(entry.getValue(), "value");
+                return (byte[]) ReflectionTestUtils.getField(cachedNote, "content");
+            }
+        }
+        throw new AssertionError("Note " + noteId + " is not cached");
+    }
+
+    private static void assertWiped(byte[] bytes) {
+        for (byte b : bytes) {
+            assertEquals(0, b);
+        }
+    }
+
+    @Test
+    @DisplayName("A cached revision is returned as a detached copy")
+    void testHit() {
+        Note original = note(1L, 2L, "Secret content");
+        noteCache.put(user.getId(), original);
+
+        Optional<Note> cached = noteCache.get(user.getId(), 1L, 2L);
+
+        assertTrue(cached.isPresent());
+        assertNotSame(original, cached.get());
+        assertEquals("Secret content", cached.get().getContent());
+        assertEquals("Title 1", cached.get().getTitle());
+        assertEquals(2L, cached.get().getVersion());
+        assertEquals(1.0, meterRegistry.get("notes.cache.requests").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("A newer version of a note is a miss")
+    void testVersionMiss() {
+        noteCache.put(user.getId(), note(1L, 2L, "Old content"));
+
+        assertTrue(noteCache.get(user.getId(), 1L, 3L).isEmpty());
+        assertEquals(1.0, meterRegistry.get("notes.cache.requests").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("The cache stays within its byte bound, evicting the least recently used note")
+    void testByteBound() {
+        noteCache.put(user.getId(), note(1L, 0L, "a".repeat(60)));
+        noteCache.put(user.getId(), note(2L, 0L, "b".repeat(60)));
+
+        assertTrue(noteCache.get(user.getId(), 1L, 0L).isEmpty());
+        assertTrue(noteCache.get(user.getId(), 2L, 0L).isPresent());
+        assertEquals(60.0, meterRegistry.get("notes.cache.bytes").gauge().value());
+        assertEquals(1.0, meterRegistry.get("notes.cache.size").gauge().value());
+    }
+
+    @Test
+    @DisplayName("A note larger than the whole cache is not cached")
+    void testOversizedNote() {
+        noteCache.put(user.getId(), note(1L, 0L, "a".repeat(101)));
+
+        assertTrue(noteCache.get(user.getId(), 1L, 0L).isEmpty());
+        assertEquals(0.0, meterRegistry.get("notes.cache.bytes").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Invalidated notes are no longer served")
+    void testInvalidate() {
+        noteCache.put(user.getId(), note(1L, 0L, "Secret content"));
+
+        noteCache.invalidate(user.getId(), 1L, 0L);
+
+        assertTrue(noteCache.get(user.getId(), 1L, 0L).isEmpty());
+        assertEquals(0.0, meterRegistry.get("notes.cache.bytes").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Notes are not shared between users")
+    void testOtherUser() {
+        noteCache.put(user.getId(), note(1L, 0L, "Secret content"));
+        User other = new User();
+        other.setId(2L);
+
+        assertTrue(noteCache.get(other.getId(), 1L, 0L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("The plaintext of an evicted note is wiped")
+    void testEvictedNoteWiped() {
+        noteCache.put(user.getId(), note(1L, 0L, "a".repeat(60)));
+        byte[] bytes = cachedBytes(noteCache, 1L);
+
+        noteCache.put(user.getId(), note(2L, 0L, "b".repeat(60)));
+
+        assertEquals(60, bytes.length);
+        assertWiped(bytes);
+    }
+
+    @Test
+    @DisplayName("The plaintext of an expired note is wiped")
+    void testExpiredNoteWiped() throws InterruptedException {
+        NoteCache shortLived = new NoteCache(new SimpleMeterRegistry(), true, 100, 50);
+        shortLived.put(user.getId(), note(1L, 0L, "Secret content"));
+        byte[] bytes = cachedBytes(shortLived, 1L);
+
+        Thread.sleep(100);
+
+        assertTrue(shortLived.get(user.getId(), 1L, 0L).isEmpty());
+        assertWiped(bytes);
+    }
+
+    @Test
+    @DisplayName("The plaintext of an invalidated note is wiped")
+    void testInvalidatedNoteWiped() {
+        noteCache.put(user.getId(), note(1L, 0L, "Secret content"));
+        byte[] bytes = cachedBytes(noteCache, 1L);
+
+        noteCache.invalidate(user.getId(), 1L, 0L);
+
+        assertWiped(bytes);
+    }
+}
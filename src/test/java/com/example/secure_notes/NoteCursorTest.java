@@ -0,0 +1,54 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.service.NoteCursor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NoteCursorTest {
+
+    private static String encodeRaw(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("A decoded cursor should equal the encoded one")
+    void testRoundTrip() {
+        NoteCursor cursor = new NoteCursor(LocalDateTime.of(2024, 5, 17, 13, 45, 12, 123456000), 42L);
+
+        String encoded = cursor.encode();
+
+        assertFalse(encoded.contains("="));
+        assertEquals(cursor, NoteCursor.decode(encoded));
+    }
+
+    @Test
+    @DisplayName("Malformed cursors should be rejected")
+    void testMalformedCursor() {
+        assertThrows(IllegalArgumentException.class, () -> NoteCursor.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> NoteCursor.decode(encodeRaw("2024-05-17T13:45:12")));
+        assertThrows(IllegalArgumentException.class, () -> NoteCursor.decode(encodeRaw("yesterday,42")));
+        assertThrows(IllegalArgumentException.class, () -> NoteCursor.decode(encodeRaw("null,42")));
+    }
+
+    @Test
+    @DisplayName("A cursor with a non-numeric ID should be rejected")
+    void testNonNumericId() {
+        assertThrows(IllegalArgumentException.class, () -> NoteCursor.decode(encodeRaw("2024-05-17T13:45:12,abc")));
+        assertThrows(IllegalArgumentException.class, () -> NoteCursor.decode(encodeRaw("2024-05-17T13:45:12,")));
+        assertThrows(IllegalArgumentException.class, () -> NoteCursor.decode(encodeRaw("2024-05-17T13:45:12,null")));
+    }
+
+    @Test
+    @DisplayName("A cursor without a timestamp or ID should be rejected")
+    void testIncompleteCursor() {
+        assertThrows(IllegalArgumentException.class, () -> new NoteCursor(null, 1L));
+        assertThrows(IllegalArgumentException.class, () -> new NoteCursor(LocalDateTime.of(2024, 1, 1, 0, 0), null));
+    }
+}
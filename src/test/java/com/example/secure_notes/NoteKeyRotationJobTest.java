@@ -0,0 +1,182 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.migration.NoteKeyRotationJob;
+import com.example.secure_notes.service.DataKeyService;
+import com.example.secure_notes.util.AesEncryptionUtil;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/*
+ * Runs the rotation job against an in-memory H2 database. The checkpoint upsert uses
+ * PostgreSQL's ON CONFLICT, so it is translated to H2's MERGE here.
+ */
+@ExtendWith(MockitoExtension.class)
+class NoteKeyRotationJobTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    @Mock
+    private DataKeyService dataKeyService;
+
+    private JdbcTemplate jdbcTemplate;
+    private AesEncryptionUtil aesEncryptionUtil;
+    private AesEncryptionUtil legacyEncryptionUtil;
+    private NoteKeyRotationJob job;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:rotation-" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource) {
+            @Override
+            public int update(String sql, Object... args) {
+                if (sql.startsWith("INSERT INTO note_rotation_checkpoint")) {
+                    sql = "MERGE INTO note_rotation_checkpoint (job, last_id, updated_at) KEY (job) VALUES (?, ?, CURRENT_TIMESTAMP)";
+                }
+                return super.update(sql, args);
+            }
+        };
+        jdbcTemplate.execute("CREATE TABLE notes (id BIGINT PRIMARY KEY, user_id BIGINT NOT NULL, " +
+            "content_data VARBINARY(4096), content VARCHAR(4096))");
+
+        aesEncryptionUtil = spy(newEncryptionUtil("gcm"));
+        legacyEncryptionUtil = newEncryptionUtil("ecb");
+        job = new NoteKeyRotationJob(jdbcTemplate, new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+            aesEncryptionUtil, dataKeyService);
+        ReflectionTestUtils.setField(job, "batchSize", 2);
+        ReflectionTestUtils.setField(job, "rowsPerSecond", 0);
+        ReflectionTestUtils.setField(job, "parallelism", 2);
+    }
+
+    private static AesEncryptionUtil newEncryptionUtil(String writeFormat) {
+        AesEncryptionUtil util = new AesEncryptionUtil();
+        ReflectionTestUtils.setField(util, "SECRET_KEY", SECRET);
+        ReflectionTestUtils.setField(util, "writeFormat", writeFormat);
+        util.init();
+        return util;
+    }
+
+    private void insertLegacyNote(long id, String content) {
+        jdbcTemplate.update("INSERT INTO notes (id, user_id, content_data) VALUES (?, 1, ?)",
+            id, legacyEncryptionUtil.encryptToBytes(content));
+    }
+
+    private byte[] contentData(long id) {
+        return jdbcTemplate.queryForObject("SELECT content_data FROM notes WHERE id = ?", byte[].class, id);
+    }
+
+    private List<Long> checkpoint() {
+        return jdbcTemplate.queryForList("SELECT last_id FROM note_rotation_checkpoint", Long.class);
+    }
+
+    @Test
+    @DisplayName("All notes should be re-encrypted into the current format and the checkpoint removed")
+    void testRotatesAllNotes() {
+        for (long id = 1; id <= 5; id++) {
+            insertLegacyNote(id, "Note " + id);
+        }
+        byte[] tagged = legacyEncryptionUtil.encryptToBytes("Note 6");
+        jdbcTemplate.update("INSERT INTO notes (id, user_id, content) VALUES (6, 1, ?)",
+            Base64.getEncoder().encodeToString(Arrays.copyOfRange(tagged, 1, tagged.length)));
+
+        job.run();
+
+        for (long id = 1; id <= 6; id++) {
+            byte[] rotated = contentData(id);
+            assertTrue(aesEncryptionUtil.isCurrentFormat(rotated, null));
+            assertEquals("Note " + id, aesEncryptionUtil.decrypt(rotated));
+        }
+        assertNull(jdbcTemplate.queryForObject("SELECT content FROM notes WHERE id = 6", String.class));
+        assertTrue(checkpoint().isEmpty());
+    }
+
+    @Test
+    @DisplayName("A run should resume after the checkpoint of an earlier run")
+    void testResumesFromCheckpoint() {
+        for (long id = 1; id <= 3; id++) {
+            insertLegacyNote(id, "Note " + id);
+        }
+        byte[] before = contentData(2);
+        jdbcTemplate.execute("CREATE TABLE note_rotation_checkpoint (" +
+            "job VARCHAR(64) PRIMARY KEY, last_id BIGINT NOT NULL, updated_at TIMESTAMP NOT NULL)");
+        jdbcTemplate.update("INSERT INTO note_rotation_checkpoint VALUES ('note-key-rotation', 2, CURRENT_TIMESTAMP)");
+
+        job.run();
+
+        assertArrayEquals(before, contentData(2));
+        assertFalse(aesEncryptionUtil.isCurrentFormat(contentData(1), null));
+        assertTrue(aesEncryptionUtil.isCurrentFormat(contentData(3), null));
+        assertTrue(checkpoint().isEmpty());
+    }
+
+    @Test
+    @DisplayName("The job should not process more notes per second than configured")
+    void testThrottle() {
+        for (long id = 1; id <= 4; id++) {
+            insertLegacyNote(id, "Note " + id);
+        }
+        ReflectionTestUtils.setField(job, "rowsPerSecond", 10);
+
+        long start = System.nanoTime();
+        job.run();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+
+        assertTrue(elapsedMillis >= 350, "4 notes at 10 per second took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    @DisplayName("A note edited while it is re-encrypted should keep the edit")
+    @SuppressWarnings("unchecked")
+    void testConcurrentEditNotOverwritten() {
+        insertLegacyNote(1, "Original");
+        byte[] edited = aesEncryptionUtil.encryptToBytes("Edited");
+        byte[] original = contentData(1);
+        doAnswer(invocation -> {
+            jdbcTemplate.update("UPDATE notes SET content_data = ? WHERE id = 1", (Object) edited);
+            return invocation.callRealMethod();
+        }).when(aesEncryptionUtil).decrypt(argThat((byte[] bytes) -> Arrays.equals(bytes, original)), any(Supplier.class));
+
+        job.run();
+
+        assertArrayEquals(edited, contentData(1));
+    }
+
+    @Test
+    @DisplayName("Notes that cannot be re-encrypted should fail the run without stopping it")
+    void testSkippedNotesFailRun() {
+        insertLegacyNote(1, "Note 1");
+        jdbcTemplate.update("INSERT INTO notes (id, user_id, content_data) VALUES (2, 1, ?)", (Object) new byte[] {1, 2, 3});
+        jdbcTemplate.update("INSERT INTO notes (id, user_id, content) VALUES (3, 1, 'not base64!')");
+        insertLegacyNote(4, "Note 4");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> job.run());
+
+        assertTrue(e.getMessage().contains("skipped 2"), e.getMessage());
+        assertEquals("Note 1", aesEncryptionUtil.decrypt(contentData(1)));
+        assertTrue(aesEncryptionUtil.isCurrentFormat(contentData(4), null));
+        assertArrayEquals(new byte[] {1, 2, 3}, contentData(2));
+        assertTrue(checkpoint().isEmpty());
+    }
+}
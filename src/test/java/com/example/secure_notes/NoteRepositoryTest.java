@@ -0,0 +1,95 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.entity.Note;
+import com.example.secure_notes.entity.User;
+import com.example.secure_notes.migration.NoteTimestampMigration;
+import com.example.secure_notes.repository.NoteRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class NoteRepositoryTest {
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("testuser");
+        user.setPasswordHash("hashedPassword");
+        entityManager.persistAndFlush(user);
+    }
+
+    private Long insertNote(String title) {
+        Note note = new Note();
+        note.setTitle(title);
+        note.setUser(user);
+        return entityManager.persistAndFlush(note).getId();
+    }
+
+    private List<Long> listAll() {
+        List<Long> listed = new ArrayList<>();
+        List<Note> page = noteRepository.findPageByUserId(user.getId(), PageRequest.of(0, 2));
+        while (!page.isEmpty()) {
+            page.forEach(note -> listed.add(note.getId()));
+            Note last = page.get(page.size() - 1);
+            page = noteRepository.findPageByUserIdAfter(user.getId(), last.getTimeUpdated(), last.getId(), PageRequest.of(0, 2));
+        }
+        return listed;
+    }
+
+    @Test
+    @DisplayName("Notes without timestamps should be listed, last, once the backfill has run")
+    void testNotesWithoutTimestampsBackfilled() {
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            expected.add(0, insertNote("Note " + i));
+        }
+        Long unstamped1 = expected.get(1);
+        Long unstamped3 = expected.get(3);
+        // Written by a node that does not set timestamps
+        entityManager.getEntityManager()
+            .createNativeQuery("UPDATE notes SET time_updated = NULL, time_created = NULL WHERE id IN (?1, ?2)")
+            .setParameter(1, unstamped1)
+            .setParameter(2, unstamped3)
+            .executeUpdate();
+        entityManager.clear();
+        expected.remove(unstamped1);
+        expected.remove(unstamped3);
+
+        assertEquals(expected, listAll());
+
+        NoteTimestampMigration migration = new NoteTimestampMigration(new JdbcTemplate(dataSource));
+        ReflectionTestUtils.setField(migration, "enabled", true);
+        ReflectionTestUtils.setField(migration, "batchSize", 1);
+        migration.migrate();
+        entityManager.clear();
+        expected.add(unstamped1);
+        expected.add(unstamped3);
+
+        assertEquals(expected, listAll());
+    }
+}
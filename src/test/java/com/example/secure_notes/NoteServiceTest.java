@@ -1,25 +1,45 @@
 package com.example.secure_notes;
 
+import com.example.secure_notes.dto.NoteBatchOperation;
+import com.example.secure_notes.dto.NoteBatchResult;
+import com.example.secure_notes.dto.NotePage;
 import com.example.secure_notes.entity.Note;
 import com.example.secure_notes.entity.User;
+import com.example.secure_notes.service.DataKeyService;
+import com.example.secure_notes.service.NoteCache;
 import com.example.secure_notes.service.NoteService;
 
 import com.example.secure_notes.repository.NoteRepository;
+import com.example.secure_notes.repository.NoteSummary;
+import com.example.secure_notes.repository.UserRepository;
+import com.example.secure_notes.security.UserPrincipal;
 import com.example.secure_notes.util.AesEncryptionUtil;
+import com.example.secure_notes.util.ParallelBatchExecutor;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,108 +50,253 @@ class NoteServiceTest {
     @Mock
     private AesEncryptionUtil aesEncryptionUtil;
 
+    @Mock
+    private DataKeyService dataKeyService;
+
+    @Mock
+    private NoteCache noteCache;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Spy
+    private ParallelBatchExecutor decryptExecutor = new ParallelBatchExecutor(2, 2, 2);
+
     @InjectMocks
     private NoteService noteService;
 
     private User user;
 
+    private UserPrincipal principal;
+
+    private final SecretKey dataKey = new SecretKeySpec(new byte[32], "AES");
+
     @BeforeEach
     void setUp() {
         user = new User();
         user.setId(1L);
         user.setUsername("testuser");
+        principal = new UserPrincipal(1L, "testuser", null, Set.of("ROLE_USER"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        decryptExecutor.shutdown();
     }
 
     @Test
     void testCreateNote() {
         String title = "My Note";
         String content = "Secret content";
-        String encryptedContent = "EncryptedSecret";
+        byte[] encryptedContent = "EncryptedSecret".getBytes();
 
-        when(aesEncryptionUtil.encrypt(content)).thenReturn(encryptedContent);
+        when(dataKeyService.getWriteKey(1L)).thenReturn(dataKey);
+        when(aesEncryptionUtil.encryptToBytes(content, dataKey)).thenReturn(encryptedContent);
 
         Note savedNote = new Note();
         savedNote.setId(1L);
         savedNote.setTitle(title);
-        savedNote.setContent(encryptedContent);
+        savedNote.setEncryptedContent(encryptedContent);
         savedNote.setUser(user);
 
+        when(userRepository.getReferenceById(1L)).thenReturn(user);
         when(noteRepository.save(any(Note.class))).thenReturn(savedNote);
 
-        Note result = noteService.createNote(title, content, user);
+        Note result = noteService.createNote(title, content, principal);
 
         assertNotNull(result);
         assertEquals(savedNote.getId(), result.getId());
         assertEquals(title, result.getTitle());
-        assertEquals(encryptedContent, result.getContent());
+        assertArrayEquals(encryptedContent, result.getEncryptedContent());
+        assertEquals(content, result.getContent());
         assertEquals(user, result.getUser());
 
-        verify(aesEncryptionUtil).encrypt(content);
-        verify(noteRepository).save(any(Note.class));
+        verify(aesEncryptionUtil).encryptToBytes(content, dataKey);
+        verify(noteRepository).save(argThat(note -> note.getEncryptedContent() == encryptedContent && note.getUser() == user));
+        verify(userRepository, never()).findById(any());
     }
 
     @Test
-    void testGetAllNotesForUser() {
+    void testGetNotesPage() {
+        byte[] encrypted1 = "Encrypted1".getBytes();
+        byte[] encrypted2 = "Encrypted2".getBytes();
         Note note1 = new Note();
-        note1.setContent("Encrypted1");
+        note1.setEncryptedContent(encrypted1);
         Note note2 = new Note();
-        note2.setContent("Encrypted2");
+        note2.setEncryptedContent(encrypted2);
 
-        when(noteRepository.findByUser(user)).thenReturn(Arrays.asList(note1, note2));
-        when(aesEncryptionUtil.decrypt("Encrypted1")).thenReturn("Decrypted1");
-        when(aesEncryptionUtil.decrypt("Encrypted2")).thenReturn("Decrypted2");
+        when(noteRepository.findPageByUserId(1L, PageRequest.of(0, 11))).thenReturn(Arrays.asList(note1, note2));
+        when(aesEncryptionUtil.decrypt(eq(encrypted1), any())).thenReturn("Decrypted1");
+        when(aesEncryptionUtil.decrypt(eq(encrypted2), any())).thenReturn("Decrypted2");
 
-        List<Note> notes = noteService.getAllNotesForUser(user);
+        NotePage<Note> page = noteService.getNotesPage(principal, null, 10);
+        List<Note> notes = page.getItems();
 
         assertEquals(2, notes.size());
         assertEquals("Decrypted1", notes.get(0).getContent());
         assertEquals("Decrypted2", notes.get(1).getContent());
+        assertNull(page.getNext());
+
+        verify(aesEncryptionUtil).decrypt(eq(encrypted1), any());
+        verify(aesEncryptionUtil).decrypt(eq(encrypted2), any());
+    }
+
+    @Test
+    void testGetNotesPageParallelKeepsOrder() {
+        List<Note> stored = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Note note = new Note();
+            note.setEncryptedContent(("Encrypted" + i).getBytes());
+            stored.add(note);
+        }
+
+        when(noteRepository.findPageByUserId(1L, PageRequest.of(0, 101))).thenReturn(stored);
+        when(aesEncryptionUtil.decrypt(any(byte[].class), any()))
+            .thenAnswer(invocation -> new String(invocation.getArgument(0, byte[].class)).replace("Encrypted", "Decrypted"));
+
+        List<Note> notes = noteService.getNotesPage(principal, null, 100).getItems();
+
+        assertEquals(100, notes.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("Decrypted" + i, notes.get(i).getContent());
+        }
+    }
+
+    @Test
+    void testGetNotesPageNextCursor() {
+        LocalDateTime updated = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123456000);
+        List<Note> stored = new ArrayList<>();
+        for (long id = 3; id >= 1; id--) {
+            Note note = new Note(id, "Title", null, null, updated, updated);
+            note.setEncryptedContent(("Encrypted" + id).getBytes());
+            stored.add(note);
+        }
+
+        when(noteRepository.findPageByUserId(1L, PageRequest.of(0, 3))).thenReturn(stored);
+        when(aesEncryptionUtil.decrypt(any(byte[].class), any())).thenReturn("Decrypted");
+
+        NotePage<Note> page = noteService.getNotesPage(principal, null, 2);
+
+        assertEquals(2, page.getItems().size());
+        assertEquals(2L, page.getItems().get(1).getId());
+        assertNotNull(page.getNext());
+        verify(aesEncryptionUtil, times(2)).decrypt(any(byte[].class), any());
+
+        when(noteRepository.findPageByUserIdAfter(1L, updated, 2L, PageRequest.of(0, 3))).thenReturn(List.of(stored.get(2)));
+
+        NotePage<Note> nextPage = noteService.getNotesPage(principal, page.getNext(), 2);
+
+        assertEquals(1, nextPage.getItems().size());
+        assertEquals(1L, nextPage.getItems().get(0).getId());
+        assertNull(nextPage.getNext());
+    }
+
+    @Test
+    void testGetNotesPageInvalidCursor() {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+            () -> noteService.getNotesPage(principal, "not-a-cursor", 10));
 
-        verify(aesEncryptionUtil).decrypt("Encrypted1");
-        verify(aesEncryptionUtil).decrypt("Encrypted2");
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        verifyNoInteractions(noteRepository);
+    }
+
+    @Test
+    void testGetNoteSummariesPage() {
+        NoteSummary summary = mock(NoteSummary.class);
+        when(noteRepository.findSummaryPageByUserId(1L, PageRequest.of(0, 11))).thenReturn(List.of(summary));
+
+        NotePage<NoteSummary> summaries = noteService.getNoteSummariesPage(principal, null, 10);
+
+        assertEquals(List.of(summary), summaries.getItems());
+        assertNull(summaries.getNext());
+        verify(noteRepository, never()).findPageByUserId(any(), any());
+        verifyNoInteractions(aesEncryptionUtil, dataKeyService);
+    }
+
+    @Test
+    void testGetNoteByIdFromCache() {
+        Note note = new Note();
+        note.setId(1L);
+        note.setVersion(3L);
+        note.setEncryptedContent("EncryptedContent".getBytes());
+        Note cached = new Note(1L, "Title", "CachedContent", user, null, null);
+        when(noteRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(note));
+        when(noteCache.get(1L, 1L, 3L)).thenReturn(Optional.of(cached));
+
+        Optional<Note> result = noteService.getNoteById(1L, principal);
+
+        assertTrue(result.isPresent());
+        assertEquals("CachedContent", result.get().getContent());
+        verify(noteRepository).findByIdAndUserId(1L, 1L);
+        verifyNoMoreInteractions(noteRepository);
+        verify(noteCache, never()).put(any(), any());
+        verifyNoInteractions(aesEncryptionUtil);
+    }
+
+    @Test
+    void testGetNoteByIdCachesOnMiss() {
+        byte[] encrypted = "EncryptedContent".getBytes();
+        Note note = new Note();
+        note.setId(1L);
+        note.setVersion(3L);
+        note.setEncryptedContent(encrypted);
+
+        when(noteCache.get(1L, 1L, 3L)).thenReturn(Optional.empty());
+        when(noteRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(note));
+        when(aesEncryptionUtil.decrypt(eq(encrypted), any())).thenReturn("DecryptedContent");
+
+        Optional<Note> result = noteService.getNoteById(1L, principal);
+
+        assertEquals("DecryptedContent", result.get().getContent());
+        verify(noteCache).put(1L, note);
     }
 
     @Test
     void testGetNoteById() {
+        byte[] encrypted = "EncryptedContent".getBytes();
         Note note = new Note();
         note.setId(1L);
-        note.setContent("EncryptedContent");
+        note.setEncryptedContent(encrypted);
 
-        when(noteRepository.findByIdAndUser(1L, user)).thenReturn(Optional.of(note));
-        when(aesEncryptionUtil.decrypt("EncryptedContent")).thenReturn("DecryptedContent");
+        when(noteRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(note));
+        when(aesEncryptionUtil.decrypt(eq(encrypted), any())).thenReturn("DecryptedContent");
 
-        Optional<Note> result = noteService.getNoteById(1L, user);
+        Optional<Note> result = noteService.getNoteById(1L, principal);
 
         assertTrue(result.isPresent());
         assertEquals("DecryptedContent", result.get().getContent());
-        verify(aesEncryptionUtil).decrypt("EncryptedContent");
+        verify(aesEncryptionUtil).decrypt(eq(encrypted), any());
     }
 
     @Test
     void testUpdateNote() {
+        byte[] newEncrypted = "NewEncrypted".getBytes();
         Note existingNote = new Note();
         existingNote.setId(1L);
-        existingNote.setContent("OldEncrypted");
+        existingNote.setEncryptedContent("OldEncrypted".getBytes());
         existingNote.setTitle("Old Title");
 
-        when(noteRepository.findByIdAndUser(1L, user)).thenReturn(Optional.of(existingNote));
-        when(aesEncryptionUtil.encrypt("New content")).thenReturn("NewEncrypted");
+        when(noteRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(existingNote));
+        when(dataKeyService.getWriteKey(1L)).thenReturn(dataKey);
+        when(aesEncryptionUtil.encryptToBytes("New content", dataKey)).thenReturn(newEncrypted);
 
         Note updatedNote = new Note();
         updatedNote.setId(1L);
         updatedNote.setTitle("New Title");
-        updatedNote.setContent("NewEncrypted");
+        updatedNote.setEncryptedContent(newEncrypted);
         updatedNote.setUser(user);
 
         when(noteRepository.save(any(Note.class))).thenReturn(updatedNote);
 
-        Optional<Note> result = noteService.updateNote(1L, "New Title", "New content", user);
+        Optional<Note> result = noteService.updateNote(1L, "New Title", "New content", principal);
 
         assertTrue(result.isPresent());
         assertEquals("New Title", result.get().getTitle());
-        assertEquals("NewEncrypted", result.get().getContent());
-        verify(aesEncryptionUtil).encrypt("New content");
+        assertArrayEquals(newEncrypted, result.get().getEncryptedContent());
+        assertEquals("New content", result.get().getContent());
+        verify(aesEncryptionUtil).encryptToBytes("New content", dataKey);
         verify(noteRepository).save(any(Note.class));
+        verify(noteCache).invalidate(1L, 1L, 0L);
     }
 
     @Test
@@ -139,21 +304,89 @@ class NoteServiceTest {
         Note note = new Note();
         note.setId(1L);
 
-        when(noteRepository.findByIdAndUser(1L, user)).thenReturn(Optional.of(note));
+        when(noteRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(note));
 
-        boolean deleted = noteService.deleteNote(1L, user);
+        boolean deleted = noteService.deleteNote(1L, principal);
 
         assertTrue(deleted);
         verify(noteRepository).delete(note);
+        verify(noteCache).invalidate(1L, 1L, 0L);
     }
 
     @Test
     void testDeleteNoteFailure() {
-        when(noteRepository.findByIdAndUser(1L, user)).thenReturn(Optional.empty());
+        when(noteRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.empty());
 
-        boolean deleted = noteService.deleteNote(1L, user);
+        boolean deleted = noteService.deleteNote(1L, principal);
 
         assertFalse(deleted);
         verify(noteRepository, never()).delete(any());
     }
+
+    @Test
+    void testApplyBatch() {
+        Note owned = new Note(2L, "Old Title", null, user, null, null);
+        owned.setVersion(4L);
+        Note deleted = new Note(3L, "Gone", null, user, null, null);
+
+        when(noteRepository.findByUserIdAndIdIn(1L, Set.of(2L, 3L, 4L))).thenReturn(List.of(owned, deleted));
+        when(dataKeyService.getWriteKey(1L)).thenReturn(dataKey);
+        when(aesEncryptionUtil.encryptToBytes(anyString(), eq(dataKey)))
+            .thenAnswer(invocation -> ("Encrypted" + invocation.getArgument(0, String.class)).getBytes());
+        when(userRepository.getReferenceById(1L)).thenReturn(user);
+        when(noteRepository.<Note>saveAll(anyList())).thenAnswer(invocation -> {
+            List<Note> notes = invocation.getArgument(0);
+            for (Note note : notes) {
+                if (note.getId() == null) {
+                    note.setId(100L);
+                }
+            }
+            return notes;
+        });
+
+        List<NoteBatchResult> results = noteService.applyBatch(List.of(
+            new NoteBatchOperation("create", null, "New", "Created content"),
+            new NoteBatchOperation("update", 2L, "Changed", "Updated content"),
+            new NoteBatchOperation("delete", 3L, null, null),
+            new NoteBatchOperation("delete", 4L, null, null),
+            new NoteBatchOperation("update", 2L, null, "Again"),
+            new NoteBatchOperation("move", 5L, null, null),
+            new NoteBatchOperation("create", null, "Empty", null)), principal);
+
+        assertEquals(7, results.size());
+        assertEquals(200, results.get(0).getStatus());
+        assertEquals(100L, results.get(0).getId());
+        assertEquals("Created content", results.get(0).getNote().getContent());
+        assertArrayEquals("EncryptedCreated content".getBytes(), results.get(0).getNote().getEncryptedContent());
+        assertEquals(user, results.get(0).getNote().getUser());
+        assertEquals(200, results.get(1).getStatus());
+        assertSame(owned, results.get(1).getNote());
+        assertEquals("Changed", owned.getTitle());
+        assertArrayEquals("EncryptedUpdated content".getBytes(), owned.getEncryptedContent());
+        assertEquals(204, results.get(2).getStatus());
+        assertEquals(3L, results.get(2).getId());
+        assertEquals(404, results.get(3).getStatus());
+        assertEquals(409, results.get(4).getStatus());
+        assertEquals(400, results.get(5).getStatus());
+        assertEquals(400, results.get(6).getStatus());
+
+        verify(noteRepository, times(1)).findByUserIdAndIdIn(any(), any());
+        verify(dataKeyService, times(1)).getWriteKey(1L);
+        verify(noteRepository).deleteAll(List.of(deleted));
+        verify(noteCache).invalidate(1L, 2L, 4L);
+        verify(noteCache).invalidate(1L, 3L, 0L);
+        verify(noteRepository, never()).findByIdAndUserId(any(), any());
+        verify(noteRepository, never()).save(any());
+    }
+
+    @Test
+    void testApplyBatchWithoutValidOperations() {
+        List<NoteBatchResult> results = noteService.applyBatch(Arrays.asList(
+            null, new NoteBatchOperation("update", null, "Title", "Content")), principal);
+
+        assertEquals(400, results.get(0).getStatus());
+        assertEquals(400, results.get(1).getStatus());
+        verify(noteRepository, never()).findByUserIdAndIdIn(any(), any());
+        verifyNoInteractions(aesEncryptionUtil, dataKeyService, noteCache);
+    }
 }
@@ -1,10 +1,12 @@
 package com.example.secure_notes;
 
 import com.example.secure_notes.entity.*;
+import com.example.secure_notes.util.AesEncryptionUtil;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import org.springframework.test.util.ReflectionTestUtils;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.time.LocalDateTime;
@@ -231,4 +233,19 @@ class NoteTest {
         note.setUser(null);
         assertNull(note.getUser());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Test encrypted content falls back to the tagged legacy column until rewritten")
+    void testEncryptedContentLegacyFallback() {
+        byte[] legacy = {1, 2, 3};
+        byte[] binary = {4, 5, 6};
+        ReflectionTestUtils.setField(note, "legacyContent", legacy);
+
+        assertArrayEquals(new byte[] {AesEncryptionUtil.VERSION_ECB, 1, 2, 3}, note.getEncryptedContent());
+
+        note.setEncryptedContent(binary);
+
+        assertArrayEquals(binary, note.getEncryptedContent());
+        assertNull(ReflectionTestUtils.getField(note, "legacyContent"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.security.RateLimitFilter;
+import com.example.secure_notes.security.UserPrincipal;
+import com.example.secure_notes.security.VerifiedTokenCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private VerifiedTokenCache tokenCache;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        tokenCache = new VerifiedTokenCache(meterRegistry, true, 64);
+        filter = new RateLimitFilter(meterRegistry, tokenCache, true, 2, 0.001, 3, 0.001, 600000L);
+    }
+
+    private MockHttpServletResponse send(String method, String path, String remoteAddr, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(remoteAddr);
+        if (token != null) {
+            request.addHeader("Authorization", "Bearer " + token);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    @Test
+    @DisplayName("Login requests beyond the burst should get 429 with Retry-After")
+    void testAuthLimit() throws Exception {
+        assertEquals(200, send("POST", "/api/auth/login", "10.0.0.1", null).getStatus());
+        assertEquals(200, send("POST", "/api/auth/signup", "10.0.0.1", null).getStatus());
+
+        MockHttpServletResponse refused = send("POST", "/api/auth/login", "10.0.0.1", null);
+
+        assertEquals(429, refused.getStatus());
+        assertNotNull(refused.getHeader("Retry-After"));
+        assertEquals(200, send("POST", "/api/auth/login", "10.0.0.2", null).getStatus());
+        assertEquals(1.0, meterRegistry.get("http.ratelimit.rejected").tag("endpoint", "auth").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Note requests with a verified token should be limited per user, not per IP")
+    void testNotesLimitedPerUser() throws Exception {
+        UserPrincipal principal = new UserPrincipal(7L, "testuser", null, List.of("ROLE_USER"));
+        tokenCache.put("tokenA", principal, System.currentTimeMillis() + 60000, tokenCache.generation());
+        tokenCache.put("tokenB", principal, System.currentTimeMillis() + 60000, tokenCache.generation());
+
+        assertEquals(200, send("GET", "/api/notes", "10.0.0.1", "tokenA").getStatus());
+        assertEquals(200, send("GET", "/api/notes/1", "10.0.0.2", "tokenB").getStatus());
+        assertEquals(200, send("GET", "/api/notes", "10.0.0.3", "tokenA").getStatus());
+
+        assertEquals(429, send("GET", "/api/notes", "10.0.0.4", "tokenB").getStatus());
+        // unverified tokens fall back to the client IP
+        assertEquals(200, send("GET", "/api/notes", "10.0.0.4", "unverified").getStatus());
+    }
+
+    @Test
+    @DisplayName("Other paths and preflight requests should not be limited")
+    void testUnlimitedPaths() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(200, send("GET", "/api/health", "10.0.0.1", null).getStatus());
+            assertEquals(200, send("OPTIONS", "/api/auth/login", "10.0.0.1", null).getStatus());
+        }
+    }
+
+    @Test
+    @DisplayName("A disabled limiter should let every request through")
+    void testDisabled() throws Exception {
+        filter = new RateLimitFilter(meterRegistry, tokenCache, false, 1, 0.001, 1, 0.001, 600000L);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, send("POST", "/api/auth/login", "10.0.0.1", null).getStatus());
+        }
+    }
+}
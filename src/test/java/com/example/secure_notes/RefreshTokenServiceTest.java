@@ -0,0 +1,109 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.entity.RefreshToken;
+import com.example.secure_notes.entity.User;
+import com.example.secure_notes.repository.RefreshTokenRepository;
+import com.example.secure_notes.service.RefreshTokenService;
+import com.example.secure_notes.service.TokenRevocationService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private TokenRevocationService revocationService;
+
+    private RefreshTokenService refreshTokenService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, revocationService, 3600000L);
+
+        user = new User();
+        user.setId(1L);
+        user.setUsername("testuser");
+    }
+
+    private RefreshToken storedToken(Instant expiresAt) {
+        RefreshToken token = new RefreshToken("hash", user, "family-1", Instant.now(), expiresAt);
+        ReflectionTestUtils.setField(token, "id", 10L);
+        return token;
+    }
+
+    @Test
+    @DisplayName("Issued tokens should be stored only as a hash")
+    void testIssueStoresHash() {
+        String token = refreshTokenService.issue(user);
+
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(captor.capture());
+        assertNotNull(token);
+        assertNotEquals(token, captor.getValue().getTokenHash());
+        assertEquals(43, captor.getValue().getTokenHash().length());
+        assertSame(user, captor.getValue().getUser());
+    }
+
+    @Test
+    @DisplayName("Rotation should mark the token used and issue a successor in the same family")
+    void testRotate() {
+        when(refreshTokenRepository.findByTokenHash(anyString()))
+            .thenReturn(Optional.of(storedToken(Instant.now().plusSeconds(60))));
+        when(refreshTokenRepository.markUsed(eq(10L), any(Instant.class))).thenReturn(1);
+
+        Optional<RefreshTokenService.Rotation> rotation = refreshTokenService.rotate("refresh-token");
+
+        assertTrue(rotation.isPresent());
+        assertSame(user, rotation.get().user());
+        assertNotEquals("refresh-token", rotation.get().refreshToken());
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(captor.capture());
+        assertEquals("family-1", captor.getValue().getFamilyId());
+    }
+
+    @Test
+    @DisplayName("Reusing a token should revoke its family and the user's access tokens")
+    void testReuseDetected() {
+        when(refreshTokenRepository.findByTokenHash(anyString()))
+            .thenReturn(Optional.of(storedToken(Instant.now().plusSeconds(60))));
+        when(refreshTokenRepository.markUsed(eq(10L), any(Instant.class))).thenReturn(0);
+
+        assertTrue(refreshTokenService.rotate("refresh-token").isEmpty());
+
+        verify(refreshTokenRepository).deleteByFamilyId("family-1");
+        verify(revocationService).revokeAllForUser(1L);
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Expired or unknown tokens should be rejected")
+    void testExpiredOrUnknown() {
+        when(refreshTokenRepository.findByTokenHash(anyString()))
+            .thenReturn(Optional.of(storedToken(Instant.now().minusSeconds(1))))
+            .thenReturn(Optional.empty());
+
+        assertTrue(refreshTokenService.rotate("expired-token").isEmpty());
+        assertTrue(refreshTokenService.rotate("unknown-token").isEmpty());
+        verify(refreshTokenRepository, never()).markUsed(any(), any());
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.entity.Role;
+import com.example.secure_notes.entity.RoleSetConverter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoleSetConverterTest {
+
+    private final RoleSetConverter converter = new RoleSetConverter();
+
+    @Test
+    @DisplayName("Roles should round-trip through the bitmask")
+    void testRoundTrip() {
+        long mask = converter.convertToDatabaseColumn(Set.of("ROLE_USER", "ROLE_ADMIN"));
+
+        assertEquals(Role.ROLE_USER.getMask() | Role.ROLE_ADMIN.getMask(), mask);
+        assertEquals(Set.of("ROLE_USER", "ROLE_ADMIN"), converter.convertToEntityAttribute(mask));
+    }
+
+    @Test
+    @DisplayName("No roles should be stored as an empty mask")
+    void testEmpty() {
+        assertEquals(0L, converter.convertToDatabaseColumn(null));
+        assertEquals(0L, converter.convertToDatabaseColumn(Set.of()));
+        assertTrue(converter.convertToEntityAttribute(null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Decoded role sets should be modifiable and ignore unknown bits")
+    void testDecode() {
+        Set<String> roles = converter.convertToEntityAttribute(Role.ROLE_USER.getMask() | (1L << 40));
+
+        assertEquals(Set.of("ROLE_USER"), roles);
+        roles.add("ROLE_ADMIN");
+        assertEquals(2, roles.size());
+    }
+
+    @Test
+    @DisplayName("Unknown role strings should not be storable")
+    void testUnknownRole() {
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToDatabaseColumn(Set.of("ROLE_MODERATOR")));
+    }
+}
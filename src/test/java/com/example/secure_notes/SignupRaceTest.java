@@ -0,0 +1,127 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.dto.SignupRequest;
+import com.example.secure_notes.entity.User;
+import com.example.secure_notes.repository.UserRepository;
+import com.example.secure_notes.security.CustomUserDetailsService;
+import com.example.secure_notes.security.JwtUtil;
+import com.example.secure_notes.service.AuthService;
+import com.example.secure_notes.service.RefreshTokenService;
+import com.example.secure_notes.service.TokenRevocationService;
+import com.example.secure_notes.service.UsernameBloomFilter;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/*
+ * Runs signups against an in-memory H2 database, so racing inserts hit the real
+ * unique index on users.username. Test transactions are disabled so that every
+ * save commits on its own, as it does in production.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SignupRaceTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private UsernameBloomFilter usernameFilter;
+    private AuthService authService;
+
+    @BeforeEach
+    void setUp() {
+        User existing = new User();
+        existing.setUsername("existinguser");
+        existing.setPasswordHash("hashedPassword");
+        userRepository.save(existing);
+
+        usernameFilter = new UsernameBloomFilter(userRepository, 1000, 0.01);
+        usernameFilter.init();
+
+        PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+        when(passwordEncoder.encode(anyString())).thenReturn("hashedPassword");
+        authService = new AuthService(userRepository, passwordEncoder, mock(JwtUtil.class),
+            mock(AuthenticationManager.class), mock(TokenRevocationService.class),
+            mock(RefreshTokenService.class), usernameFilter, mock(CustomUserDetailsService.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("The signup filter should be loaded with the existing usernames")
+    void testFilterLoadedFromDatabase() {
+        assertTrue(usernameFilter.mightBeTaken("existinguser"));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+            () -> authService.signup(new SignupRequest("existinguser", "password123")));
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Parallel signups for the same username should create one user and report conflicts for the rest")
+    void testConcurrentSignupsSameUsername() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return authService.signup(new SignupRequest("sameuser", "password123"));
+                }));
+            }
+            start.countDown();
+
+            int created = 0;
+            int conflicts = 0;
+            for (Future<?> result : results) {
+                try {
+                    result.get(30, TimeUnit.SECONDS);
+                    created++;
+                } catch (ExecutionException e) {
+                    ResponseStatusException cause = assertInstanceOf(ResponseStatusException.class, e.getCause());
+                    assertEquals(HttpStatus.CONFLICT, cause.getStatusCode());
+                    conflicts++;
+                } catch (TimeoutException e) {
+                    fail("Signup did not finish in time");
+                }
+            }
+
+            assertEquals(1, created);
+            assertEquals(THREADS - 1, conflicts);
+            assertTrue(userRepository.existsByUsername("sameuser"));
+            assertEquals(2, userRepository.count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.util.TokenBucketLimiter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("A bucket should allow a burst of its capacity, then refuse")
+    void testBurst() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(3, 1);
+        long now = 1_000 * SECOND;
+
+        assertEquals(0, limiter.tryAcquire("client", now));
+        assertEquals(0, limiter.tryAcquire("client", now));
+        assertEquals(0, limiter.tryAcquire("client", now));
+
+        long wait = limiter.tryAcquire("client", now);
+        assertEquals(SECOND, wait);
+    }
+
+    @Test
+    @DisplayName("A bucket should refill at its rate, up to its capacity")
+    void testRefill() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(2, 2);
+        long now = 1_000 * SECOND;
+        limiter.tryAcquire("client", now);
+        limiter.tryAcquire("client", now);
+        assertTrue(limiter.tryAcquire("client", now) > 0);
+
+        assertEquals(0, limiter.tryAcquire("client", now + SECOND / 2));
+        assertTrue(limiter.tryAcquire("client", now + SECOND / 2) > 0);
+
+        // a long pause refills no more than the capacity
+        long later = now + 60 * SECOND;
+        assertEquals(0, limiter.tryAcquire("client", later));
+        assertEquals(0, limiter.tryAcquire("client", later));
+        assertTrue(limiter.tryAcquire("client", later) > 0);
+    }
+
+    @Test
+    @DisplayName("Keys should have independent buckets")
+    void testKeysAreIndependent() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 1);
+        long now = 1_000 * SECOND;
+
+        assertEquals(0, limiter.tryAcquire(1L, now));
+        assertTrue(limiter.tryAcquire(1L, now) > 0);
+        assertEquals(0, limiter.tryAcquire(2L, now));
+        assertEquals(0, limiter.tryAcquire("1", now));
+    }
+
+    @Test
+    @DisplayName("Only buckets that have been full for the idle time should be evicted")
+    void testEvictIdle() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(10, 1);
+        long now = 1_000 * SECOND;
+        limiter.tryAcquire("idle", now);
+        limiter.tryAcquire("busy", now + 100 * SECOND);
+        limiter.tryAcquire("busy", now + 100 * SECOND);
+
+        assertEquals(1, limiter.evictIdle(now + 101 * SECOND, 60 * SECOND));
+        assertEquals(1, limiter.size());
+        assertTrue(limiter.tryAcquire("busy", now + 101 * SECOND) == 0);
+    }
+
+    @Test
+    @DisplayName("Concurrent requests on one bucket should never take more than its capacity")
+    void testConcurrentAcquire() throws Exception {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1000, 0.001);
+        long now = System.nanoTime();
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        if (limiter.tryAcquire("shared", now) == 0) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1000, allowed.get());
+    }
+
+    @Test
+    @DisplayName("Invalid limits should be rejected")
+    void testInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketLimiter(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketLimiter(1, 0));
+    }
+}
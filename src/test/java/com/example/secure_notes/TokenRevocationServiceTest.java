@@ -0,0 +1,133 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.entity.RevokedToken;
+import com.example.secure_notes.repository.RevokedTokenRepository;
+import com.example.secure_notes.repository.UserRepository;
+import com.example.secure_notes.security.UserPrincipal;
+import com.example.secure_notes.security.VerifiedTokenCache;
+import com.example.secure_notes.service.TokenRevocationService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationServiceTest {
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private VerifiedTokenCache tokenCache;
+    private TokenRevocationService revocationService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        tokenCache = new VerifiedTokenCache(meterRegistry, true, 64);
+        revocationService = new TokenRevocationService(revokedTokenRepository, userRepository, tokenCache,
+            meterRegistry, 3600000L, 1000, 0.01);
+        revocationService.init();
+    }
+
+    private Date inOneHour() {
+        return new Date(System.currentTimeMillis() + 3600000L);
+    }
+
+    @Test
+    @DisplayName("A revoked token should be rejected and persisted; other tokens should pass")
+    void testRevoke() {
+        revocationService.revoke("token-1", inOneHour());
+
+        assertTrue(revocationService.isRevoked("token-1", 1L, new Date()));
+        assertFalse(revocationService.isRevoked("token-2", 1L, new Date()));
+        verify(revokedTokenRepository).save(any(RevokedToken.class));
+        assertEquals(1.0, meterRegistry.get("jwt.revocation.checks").tag("result", "revoked").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Revoking a token should clear the verified token cache")
+    void testRevokeClearsTokenCache() {
+        UserPrincipal principal = new UserPrincipal(1L, "testuser", null, List.of("ROLE_USER"));
+        tokenCache.put("a.b.c", principal, System.currentTimeMillis() + 60000, tokenCache.generation());
+
+        revocationService.revoke("token-1", inOneHour());
+
+        assertNull(tokenCache.get("a.b.c"));
+    }
+
+    @Test
+    @DisplayName("Revoke-all should reject the user's earlier tokens only")
+    void testRevokeAllForUser() {
+        Date issuedBefore = new Date(System.currentTimeMillis() - 1000);
+        when(userRepository.setTokensRevokedBefore(eq(1L), any(Instant.class))).thenReturn(1);
+
+        assertTrue(revocationService.revokeAllForUser(1L));
+
+        assertTrue(revocationService.isRevoked("token-1", 1L, issuedBefore));
+        assertFalse(revocationService.isRevoked("token-1", 1L, new Date(System.currentTimeMillis() + 1000)));
+        assertFalse(revocationService.isRevoked("token-1", 2L, issuedBefore));
+    }
+
+    @Test
+    @DisplayName("A token issued in the same second after a revoke-all should stay valid")
+    void testRevokeAllThenNewTokenSameSecond() {
+        when(userRepository.setTokensRevokedBefore(eq(1L), any(Instant.class))).thenReturn(1);
+
+        assertTrue(revocationService.revokeAllForUser(1L));
+        Date issuedAt = Date.from(Instant.now().truncatedTo(ChronoUnit.SECONDS));
+
+        assertFalse(revocationService.isRevoked("token-2", 1L, issuedAt));
+        assertTrue(revocationService.isRevoked("token-1", 1L, new Date(issuedAt.getTime() - 1000)));
+        verify(userRepository).setTokensRevokedBefore(eq(1L), argThat(revokedBefore -> revokedBefore.getNano() == 0));
+    }
+
+    @Test
+    @DisplayName("Revoke-all for an unknown user should report it")
+    void testRevokeAllUnknownUser() {
+        when(userRepository.setTokensRevokedBefore(eq(99L), any(Instant.class))).thenReturn(0);
+
+        assertFalse(revocationService.revokeAllForUser(99L));
+    }
+
+    @Test
+    @DisplayName("Refresh should pick up revocations made on other nodes")
+    void testRefreshLoadsRemoteRevocations() {
+        Instant expiresAt = Instant.now().plusSeconds(3600);
+        when(revokedTokenRepository.findActiveRevokedAfter(any(Instant.class), any(Instant.class)))
+            .thenReturn(List.of(new RevokedToken("remote-token", expiresAt, Instant.now())));
+        when(userRepository.findTokenWatermarksAfter(any(Instant.class))).thenReturn(Collections.emptyList());
+
+        revocationService.refresh();
+
+        assertTrue(revocationService.isRevoked("remote-token", 1L, new Date()));
+        verify(revokedTokenRepository).deleteExpired(any(Instant.class));
+    }
+
+    @Test
+    @DisplayName("Expired tokens should not be revoked")
+    void testRevokeExpiredToken() {
+        revocationService.revoke("token-1", new Date(System.currentTimeMillis() - 1000));
+
+        assertFalse(revocationService.isRevoked("token-1", 1L, new Date()));
+        verify(revokedTokenRepository, never()).save(any());
+    }
+}
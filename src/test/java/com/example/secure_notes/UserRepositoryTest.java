@@ -0,0 +1,67 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.entity.User;
+import com.example.secure_notes.repository.UserRepository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class UserRepositoryTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername("testuser");
+        user.setPasswordHash("hashedPassword");
+        user.setRoles(new HashSet<>(Set.of("ROLE_USER", "ROLE_ADMIN")));
+        entityManager.persistAndFlush(user);
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+            .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("Loading a user with its roles should take a single query")
+    void testLoadUserIsSingleQuery() {
+        User loaded = userRepository.findByUsername("testuser").orElseThrow();
+
+        assertEquals(Set.of("ROLE_USER", "ROLE_ADMIN"), loaded.getRoles());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Changing the role set in place should be persisted")
+    void testRoleChangePersisted() {
+        User loaded = userRepository.findByUsername("testuser").orElseThrow();
+        loaded.getRoles().remove("ROLE_ADMIN");
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(Set.of("ROLE_USER"), userRepository.findByUsername("testuser").orElseThrow().getRoles());
+    }
+}
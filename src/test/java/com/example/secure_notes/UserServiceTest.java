@@ -2,6 +2,7 @@ package com.example.secure_notes;
 
 import com.example.secure_notes.entity.User;
 import com.example.secure_notes.repository.UserRepository;
+import com.example.secure_notes.security.CustomUserDetailsService;
 import com.example.secure_notes.service.UserService;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -22,6 +23,9 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private CustomUserDetailsService userDetailsService;
+
     @InjectMocks
     private UserService userService;
 
@@ -86,5 +90,6 @@ public class UserServiceTest {
         assertNotNull(result);
         assertEquals("fulluser", result.getUsername());
         verify(userRepository).save(fullUser);
+        verify(userDetailsService).invalidate("fulluser");
     }
 }
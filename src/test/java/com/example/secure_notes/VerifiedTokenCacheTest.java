@@ -0,0 +1,107 @@
+package com.example.secure_notes;
+
+import com.example.secure_notes.security.UserPrincipal;
+import com.example.secure_notes.security.VerifiedTokenCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerifiedTokenCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private VerifiedTokenCache tokenCache;
+    private UserPrincipal principal;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        tokenCache = new VerifiedTokenCache(meterRegistry, true, 64);
+        principal = new UserPrincipal(1L, "testuser", null, List.of("ROLE_USER"));
+    }
+
+    @Test
+    @DisplayName("A verified token should be found until it expires")
+    void testHit() {
+        tokenCache.put("header.payload.signature", principal, System.currentTimeMillis() + 60000, 0);
+
+        assertSame(principal, tokenCache.get(new String("header.payload.signature")));
+        assertEquals(1.0, meterRegistry.get("jwt.token.cache.requests").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("jwt.token.cache.size").gauge().value());
+    }
+
+    @Test
+    @DisplayName("A different token should miss")
+    void testOtherTokenMisses() {
+        tokenCache.put("header.payload.signature", principal, System.currentTimeMillis() + 60000, 0);
+
+        assertNull(tokenCache.get("header.payload.signaturf"));
+        assertEquals(1.0, meterRegistry.get("jwt.token.cache.requests").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Expired tokens should not be served or stored")
+    void testExpiry() throws InterruptedException {
+        tokenCache.put("expired.token.x", principal, System.currentTimeMillis() - 1, 0);
+        tokenCache.put("expiring.token.x", principal, System.currentTimeMillis() + 20, 0);
+
+        Thread.sleep(50);
+
+        assertNull(tokenCache.get("expired.token.x"));
+        assertNull(tokenCache.get("expiring.token.x"));
+        assertEquals(0, tokenCache.size());
+    }
+
+    @Test
+    @DisplayName("The cache should never hold more tokens than its size")
+    void testBounded() {
+        for (int i = 0; i < 1000; i++) {
+            tokenCache.put("token." + i + ".sig", principal, System.currentTimeMillis() + 60000, 0);
+        }
+
+        assertTrue(tokenCache.size() <= 64);
+    }
+
+    @Test
+    @DisplayName("A token checked before a clear should not be cached after it")
+    void testStaleGenerationNotCached() {
+        long generation = tokenCache.generation();
+        tokenCache.clear();
+
+        tokenCache.put("header.payload.signature", principal, System.currentTimeMillis() + 60000, generation);
+
+        assertNull(tokenCache.get("header.payload.signature"));
+        assertEquals(0, tokenCache.size());
+    }
+
+    @Test
+    @DisplayName("A disabled cache should always miss")
+    void testDisabled() {
+        VerifiedTokenCache disabled = new VerifiedTokenCache(new SimpleMeterRegistry(), false, 64);
+        disabled.put("header.payload.signature", principal, System.currentTimeMillis() + 60000, 0);
+
+        assertNull(disabled.get("header.payload.signature"));
+    }
+
+    @Test
+    @DisplayName("A lookup through the request should hash and count the token only once")
+    void testLookupOncePerRequest() {
+        tokenCache.put("header.payload.signature", principal, System.currentTimeMillis() + 60000, 0);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletRequest otherRequest = new MockHttpServletRequest();
+
+        assertSame(principal, tokenCache.get("header.payload.signature", request));
+        assertSame(principal, tokenCache.get("header.payload.signature", request));
+        assertNull(tokenCache.get("other.payload.signature", otherRequest));
+        assertNull(tokenCache.get("other.payload.signature", otherRequest));
+
+        assertEquals(1.0, meterRegistry.get("jwt.token.cache.requests").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("jwt.token.cache.requests").tag("result", "miss").functionCounter().count());
+    }
+}